@@ -0,0 +1,85 @@
+package com.geekyAnts.libraryManagement.benchmark;
+
+import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.ReturnRequestDTO;
+import com.geekyAnts.libraryManagement.service.BorrowService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BorrowService.borrowBook and returnBook. Each thread has its own borrower and cycles through
+ * the catalog, so every borrow is undone before the borrower can reach their limit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BorrowBenchmark {
+
+    @State(Scope.Thread)
+    public static class BorrowerState {
+        BorrowService borrowService;
+        UUID borrowerId;
+        UUID borrowRecordId;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState library) {
+            borrowService = library.bean(BorrowService.class);
+            borrowerId = library.newBorrower().getId();
+        }
+
+        UUID nextBookId(LibraryState library) {
+            return library.bookIds.get(next++ % library.bookIds.size());
+        }
+
+        BorrowRecordDTO borrow(LibraryState library) {
+            return borrowService.borrowBook(new BorrowRequestDTO(nextBookId(library), borrowerId));
+        }
+
+        @TearDown(Level.Invocation)
+        public void returnBorrowed() {
+            if (borrowRecordId != null) {
+                borrowService.returnBook(new ReturnRequestDTO(borrowRecordId));
+                borrowRecordId = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BorrowedState extends BorrowerState {
+        @Setup(Level.Invocation)
+        public void borrowOne(LibraryState library) {
+            borrowRecordId = borrow(library).getId();
+        }
+    }
+
+    @Benchmark
+    public BorrowRecordDTO borrowBook(LibraryState library, BorrowerState state) {
+        BorrowRecordDTO borrowRecord = state.borrow(library);
+        state.borrowRecordId = borrowRecord.getId();
+        return borrowRecord;
+    }
+
+    @Benchmark
+    public BorrowRecordDTO returnBook(BorrowedState state) {
+        BorrowRecordDTO borrowRecord = state.borrowService.returnBook(new ReturnRequestDTO(state.borrowRecordId));
+        state.borrowRecordId = null;
+        return borrowRecord;
+    }
+}
@@ -0,0 +1,103 @@
+package com.geekyAnts.libraryManagement.benchmark;
+
+import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.BookSuggestionDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowerActivityDTO;
+import com.geekyAnts.libraryManagement.dto.CategoryFinesDTO;
+import com.geekyAnts.libraryManagement.dto.LoanDurationDTO;
+import com.geekyAnts.libraryManagement.dto.TopBorrowedBookDTO;
+import com.geekyAnts.libraryManagement.service.AnalyticsService;
+import com.geekyAnts.libraryManagement.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths: BookService.searchBooks, fuzzySearchBooks, getSuggestions and getBooksWithFilters, and
+ * AnalyticsService.getTopBorrowedBooks and the aggregations over the borrow history columns
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    @State(Scope.Thread)
+    public static class Queries {
+        final Pageable firstPage = PageRequest.of(0, 20);
+        BookService bookService;
+        AnalyticsService analyticsService;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState library) {
+            bookService = library.bean(BookService.class);
+            analyticsService = library.bean(AnalyticsService.class);
+        }
+
+        String nextCategory() {
+            return LibraryState.CATEGORIES[next++ % LibraryState.CATEGORIES.length];
+        }
+    }
+
+    @Benchmark
+    public Page<BookDTO> searchBooksByTitle(Queries queries) {
+        return queries.bookService.searchBooks("Title " + (queries.next++ % 100), null, queries.firstPage);
+    }
+
+    @Benchmark
+    public Page<BookDTO> searchBooksByAuthor(Queries queries) {
+        return queries.bookService.searchBooks(null, "Author " + (queries.next++ % 500), queries.firstPage);
+    }
+
+    @Benchmark
+    public Page<BookDTO> fuzzySearchBooks(Queries queries) {
+        // "Benchmark" misspelled by one transposition (two edits)
+        return queries.bookService.fuzzySearchBooks("Bencmhark Title " + (queries.next++ % 100), null, queries.firstPage);
+    }
+
+    @Benchmark
+    public List<BookSuggestionDTO> getSuggestions(Queries queries) {
+        return queries.bookService.getSuggestions("Benchmark Title " + (queries.next++ % 100), 10);
+    }
+
+    @Benchmark
+    public Page<BookDTO> getBooksWithFilters(Queries queries) {
+        return queries.bookService.getBooksWithFilters(queries.nextCategory(), true, queries.firstPage);
+    }
+
+    @Benchmark
+    public List<TopBorrowedBookDTO> getTopBorrowedBooks(Queries queries) {
+        return queries.analyticsService.getTopBorrowedBooks();
+    }
+
+    @Benchmark
+    public List<BorrowerActivityDTO> getBorrowerActivity(Queries queries) {
+        return queries.analyticsService.getBorrowerActivity();
+    }
+
+    @Benchmark
+    public List<CategoryFinesDTO> getFinesByCategory(Queries queries) {
+        return queries.analyticsService.getFinesByCategory();
+    }
+
+    @Benchmark
+    public LoanDurationDTO getLoanDurations(Queries queries) {
+        return queries.analyticsService.getLoanDurations();
+    }
+}
@@ -0,0 +1,174 @@
+package com.geekyAnts.libraryManagement.benchmark;
+
+import com.geekyAnts.libraryManagement.LibraryManagementApplication;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.entity.BorrowRecord;
+import com.geekyAnts.libraryManagement.entity.Borrower;
+import com.geekyAnts.libraryManagement.enums.MembershipType;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
+import com.geekyAnts.libraryManagement.service.ActiveLoanIndex;
+import com.geekyAnts.libraryManagement.service.BookFuzzyIndex;
+import com.geekyAnts.libraryManagement.service.BookSearchIndex;
+import com.geekyAnts.libraryManagement.service.BookSuggestIndex;
+import com.geekyAnts.libraryManagement.service.BorrowHistoryColumns;
+import com.geekyAnts.libraryManagement.service.BorrowLeaderboard;
+import com.geekyAnts.libraryManagement.service.BorrowSketches;
+import com.geekyAnts.libraryManagement.service.BorrowerSearchIndex;
+import com.geekyAnts.libraryManagement.service.CoBorrowIndex;
+import com.geekyAnts.libraryManagement.service.InventoryLedger;
+import com.geekyAnts.libraryManagement.service.OverdueTracker;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Starts the application without a web server on an embedded H2 database seeded with
+ * {@code catalogSize} books and {@code loanCount} borrow records. Override the sizes with
+ * {@code -p catalogSize=...} and {@code -p loanCount=...}.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    static final String[] CATEGORIES = {
+            "Fiction", "Science", "History", "Technology", "Biography",
+            "Philosophy", "Poetry", "Travel", "Art", "Children"
+    };
+
+    private static final int SEED_CHUNK = 1000;
+    // Each borrower keeps this many seeded loans out; the rest are returned history
+    private static final int ACTIVE_LOANS_PER_BORROWER = 2;
+    private static final int LOANS_PER_BORROWER = 10;
+
+    @Param("1000")
+    public int catalogSize;
+
+    @Param("5000")
+    public int loanCount;
+
+    public ConfigurableApplicationContext context;
+    public List<UUID> bookIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(LibraryManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                // Passed as arguments so they take precedence over application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh",
+                        "--spring.jpa.show-sql=false",
+                        "--library.sketches.snapshot-path=",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.geekyAnts.libraryManagement=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN");
+        seed();
+
+        // The in-memory structures were loaded before seeding; load them again from the seeded tables
+        context.getBean(InventoryLedger.class).load();
+        context.getBean(ActiveLoanIndex.class).rebuild();
+        context.getBean(OverdueTracker.class).rebuild();
+        context.getBean(BookSearchIndex.class).rebuild();
+        context.getBean(BookSuggestIndex.class).rebuild();
+        context.getBean(BorrowerSearchIndex.class).rebuild();
+        context.getBean(BookFuzzyIndex.class).rebuild();
+        context.getBean(CoBorrowIndex.class).rebuild();
+        context.getBean(BorrowLeaderboard.class).rebuild();
+        context.getBean(BorrowSketches.class).rebuild();
+        context.getBean(BorrowHistoryColumns.class).refresh();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates a premium borrower with no loans, for benchmarks that borrow and return
+     */
+    public Borrower newBorrower() {
+        Borrower borrower = new Borrower();
+        borrower.setName("Benchmark Borrower");
+        borrower.setEmail("benchmark-" + UUID.randomUUID() + "@example.com");
+        borrower.setMembershipType(MembershipType.PREMIUM);
+        return bean(BorrowerRepository.class).save(borrower);
+    }
+
+    private void seed() {
+        BookRepository bookRepository = bean(BookRepository.class);
+        BorrowerRepository borrowerRepository = bean(BorrowerRepository.class);
+        BorrowRecordRepository borrowRecordRepository = bean(BorrowRecordRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(bean(PlatformTransactionManager.class));
+        Random random = new Random(42);
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < catalogSize; i += SEED_CHUNK) {
+            int from = i;
+            books.addAll(transactionTemplate.execute(status -> {
+                List<Book> chunk = new ArrayList<>();
+                for (int n = from; n < Math.min(catalogSize, from + SEED_CHUNK); n++) {
+                    Book book = new Book();
+                    book.setTitle("Benchmark Title " + n);
+                    book.setAuthor("Author " + (n % 500));
+                    book.setCategory(CATEGORIES[n % CATEGORIES.length]);
+                    book.setTotalCopies(1000);
+                    book.setAvailableCopies(1000);
+                    chunk.add(book);
+                }
+                return bookRepository.saveAll(chunk);
+            }));
+        }
+        bookIds = books.stream().map(Book::getId).toList();
+
+        int borrowerCount = Math.max(1, loanCount / LOANS_PER_BORROWER);
+        List<Borrower> borrowers = transactionTemplate.execute(status -> {
+            List<Borrower> chunk = new ArrayList<>();
+            for (int n = 0; n < borrowerCount; n++) {
+                Borrower borrower = new Borrower();
+                borrower.setName("Borrower " + n);
+                borrower.setEmail("borrower-" + n + "@benchmark.example.com");
+                borrower.setMembershipType(MembershipType.PREMIUM);
+                chunk.add(borrower);
+            }
+            return borrowerRepository.saveAll(chunk);
+        });
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < loanCount; i += SEED_CHUNK) {
+            int from = i;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<BorrowRecord> chunk = new ArrayList<>();
+                for (int n = from; n < Math.min(loanCount, from + SEED_CHUNK); n++) {
+                    BorrowRecord borrowRecord = new BorrowRecord();
+                    borrowRecord.setBook(books.get(random.nextInt(books.size())));
+                    borrowRecord.setBorrower(borrowers.get(n % borrowerCount));
+                    borrowRecord.setBorrowDate(today.minusDays(random.nextInt(60)));
+                    borrowRecord.setDueDate(borrowRecord.getBorrowDate().plusDays(14));
+                    if (n >= borrowerCount * ACTIVE_LOANS_PER_BORROWER) {
+                        borrowRecord.setReturnDate(borrowRecord.getBorrowDate().plusDays(random.nextInt(20)));
+                    }
+                    chunk.add(borrowRecord);
+                }
+                borrowRecordRepository.saveAll(chunk);
+            });
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.geekyAnts.libraryManagement.benchmark;
+
+import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.entity.BorrowRecord;
+import com.geekyAnts.libraryManagement.entity.Borrower;
+import com.geekyAnts.libraryManagement.enums.MembershipType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mappings on detached entities, without a database
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MappingBenchmark {
+
+    private Book book;
+    private BorrowRecord borrowRecord;
+
+    @Setup
+    public void setUp() {
+        book = new Book();
+        book.setId(UUID.randomUUID());
+        book.setTitle("The Pragmatic Programmer");
+        book.setAuthor("Andrew Hunt");
+        book.setCategory("Technology");
+        book.setTotalCopies(5);
+        book.setAvailableCopies(3);
+
+        Borrower borrower = new Borrower();
+        borrower.setId(UUID.randomUUID());
+        borrower.setName("Jane Doe");
+        borrower.setEmail("jane.doe@example.com");
+        borrower.setMembershipType(MembershipType.PREMIUM);
+
+        borrowRecord = new BorrowRecord();
+        borrowRecord.setId(UUID.randomUUID());
+        borrowRecord.setBook(book);
+        borrowRecord.setBorrower(borrower);
+        borrowRecord.setBorrowDate(LocalDate.now().minusDays(20));
+        borrowRecord.setDueDate(LocalDate.now().minusDays(6));
+        borrowRecord.setFineAmount(BigDecimal.valueOf(3.0));
+    }
+
+    @Benchmark
+    public BookDTO bookDtoFromEntity() {
+        return BookDTO.fromEntity(book);
+    }
+
+    @Benchmark
+    public BorrowRecordDTO borrowRecordDtoFromEntity() {
+        return BorrowRecordDTO.fromEntity(borrowRecord);
+    }
+}
@@ -0,0 +1,70 @@
+package com.geekyAnts.libraryManagement.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs request handling, scheduled jobs and async work on virtual threads when
+ * {@code library.execution.mode=virtual}.
+ *
+ * With a thread per request, the connection pool becomes the only limit on concurrent JDBC
+ * work, so requests beyond {@code spring.datasource.hikari.maximum-pool-size} wait in the pool
+ * for up to its connection timeout. On runtimes without virtual threads the defaults are kept.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.execution.mode", havingValue = "virtual")
+@Slf4j
+public class ExecutionModeConfiguration {
+
+    private final Optional<ThreadFactory> requestThreads = VirtualThreads.factory("http-virtual-");
+
+    public ExecutionModeConfiguration(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxPoolSize) {
+        if (requestThreads.isPresent()) {
+            log.info("Execution mode: virtual threads, concurrency limited by {} pooled connections", maxPoolSize);
+        } else {
+            log.warn("Execution mode 'virtual' needs Java 21 or later (running {}), using platform threads",
+                    Runtime.version());
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> requestThreads.ifPresent(factory ->
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor(factory)));
+    }
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:1}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        VirtualThreads.factory("scheduling-virtual-").ifPresent(scheduler::setThreadFactory);
+        return scheduler;
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        Optional<ThreadFactory> asyncThreads = VirtualThreads.factory("task-virtual-");
+        if (asyncThreads.isPresent()) {
+            return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor(asyncThreads.get()));
+        }
+        // Same as the executor Spring Boot would have configured
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setThreadNamePrefix("task-");
+        executor.initialize();
+        return executor;
+    }
+}
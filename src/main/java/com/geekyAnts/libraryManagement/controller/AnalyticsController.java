@@ -1,6 +1,7 @@
 package com.geekyAnts.libraryManagement.controller;
 
 import com.geekyAnts.libraryManagement.dto.*;
+import com.geekyAnts.libraryManagement.enums.TrendingWindow;
 import com.geekyAnts.libraryManagement.service.AnalyticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +29,18 @@ public class AnalyticsController {
         return ResponseEntity.ok(ApiResponse.success(activity));
     }
     
+    @GetMapping("/fines-by-category")
+    public ResponseEntity<ApiResponse<List<CategoryFinesDTO>>> getFinesByCategory() {
+        List<CategoryFinesDTO> fines = analyticsService.getFinesByCategory();
+        return ResponseEntity.ok(ApiResponse.success(fines));
+    }
+    
+    @GetMapping("/loan-durations")
+    public ResponseEntity<ApiResponse<LoanDurationDTO>> getLoanDurations() {
+        LoanDurationDTO durations = analyticsService.getLoanDurations();
+        return ResponseEntity.ok(ApiResponse.success(durations));
+    }
+    
     @GetMapping("/books/similar/{id}")
     public ResponseEntity<ApiResponse<List<SimilarBookDTO>>> getSimilarBooks(@PathVariable UUID id) {
         try {
@@ -44,4 +57,38 @@ public class AnalyticsController {
         List<AvailabilitySummaryDTO> summary = analyticsService.getAvailabilitySummary();
         return ResponseEntity.ok(ApiResponse.success(summary));
     }
+    
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<TrendingDTO>> getTrending(
+            @RequestParam(defaultValue = "1h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        TrendingDTO trending = analyticsService.getTrending(TrendingWindow.fromLabel(window), limit);
+        return ResponseEntity.ok(ApiResponse.success(trending));
+    }
+    
+    @GetMapping("/approximate/books/{id}")
+    public ResponseEntity<ApiResponse<ApproximateBookStatsDTO>> getApproximateBookStats(@PathVariable UUID id) {
+        // Errors go to GlobalExceptionHandler: 400 for an unknown book, 503 while the sketches load
+        ApproximateBookStatsDTO stats = analyticsService.getApproximateBookStats(id);
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
+    @GetMapping("/approximate/heavy-hitters")
+    public ResponseEntity<ApiResponse<List<ApproximateBookStatsDTO>>> getApproximateHeavyHitters(
+            @RequestParam(defaultValue = "10") int limit) {
+        List<ApproximateBookStatsDTO> books = analyticsService.getApproximateHeavyHitters(limit);
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/approximate/categories")
+    public ResponseEntity<ApiResponse<List<ApproximateCategoryStatsDTO>>> getApproximateCategoryStats() {
+        List<ApproximateCategoryStatsDTO> categories = analyticsService.getApproximateCategoryStats();
+        return ResponseEntity.ok(ApiResponse.success(categories));
+    }
+    
+    @GetMapping("/inventory-contention")
+    public ResponseEntity<ApiResponse<InventoryContentionDTO>> getInventoryContention() {
+        InventoryContentionDTO contention = analyticsService.getInventoryContention();
+        return ResponseEntity.ok(ApiResponse.success(contention));
+    }
 }
@@ -2,7 +2,11 @@ package com.geekyAnts.libraryManagement.controller;
 
 import com.geekyAnts.libraryManagement.dto.ApiResponse;
 import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.BookImportResultDTO;
 import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BookSuggestionDTO;
+import com.geekyAnts.libraryManagement.dto.CursorPageDTO;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
 import com.geekyAnts.libraryManagement.service.BookService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,11 +15,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @RestController
@@ -24,6 +34,8 @@ import java.util.UUID;
 @Slf4j
 public class BookController {
     
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    
     private final BookService bookService;
     
     @PostMapping
@@ -47,6 +59,7 @@ public class BookController {
             @RequestParam(required = false) Boolean available,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "title") String sortBy,
@@ -56,7 +69,9 @@ public class BookController {
         Pageable pageable = PageRequest.of(page, size, sort);
         
         Page<BookDTO> books;
-        if (title != null || author != null) {
+        if (fuzzy && (title != null || author != null)) {
+            books = bookService.fuzzySearchBooks(title, author, pageable);
+        } else if (title != null || author != null) {
             books = bookService.searchBooks(title, author, pageable);
         } else if (category != null || available != null) {
             books = bookService.getBooksWithFilters(category, available, pageable);
@@ -67,6 +82,62 @@ public class BookController {
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
+    /**
+     * Imports a catalog streamed as CSV (with a header line) or NDJSON, merging copies of books
+     * that already exist. Rows that fail validation are skipped and reported.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ApiResponse<BookImportResultDTO>> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        DataFormat format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)
+                ? DataFormat.CSV
+                : DataFormat.NDJSON;
+        BookImportResultDTO result = bookService.importBooks(body, format);
+        return ResponseEntity.ok(ApiResponse.success("Import completed", result));
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        DataFormat dataFormat = DataFormat.fromName(format);
+        StreamingResponseBody body = out -> bookService.exportBooks(out, dataFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(dataFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("books." + dataFormat.name().toLowerCase(Locale.ROOT)).build().toString())
+                .body(body);
+    }
+    
+    /**
+     * Cursor-paged listing: pass back nextCursor from the previous page to get the following one.
+     * No total is counted unless includeTotal is set.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPageDTO<BookDTO>>> scrollBooks(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "title") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        Sort.Order order = new Sort.Order(Sort.Direction.fromString(sortDir), sortBy);
+        CursorPageDTO<BookDTO> books = bookService.scrollBooks(category, available, title, author,
+                order, cursor, size, includeTotal);
+        return ResponseEntity.ok(ApiResponse.success(books));
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<BookSuggestionDTO>>> getSuggestions(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<BookSuggestionDTO> suggestions = bookService.getSuggestions(q, limit);
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<BookDTO>> getBookById(@PathVariable UUID id) {
         return bookService.getBookById(id)
@@ -1,17 +1,26 @@
 package com.geekyAnts.libraryManagement.controller;
 
 import com.geekyAnts.libraryManagement.dto.ApiResponse;
+import com.geekyAnts.libraryManagement.dto.BatchBorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BatchResultDTO;
+import com.geekyAnts.libraryManagement.dto.BatchReturnRequestDTO;
 import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
 import com.geekyAnts.libraryManagement.dto.BorrowRequestDTO;
 import com.geekyAnts.libraryManagement.dto.ReturnRequestDTO;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
 import com.geekyAnts.libraryManagement.service.BorrowService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @RestController
@@ -44,6 +53,30 @@ public class BorrowController {
         }
     }
     
+    @PostMapping("/borrow/batch")
+    public ResponseEntity<ApiResponse<BatchResultDTO>> borrowBooks(@Valid @RequestBody BatchBorrowRequestDTO request) {
+        try {
+            BatchResultDTO result = borrowService.borrowBooks(request);
+            return ResponseEntity.ok(ApiResponse.success(
+                    result.getSucceeded() + " of " + result.getRequested() + " books borrowed", result));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/return/batch")
+    public ResponseEntity<ApiResponse<BatchResultDTO>> returnBooks(@Valid @RequestBody BatchReturnRequestDTO request) {
+        try {
+            BatchResultDTO result = borrowService.returnBooks(request);
+            return ResponseEntity.ok(ApiResponse.success(
+                    result.getSucceeded() + " of " + result.getRequested() + " books returned", result));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/records/active")
     public ResponseEntity<ApiResponse<List<BorrowRecordDTO>>> getActiveBorrowRecords() {
         List<BorrowRecordDTO> records = borrowService.getActiveBorrowRecords();
@@ -56,6 +89,17 @@ public class BorrowController {
         return ResponseEntity.ok(ApiResponse.success(records));
     }
     
+    @GetMapping("/records/export")
+    public ResponseEntity<StreamingResponseBody> exportBorrowRecords(@RequestParam(defaultValue = "ndjson") String format) {
+        DataFormat dataFormat = DataFormat.fromName(format);
+        StreamingResponseBody body = out -> borrowService.exportBorrowRecords(out, dataFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(dataFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("borrow-records." + dataFormat.name().toLowerCase(Locale.ROOT)).build().toString())
+                .body(body);
+    }
+    
     @GetMapping("/records/borrower/{borrowerId}")
     public ResponseEntity<ApiResponse<List<BorrowRecordDTO>>> getBorrowHistoryByBorrower(@PathVariable UUID borrowerId) {
         List<BorrowRecordDTO> records = borrowService.getBorrowHistoryByBorrower(borrowerId);
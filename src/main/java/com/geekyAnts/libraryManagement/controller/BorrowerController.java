@@ -8,6 +8,8 @@ import com.geekyAnts.libraryManagement.service.BorrowerService;
 import com.geekyAnts.libraryManagement.service.BorrowService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -61,9 +63,11 @@ public class BorrowerController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<BorrowerDTO>>> searchBorrowers(
-            @RequestParam String searchTerm) {
-        List<BorrowerDTO> borrowers = borrowerService.searchBorrowers(searchTerm);
+    public ResponseEntity<ApiResponse<Page<BorrowerDTO>>> searchBorrowers(
+            @RequestParam String searchTerm,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        Page<BorrowerDTO> borrowers = borrowerService.searchBorrowers(searchTerm, PageRequest.of(page, size));
         return ResponseEntity.ok(ApiResponse.success(borrowers));
     }
     
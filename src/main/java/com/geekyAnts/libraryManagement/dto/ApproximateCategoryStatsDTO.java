@@ -0,0 +1,13 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApproximateCategoryStatsDTO {
+    private String category;
+    private EstimateDTO distinctBorrowers;
+}
@@ -0,0 +1,23 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBorrowRequestDTO {
+    @NotNull(message = "Borrower ID is required")
+    private UUID borrowerId;
+    
+    @NotEmpty(message = "At least one book ID is required")
+    @Size(max = 50, message = "A batch can contain at most 50 books")
+    private List<@NotNull(message = "Book ID is required") UUID> bookIds;
+}
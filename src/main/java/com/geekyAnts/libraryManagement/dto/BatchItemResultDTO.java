@@ -0,0 +1,25 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+    private UUID id;
+    private boolean success;
+    private String message;
+    private BorrowRecordDTO record;
+    
+    public static BatchItemResultDTO success(UUID id, String message, BorrowRecordDTO record) {
+        return new BatchItemResultDTO(id, true, message, record);
+    }
+    
+    public static BatchItemResultDTO failure(UUID id, String message) {
+        return new BatchItemResultDTO(id, false, message, null);
+    }
+}
@@ -0,0 +1,22 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultDTO {
+    private Integer requested;
+    private Integer succeeded;
+    private Integer failed;
+    private List<BatchItemResultDTO> items;
+    
+    public static BatchResultDTO of(List<BatchItemResultDTO> items) {
+        int succeeded = (int) items.stream().filter(BatchItemResultDTO::isSuccess).count();
+        return new BatchResultDTO(items.size(), succeeded, items.size() - succeeded, items);
+    }
+}
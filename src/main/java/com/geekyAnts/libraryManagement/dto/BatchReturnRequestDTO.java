@@ -0,0 +1,20 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchReturnRequestDTO {
+    @NotEmpty(message = "At least one borrow record ID is required")
+    @Size(max = 50, message = "A batch can contain at most 50 borrow records")
+    private List<@NotNull(message = "Borrow record ID is required") UUID> borrowRecordIds;
+}
@@ -0,0 +1,21 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+    private Long rowsRead;
+    private Long booksCreated;
+    private Long booksUpdated;
+    private Long rowsRejected;
+    private Integer chunks;
+    private Long elapsedMs;
+    // The first rejected rows, with their line numbers
+    private List<String> errors;
+}
@@ -0,0 +1,15 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import com.geekyAnts.libraryManagement.enums.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO {
+    private String text;
+    private SuggestionType type;
+    private Long borrowCount;
+}
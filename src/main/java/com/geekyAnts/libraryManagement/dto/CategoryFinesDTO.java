@@ -0,0 +1,18 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryFinesDTO {
+    private String category;
+    private Long loans;
+    private Long finedLoans;
+    private BigDecimal totalFines;
+    private BigDecimal outstandingFines;
+}
@@ -0,0 +1,15 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryContentionDTO {
+    private Integer trackedBooks;
+    private Long ledgerRejections;
+    private Long conditionalUpdateMisses;
+    private Long versionConflicts;
+}
@@ -0,0 +1,15 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanDurationBucketDTO {
+    private Integer fromDays;
+    // Null for the last, open-ended bucket
+    private Integer toDays;
+    private Long loans;
+}
@@ -0,0 +1,20 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanDurationDTO {
+    private Long returnedLoans;
+    private Double averageDays;
+    private Integer medianDays;
+    private Integer p90Days;
+    private Integer p99Days;
+    private Integer maxDays;
+    private List<LoanDurationBucketDTO> buckets;
+}
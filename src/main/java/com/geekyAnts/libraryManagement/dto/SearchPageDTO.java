@@ -0,0 +1,24 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A page of search results whose total may be a lower bound. When the search stopped at one of
+ * its limits, totalExact is false, totalElements only counts the matches found, and pages past
+ * them come back empty even though more books may match.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class SearchPageDTO<T> extends PageImpl<T> {
+    private final boolean totalExact;
+
+    public SearchPageDTO(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+}
@@ -0,0 +1,19 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingBookDTO {
+    private UUID bookId;
+    private String title;
+    private String author;
+    private String category;
+    private Long borrows;
+    private Long returns;
+}
@@ -0,0 +1,14 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingCategoryDTO {
+    private String category;
+    private Long borrows;
+    private Long returns;
+}
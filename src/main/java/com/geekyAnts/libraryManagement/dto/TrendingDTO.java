@@ -0,0 +1,16 @@
+package com.geekyAnts.libraryManagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingDTO {
+    private String window;
+    private List<TrendingBookDTO> books;
+    private List<TrendingCategoryDTO> categories;
+}
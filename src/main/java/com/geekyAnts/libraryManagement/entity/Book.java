@@ -14,7 +14,12 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        // Category listings and the fine accrual subquery
+        @Index(name = "idx_books_category", columnList = "category, isDeleted"),
+        // Duplicate check when adding a book; also serves title-ordered listings
+        @Index(name = "idx_books_title_author", columnList = "title, author")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -53,6 +58,9 @@ public class Book {
     @Column(nullable = false)
     private Boolean isDeleted = false;
     
+    @Version
+    private Long version;
+    
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<BorrowRecord> borrowRecords = new ArrayList<>();
     
@@ -13,7 +13,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "borrow_records")
+@Table(name = "borrow_records", indexes = {
+        // A borrower's loans and history
+        @Index(name = "idx_borrow_records_borrower", columnList = "borrower_id, returnDate, isActive"),
+        // Outstanding loans (return_date IS NULL) by due date, for the overdue and fine jobs
+        @Index(name = "idx_borrow_records_outstanding", columnList = "returnDate, dueDate")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,6 +52,13 @@ public class BorrowRecord {
     @Column(precision = 10, scale = 2)
     private BigDecimal fineAmount = BigDecimal.ZERO;
     
+    private LocalDate fineAccruedThrough;
+    
+    // Whether the nightly overdue scan has flagged the loan; kept after the return as a record that it
+    // ran late. isOverdue() is the live check against today's date.
+    @Column(nullable = false)
+    private Boolean flaggedOverdue = false;
+    
     @Column(nullable = false)
     private Boolean isActive = true;
     
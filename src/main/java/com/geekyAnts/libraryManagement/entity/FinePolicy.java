@@ -14,6 +14,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "fine_policies")
+@EntityListeners(FinePolicyListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
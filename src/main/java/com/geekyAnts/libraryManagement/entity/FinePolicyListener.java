@@ -0,0 +1,25 @@
+package com.geekyAnts.libraryManagement.entity;
+
+import com.geekyAnts.libraryManagement.service.FineRateTable;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Keeps the cached fine rates in step with the fine_policies table
+ */
+@RequiredArgsConstructor
+public class FinePolicyListener {
+
+    // Resolved lazily: the listener is created while the EntityManagerFactory is still being built
+    private final ObjectProvider<FineRateTable> fineRateTable;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(FinePolicy finePolicy) {
+        fineRateTable.getObject().reloadAfterCommit();
+    }
+}
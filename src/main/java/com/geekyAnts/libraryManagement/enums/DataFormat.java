@@ -0,0 +1,28 @@
+package com.geekyAnts.libraryManagement.enums;
+
+public enum DataFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+    
+    private final String mediaType;
+    
+    DataFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+    
+    public String getMediaType() {
+        return mediaType;
+    }
+    
+    /**
+     * The format with the given name, ignoring case, as in a format=csv request parameter
+     */
+    public static DataFormat fromName(String name) {
+        for (DataFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format: " + name + "; expected csv or ndjson");
+    }
+}
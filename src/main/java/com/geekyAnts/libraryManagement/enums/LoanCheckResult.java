@@ -0,0 +1,7 @@
+package com.geekyAnts.libraryManagement.enums;
+
+public enum LoanCheckResult {
+    RESERVED,
+    LIMIT_REACHED,
+    ALREADY_BORROWED
+}
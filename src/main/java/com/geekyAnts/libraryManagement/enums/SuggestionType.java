@@ -0,0 +1,6 @@
+package com.geekyAnts.libraryManagement.enums;
+
+public enum SuggestionType {
+    TITLE,
+    AUTHOR
+}
@@ -0,0 +1,43 @@
+package com.geekyAnts.libraryManagement.enums;
+
+import java.util.concurrent.TimeUnit;
+
+public enum TrendingWindow {
+    FIVE_MINUTES("5m", TimeUnit.SECONDS.toMillis(30), 10),
+    HOUR("1h", TimeUnit.MINUTES.toMillis(5), 12),
+    DAY("1d", TimeUnit.HOURS.toMillis(1), 24);
+    
+    private final String label;
+    private final long bucketMillis;
+    private final int buckets;
+    
+    TrendingWindow(String label, long bucketMillis, int buckets) {
+        this.label = label;
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+    
+    public int getBuckets() {
+        return buckets;
+    }
+    
+    /**
+     * The window with the given label, as in a window=1h request parameter
+     */
+    public static TrendingWindow fromLabel(String label) {
+        for (TrendingWindow window : values()) {
+            if (window.label.equalsIgnoreCase(label)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown window: " + label + "; expected 5m, 1h or 1d");
+    }
+}
@@ -0,0 +1,12 @@
+package com.geekyAnts.libraryManagement.exception;
+
+/**
+ * The server cannot answer yet, for instance while an in-memory structure is still loading.
+ * Reported as 503 so clients retry instead of treating it as their own mistake.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
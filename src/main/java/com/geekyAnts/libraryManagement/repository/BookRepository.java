@@ -1,19 +1,27 @@
 package com.geekyAnts.libraryManagement.repository;
 
+import com.geekyAnts.libraryManagement.dto.AvailabilitySummaryDTO;
+import com.geekyAnts.libraryManagement.dto.SimilarBookDTO;
 import com.geekyAnts.libraryManagement.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, UUID> {
+public interface BookRepository extends JpaRepository<Book, UUID>, BookRepositoryCustom {
     
     Page<Book> findByIsDeletedFalse(Pageable pageable);
     
@@ -33,15 +41,55 @@ public interface BookRepository extends JpaRepository<Book, UUID> {
                           @Param("author") String author, 
                           Pageable pageable);
     
+    @Query("SELECT b.id, b.title, b.author, b.category, b.isAvailable FROM Book b WHERE b.isDeleted = false")
+    List<Object[]> findSearchableBooks();
+    
     Optional<Book> findByIdAndIsDeletedFalse(UUID id);
     
+    List<Book> findByIdInAndIsDeletedFalse(Collection<UUID> ids);
+    
+    List<Book> findByTitleInAndIsDeletedFalse(Collection<String> titles);
+    
     @Query("SELECT b FROM Book b WHERE b.isDeleted = false AND b.title = :title AND b.author = :author")
     Optional<Book> findByTitleAndAuthor(@Param("title") String title, @Param("author") String author);
     
     @Query("SELECT b FROM Book b WHERE b.isDeleted = false AND b.availableCopies > 0")
     List<Book> findAvailableBooks();
     
-    @Query("SELECT b.category, COUNT(b) as total, SUM(b.availableCopies) as available " +
+    @Query("SELECT new com.geekyAnts.libraryManagement.dto.AvailabilitySummaryDTO(" +
+           "b.category, COUNT(b), SUM(b.availableCopies)) " +
            "FROM Book b WHERE b.isDeleted = false GROUP BY b.category")
-    List<Object[]> getAvailabilitySummary();
+    List<AvailabilitySummaryDTO> getAvailabilitySummary();
+    
+    @Query("SELECT new com.geekyAnts.libraryManagement.dto.SimilarBookDTO(" +
+           "b.id, b.title, b.author, b.category, b.availableCopies, b.isAvailable) " +
+           "FROM Book b WHERE b.isDeleted = false AND b.id IN :ids")
+    List<SimilarBookDTO> findSimilarBooksByIds(@Param("ids") Collection<UUID> ids);
+    
+    @Query("SELECT b.id, b.totalCopies, b.availableCopies FROM Book b WHERE b.isDeleted = false")
+    List<Object[]> findInventorySnapshot();
+    
+    @Query("SELECT b FROM Book b WHERE b.isDeleted = false ORDER BY b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Book> streamCatalog();
+    
+    @Query("SELECT b.id, b.availableCopies FROM Book b WHERE b.isDeleted = false AND b.id IN :ids")
+    List<Object[]> findAvailableCopiesByIds(@Param("ids") Collection<UUID> ids);
+    
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = :availableCopies, b.isAvailable = :isAvailable, " +
+           "b.version = b.version + 1 WHERE b.id = :id")
+    int writeAvailableCopies(@Param("id") UUID id, 
+                             @Param("availableCopies") int availableCopies, 
+                             @Param("isAvailable") boolean isAvailable);
+    
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies + :change, " +
+           "b.isAvailable = CASE WHEN b.availableCopies + :change > 0 THEN true ELSE false END, " +
+           "b.version = b.version + 1 " +
+           "WHERE b.id = :id AND b.isDeleted = false AND b.availableCopies + :change >= 0")
+    int changeAvailableCopies(@Param("id") UUID id, @Param("change") int change);
 }
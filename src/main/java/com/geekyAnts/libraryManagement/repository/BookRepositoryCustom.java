@@ -0,0 +1,24 @@
+package com.geekyAnts.libraryManagement.repository;
+
+import com.geekyAnts.libraryManagement.entity.Book;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keyset listing of books, for queries Spring Data cannot derive. Filters left null are ignored;
+ * category and available match exactly and title and author match as in searchBooks.
+ */
+public interface BookRepositoryCustom {
+    
+    /**
+     * Up to limit books in the given order, tie-broken by id, starting after the book with the given
+     * sort value and id. Starts from the beginning when afterId is null. Seeks instead of skipping
+     * rows, so every page costs the same however deep it is.
+     */
+    List<Book> findBooksAfter(String category, Boolean available, String title, String author,
+                              Sort.Order order, Comparable<?> afterValue, UUID afterId, int limit);
+    
+    long countBooks(String category, Boolean available, String title, String author);
+}
@@ -0,0 +1,93 @@
+package com.geekyAnts.libraryManagement.repository;
+
+import com.geekyAnts.libraryManagement.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Book> findBooksAfter(String category, Boolean available, String title, String author,
+                                     Sort.Order order, Comparable<?> afterValue, UUID afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> book = query.from(Book.class);
+        
+        List<Predicate> predicates = filters(cb, book, category, available, title, author);
+        if (afterId != null) {
+            predicates.add(seekAfter(cb, book, order, afterValue, afterId));
+        }
+        Path<?> sortKey = book.get(order.getProperty());
+        Path<?> id = book.get("id");
+        query.select(book)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(order.isAscending()
+                        ? List.of(cb.asc(sortKey), cb.asc(id))
+                        : List.of(cb.desc(sortKey), cb.desc(id)));
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public long countBooks(String category, Boolean available, String title, String author) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book))
+                .where(filters(cb, book, category, available, title, author).toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+    
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<Book> book,
+                                           String category, Boolean available, String title, String author) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isFalse(book.get("isDeleted")));
+        if (category != null) {
+            predicates.add(cb.equal(book.get("category"), category));
+        }
+        if (available != null) {
+            predicates.add(cb.equal(book.get("isAvailable"), available));
+        }
+        if (title != null) {
+            predicates.add(cb.like(cb.lower(book.get("title")), cb.lower(cb.literal("%" + title + "%"))));
+        }
+        if (author != null) {
+            predicates.add(cb.like(cb.lower(book.get("author")), cb.lower(cb.literal("%" + author + "%"))));
+        }
+        return predicates;
+    }
+    
+    /**
+     * (sortKey, id) > (value, afterId) in the direction of the order. The redundant range on the sort
+     * column alone lets the database seek an index on it; the OR only refines the first key value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate seekAfter(CriteriaBuilder cb, Root<Book> book, Sort.Order order,
+                                       Comparable value, UUID afterId) {
+        Path<Comparable> sortKey = book.get(order.getProperty());
+        Path<UUID> id = book.get("id");
+        if (order.isAscending()) {
+            return cb.and(
+                    cb.greaterThanOrEqualTo(sortKey, value),
+                    cb.or(cb.greaterThan(sortKey, value), cb.greaterThan(id, afterId)));
+        }
+        return cb.and(
+                cb.lessThanOrEqualTo(sortKey, value),
+                cb.or(cb.lessThan(sortKey, value), cb.lessThan(id, afterId)));
+    }
+}
@@ -1,15 +1,25 @@
 package com.geekyAnts.libraryManagement.repository;
 
+import com.geekyAnts.libraryManagement.dto.BorrowerActivityDTO;
 import com.geekyAnts.libraryManagement.entity.BorrowRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, UUID> {
@@ -17,15 +27,48 @@ public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, UUID
     @Query("SELECT br FROM BorrowRecord br WHERE br.isActive = true AND br.returnDate IS NULL")
     List<BorrowRecord> findActiveBorrowRecords();
     
-    @Query("SELECT br FROM BorrowRecord br WHERE br.isActive = true AND " +
-           "br.returnDate IS NULL AND br.dueDate < CURRENT_DATE")
-    List<BorrowRecord> findOverdueBorrowRecords();
-    
     @Query("SELECT br FROM BorrowRecord br WHERE br.isActive = true AND " +
            "br.borrower.id = :borrowerId AND br.book.id = :bookId AND br.returnDate IS NULL")
     Optional<BorrowRecord> findActiveBorrowRecordByBorrowerAndBook(@Param("borrowerId") UUID borrowerId, 
                                                                   @Param("bookId") UUID bookId);
     
+    @Query("SELECT br.book.id FROM BorrowRecord br WHERE br.isActive = true AND " +
+           "br.borrower.id = :borrowerId AND br.returnDate IS NULL")
+    List<UUID> findActiveBookIdsByBorrower(@Param("borrowerId") UUID borrowerId);
+    
+    @Query("SELECT br.borrower.id, br.book.id FROM BorrowRecord br WHERE br.isActive = true AND br.returnDate IS NULL")
+    List<Object[]> findActiveLoanPairs();
+    
+    @Query("SELECT br.borrower.id, br.book.id FROM BorrowRecord br WHERE br.isActive = true ORDER BY br.createdAt")
+    List<Object[]> findBorrowPairs();
+    
+    @Query("SELECT br.id, br.borrower.id, br.book.id, br.book.category FROM BorrowRecord br WHERE br.isActive = true")
+    List<Object[]> findBorrowEvents();
+    
+    @Query("SELECT br.id, br.borrower.id, br.book.id, br.book.category FROM BorrowRecord br " +
+           "WHERE br.isActive = true AND br.createdAt > :since")
+    List<Object[]> findBorrowEventsSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT br FROM BorrowRecord br JOIN FETCH br.book JOIN FETCH br.borrower WHERE br.id IN :ids")
+    List<BorrowRecord> findWithDetailsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    @Query("SELECT br FROM BorrowRecord br JOIN FETCH br.book JOIN FETCH br.borrower WHERE br.isActive = true")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<BorrowRecord> streamBorrowHistory();
+    
+    @Query("SELECT br.id, br.book.id, br.borrower.id, br.book.category, br.borrowDate, br.dueDate, " +
+           "br.returnDate, br.fineAmount FROM BorrowRecord br WHERE br.isActive = true")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamHistoryColumns();
+    
+    @Query("SELECT br.book.id, br.borrower.id, br.fineAmount FROM BorrowRecord br WHERE br.isActive = true AND " +
+           "br.returnDate IS NULL AND br.dueDate < :day AND br.fineAccruedThrough = :day")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamFinesAccruedOn(@Param("day") LocalDate day);
+    
     @Query("SELECT br FROM BorrowRecord br WHERE br.isActive = true AND " +
            "br.borrower.id = :borrowerId ORDER BY br.borrowDate DESC")
     List<BorrowRecord> findBorrowHistoryByBorrower(@Param("borrowerId") UUID borrowerId);
@@ -34,12 +77,13 @@ public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, UUID
            "WHERE br.isActive = true GROUP BY br.book.id ORDER BY borrowCount DESC")
     List<Object[]> findTopBorrowedBooks();
     
-    @Query("SELECT br.borrower.id, COUNT(br) as totalBorrowed, " +
-           "SUM(CASE WHEN br.returnDate IS NULL AND br.dueDate < CURRENT_DATE THEN 1 ELSE 0 END) as overdueCount, " +
-           "SUM(br.fineAmount) as totalFines " +
-           "FROM BorrowRecord br WHERE br.isActive = true " +
-           "GROUP BY br.borrower.id")
-    List<Object[]> findBorrowerActivity();
+    @Query("SELECT new com.geekyAnts.libraryManagement.dto.BorrowerActivityDTO(" +
+           "b.id, b.name, b.email, COUNT(br), " +
+           "SUM(CASE WHEN br.returnDate IS NULL AND br.dueDate < CURRENT_DATE THEN 1L ELSE 0L END), " +
+           "SUM(br.fineAmount)) " +
+           "FROM BorrowRecord br JOIN br.borrower b WHERE br.isActive = true " +
+           "GROUP BY b.id, b.name, b.email")
+    List<BorrowerActivityDTO> findBorrowerActivity();
     
     @Query("SELECT COUNT(br) FROM BorrowRecord br WHERE br.isActive = true AND " +
            "br.borrower.id = :borrowerId AND br.returnDate IS NULL")
@@ -48,4 +92,44 @@ public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, UUID
     @Query("SELECT br FROM BorrowRecord br WHERE br.isActive = true AND " +
            "br.returnDate IS NULL AND br.dueDate < :today")
     List<BorrowRecord> findOverdueRecords(@Param("today") LocalDate today);
+    
+    @Query("SELECT br.id FROM BorrowRecord br WHERE br.isActive = true AND br.returnDate IS NULL AND " +
+           "br.dueDate < :today AND br.flaggedOverdue = false AND br.id > :afterId ORDER BY br.id")
+    List<UUID> findUnflaggedOverdueIdsAfter(@Param("today") LocalDate today, 
+                                            @Param("afterId") UUID afterId, 
+                                            Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.flaggedOverdue = true WHERE br.id IN :ids AND br.flaggedOverdue = false")
+    int flagOverdue(@Param("ids") Collection<UUID> ids);
+    
+    @Query("SELECT br.id, br.dueDate FROM BorrowRecord br WHERE br.isActive = true AND br.returnDate IS NULL")
+    List<Object[]> findOutstandingDueDates();
+    
+    @Query("SELECT br.book.id, COUNT(br) FROM BorrowRecord br WHERE br.isActive = true AND " +
+           "br.returnDate IS NULL GROUP BY br.book.id")
+    List<Object[]> countActiveBorrowRecordsByBook();
+    
+    @Query("SELECT DISTINCT br.dueDate FROM BorrowRecord br WHERE br.isActive = true AND " +
+           "br.returnDate IS NULL AND br.dueDate < :today AND " +
+           "(br.fineAccruedThrough IS NULL OR br.fineAccruedThrough < :today) ORDER BY br.dueDate")
+    List<LocalDate> findDueDatesPendingFineAccrual(@Param("today") LocalDate today);
+    
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.fineAmount = :fineAmount, br.fineAccruedThrough = :today " +
+           "WHERE br.isActive = true AND br.returnDate IS NULL AND br.dueDate = :dueDate AND " +
+           "(br.fineAccruedThrough IS NULL OR br.fineAccruedThrough < :today) AND " +
+           "br.book.id IN (SELECT b.id FROM Book b WHERE b.category = :category)")
+    int accrueFinesForCategory(@Param("dueDate") LocalDate dueDate, 
+                               @Param("today") LocalDate today, 
+                               @Param("category") String category, 
+                               @Param("fineAmount") BigDecimal fineAmount);
+    
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.fineAmount = :fineAmount, br.fineAccruedThrough = :today " +
+           "WHERE br.isActive = true AND br.returnDate IS NULL AND br.dueDate = :dueDate AND " +
+           "(br.fineAccruedThrough IS NULL OR br.fineAccruedThrough < :today)")
+    int accrueRemainingFines(@Param("dueDate") LocalDate dueDate, 
+                             @Param("today") LocalDate today, 
+                             @Param("fineAmount") BigDecimal fineAmount);
 }
@@ -1,6 +1,8 @@
 package com.geekyAnts.libraryManagement.repository;
 
 import com.geekyAnts.libraryManagement.entity.Borrower;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -29,5 +31,8 @@ public interface BorrowerRepository extends JpaRepository<Borrower, UUID> {
     @Query("SELECT b FROM Borrower b WHERE b.isActive = true AND " +
            "(LOWER(b.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(b.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    List<Borrower> searchBorrowers(@Param("searchTerm") String searchTerm);
+    Page<Borrower> searchBorrowers(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    @Query("SELECT b.id, b.name, b.email FROM Borrower b WHERE b.isActive = true")
+    List<Object[]> findSearchableBorrowers();
 }
@@ -12,4 +12,6 @@ import java.util.UUID;
 public interface FinePolicyRepository extends JpaRepository<FinePolicy, UUID> {
     
     Optional<FinePolicy> findByCategoryAndIsActiveTrue(String category);
+    
+    List<FinePolicy> findByIsActiveTrue();
 }
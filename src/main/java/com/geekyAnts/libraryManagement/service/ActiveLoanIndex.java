@@ -0,0 +1,214 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.enums.LoanCheckResult;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index from borrower to the books they currently have out.
+ *
+ * Replaces the per-borrow COUNT and duplicate-loan queries with lookups under a lock striped by
+ * borrower, so two concurrent borrows by the same borrower cannot both slip under the limit.
+ * Rebuilt from the active borrow records at startup and checked against them on a schedule.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActiveLoanIndex {
+
+    private static final int STRIPES = 64;
+
+    private final BorrowRecordRepository borrowRecordRepository;
+
+    private final Map<UUID, Set<UUID>> loansByBorrower = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = createStripes();
+    private volatile boolean loaded;
+    private Set<UUID> suspectBorrowers = Collections.emptySet();
+
+    /**
+     * Rebuilds the index once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<UUID, Set<UUID>> activeLoans = loadActiveLoans();
+        activeLoans.forEach((borrowerId, bookIds) -> {
+            ReentrantLock lock = stripeFor(borrowerId);
+            lock.lock();
+            try {
+                loansByBorrower.computeIfAbsent(borrowerId, id -> new HashSet<>()).addAll(bookIds);
+            } finally {
+                lock.unlock();
+            }
+        });
+        loaded = true;
+        log.info("Active loan index loaded for {} borrowers", activeLoans.size());
+    }
+
+    /**
+     * Records a new loan unless the borrower is at their limit or already has the book.
+     * Undone if the transaction rolls back.
+     */
+    public LoanCheckResult tryAdd(UUID borrowerId, UUID bookId, int maxBorrowLimit) {
+        ReentrantLock lock = stripeFor(borrowerId);
+        lock.lock();
+        try {
+            Set<UUID> bookIds = loansFor(borrowerId);
+            if (bookIds.size() >= maxBorrowLimit) {
+                return LoanCheckResult.LIMIT_REACHED;
+            }
+            if (!bookIds.add(bookId)) {
+                return LoanCheckResult.ALREADY_BORROWED;
+            }
+        } finally {
+            lock.unlock();
+        }
+        TransactionHooks.afterRollback(() -> removeLoan(borrowerId, bookId));
+        return LoanCheckResult.RESERVED;
+    }
+
+    /**
+     * Removes a loan once the book is returned. Restored if the transaction rolls back.
+     */
+    public void remove(UUID borrowerId, UUID bookId) {
+        if (removeLoan(borrowerId, bookId)) {
+            TransactionHooks.afterRollback(() -> addLoan(borrowerId, bookId));
+        }
+    }
+
+    public int countActiveLoans(UUID borrowerId) {
+        ReentrantLock lock = stripeFor(borrowerId);
+        lock.lock();
+        try {
+            return loansFor(borrowerId).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compares the index with the borrow_records table. A difference can be a borrow or return that
+     * has not committed yet, so a borrower is only repaired when it differs on two runs in a row.
+     */
+    @Scheduled(fixedDelayString = "${library.loans.verify-interval-ms:300000}",
+               initialDelayString = "${library.loans.verify-interval-ms:300000}")
+    public void verify() {
+        if (!loaded) {
+            return;
+        }
+
+        try {
+            Map<UUID, Set<UUID>> expected = loadActiveLoans();
+            Set<UUID> borrowerIds = new HashSet<>(expected.keySet());
+            borrowerIds.addAll(loansByBorrower.keySet());
+
+            Set<UUID> mismatched = new HashSet<>();
+            int repaired = 0;
+            for (UUID borrowerId : borrowerIds) {
+                Set<UUID> expectedBooks = expected.getOrDefault(borrowerId, Collections.emptySet());
+                ReentrantLock lock = stripeFor(borrowerId);
+                lock.lock();
+                try {
+                    Set<UUID> indexedBooks = loansByBorrower.getOrDefault(borrowerId, Collections.emptySet());
+                    if (indexedBooks.equals(expectedBooks)) {
+                        continue;
+                    }
+                    if (suspectBorrowers.contains(borrowerId)) {
+                        log.warn("Repairing active loan index for borrower {}: index={}, table={}",
+                                borrowerId, indexedBooks, expectedBooks);
+                        if (expectedBooks.isEmpty()) {
+                            loansByBorrower.remove(borrowerId);
+                        } else {
+                            loansByBorrower.put(borrowerId, new HashSet<>(expectedBooks));
+                        }
+                        repaired++;
+                    } else {
+                        mismatched.add(borrowerId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            suspectBorrowers = mismatched;
+            log.info("Verified active loan index for {} borrowers: {} repaired, {} pending recheck",
+                    borrowerIds.size(), repaired, mismatched.size());
+        } catch (Exception e) {
+            log.error("Error verifying active loan index: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<UUID, Set<UUID>> loadActiveLoans() {
+        Map<UUID, Set<UUID>> activeLoans = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.findActiveLoanPairs()) {
+            activeLoans.computeIfAbsent((UUID) row[0], id -> new HashSet<>()).add((UUID) row[1]);
+        }
+        return activeLoans;
+    }
+
+    /**
+     * Must be called holding the borrower's stripe lock
+     */
+    private Set<UUID> loansFor(UUID borrowerId) {
+        Set<UUID> bookIds = loansByBorrower.get(borrowerId);
+        if (bookIds == null) {
+            // Until the index is loaded, fall back to the table for borrowers it has not seen
+            bookIds = loaded
+                    ? new HashSet<>()
+                    : new HashSet<>(borrowRecordRepository.findActiveBookIdsByBorrower(borrowerId));
+            loansByBorrower.put(borrowerId, bookIds);
+        }
+        return bookIds;
+    }
+
+    private void addLoan(UUID borrowerId, UUID bookId) {
+        ReentrantLock lock = stripeFor(borrowerId);
+        lock.lock();
+        try {
+            loansFor(borrowerId).add(bookId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean removeLoan(UUID borrowerId, UUID bookId) {
+        ReentrantLock lock = stripeFor(borrowerId);
+        lock.lock();
+        try {
+            Set<UUID> bookIds = loansByBorrower.get(borrowerId);
+            if (bookIds == null || !bookIds.remove(bookId)) {
+                return false;
+            }
+            if (bookIds.isEmpty()) {
+                loansByBorrower.remove(borrowerId);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID borrowerId) {
+        return stripes[(borrowerId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static ReentrantLock[] createStripes() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
@@ -2,14 +2,29 @@ package com.geekyAnts.libraryManagement.service;
 
 import com.geekyAnts.libraryManagement.dto.*;
 import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.TrendingWindow;
+import com.geekyAnts.libraryManagement.exception.ServiceUnavailableException;
 import com.geekyAnts.libraryManagement.repository.BookRepository;
 import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,90 +32,253 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class AnalyticsService {
     
+    private static final int SIMILAR_BOOKS = 5;
+    private static final int MAX_TRENDING_BOOKS = 100;
+    private static final int MAX_HEAVY_HITTERS = 100;
+    // Loan durations are reported by week for the first eight weeks, then in one open-ended bucket
+    private static final int DURATION_BUCKET_DAYS = 7;
+    private static final int DURATION_BUCKETS = 8;
+    
     private final BorrowRecordRepository borrowRecordRepository;
     private final BookRepository bookRepository;
+    private final BorrowerRepository borrowerRepository;
+    private final InventoryLedger inventoryLedger;
+    private final CoBorrowIndex coBorrowIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final BorrowLeaderboard borrowLeaderboard;
+    private final BorrowRateTracker borrowRateTracker;
+    private final BorrowSketches borrowSketches;
+    private final BorrowHistoryColumns borrowHistoryColumns;
+    private final BorrowerSearchIndex borrowerSearchIndex;
     
+    /**
+     * Ranked from the leaderboard in memory; reads only the K books it returns
+     */
     public List<TopBorrowedBookDTO> getTopBorrowedBooks() {
-        List<Object[]> results = borrowRecordRepository.findTopBorrowedBooks();
+        List<BorrowLeaderboard.Ranking> rankings = borrowLeaderboard.topBorrowed();
         
-        return results.stream()
-                .limit(5) // Top 5
-                .map(result -> {
-                    UUID bookId = (UUID) result[0];
-                    Long borrowCount = (Long) result[1];
-                    
-                    // Get book details
-                    Book book = bookRepository.findById(bookId).orElse(null);
-                    if (book == null) return null;
-                    
+        Map<UUID, Book> books = bookRepository.findAllById(rankings.stream().map(BorrowLeaderboard.Ranking::bookId).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return rankings.stream()
+                .filter(ranking -> books.containsKey(ranking.bookId()))
+                .map(ranking -> {
+                    Book book = books.get(ranking.bookId());
                     return new TopBorrowedBookDTO(
-                            bookId,
+                            book.getId(),
                             book.getTitle(),
                             book.getAuthor(),
                             book.getCategory(),
-                            borrowCount
+                            ranking.borrowCount()
                     );
                 })
-                .filter(dto -> dto != null)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Aggregated over the borrow history columns, with names and emails from the borrower search
+     * index; only borrowers missing from the index are read. Until the columns have loaded this runs
+     * one aggregate over the borrow records joined to their borrowers.
+     */
     public List<BorrowerActivityDTO> getBorrowerActivity() {
-        List<Object[]> results = borrowRecordRepository.findBorrowerActivity();
+        Optional<List<BorrowHistoryColumns.BorrowerTotals>> loaded = borrowHistoryColumns.borrowerTotals(LocalDate.now());
+        if (loaded.isEmpty()) {
+            return borrowRecordRepository.findBorrowerActivity();
+        }
+        List<BorrowHistoryColumns.BorrowerTotals> totals = loaded.get();
         
-        return results.stream()
-                .map(result -> {
-                    UUID borrowerId = (UUID) result[0];
-                    Long totalBorrowed = (Long) result[1];
-                    Long overdueCount = (Long) result[2];
-                    java.math.BigDecimal totalFines = (java.math.BigDecimal) result[3];
-                    
-                    // Get borrower details (you might want to join this in the query for better performance)
-                    // For now, we'll return basic info
+        List<UUID> borrowerIds = totals.stream().map(BorrowHistoryColumns.BorrowerTotals::borrowerId).toList();
+        Map<UUID, BorrowerSearchIndex.Contact> contacts = new HashMap<>(borrowerSearchIndex.contactsOf(borrowerIds));
+        List<UUID> missing = borrowerIds.stream().filter(id -> !contacts.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            borrowerRepository.findAllById(missing)
+                    .forEach(borrower -> contacts.put(borrower.getId(), new BorrowerSearchIndex.Contact(borrower.getName(), borrower.getEmail())));
+        }
+        return totals.stream()
+                .filter(total -> contacts.containsKey(total.borrowerId()))
+                .map(total -> {
+                    BorrowerSearchIndex.Contact contact = contacts.get(total.borrowerId());
                     return new BorrowerActivityDTO(
-                            borrowerId,
-                            "Borrower " + borrowerId.toString().substring(0, 8), // Simplified
-                            "email@example.com", // Simplified
-                            totalBorrowed,
-                            overdueCount,
-                            totalFines
+                            total.borrowerId(),
+                            contact.name(),
+                            contact.email(),
+                            total.loans(),
+                            total.overdueLoans(),
+                            BigDecimal.valueOf(total.fineCents(), 2)
                     );
                 })
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Loans and fines per category, aggregated over the borrow history columns
+     */
+    public List<CategoryFinesDTO> getFinesByCategory() {
+        return borrowHistoryColumns.finesByCategory()
+                .orElseThrow(() -> new ServiceUnavailableException("Borrow history is still loading"))
+                .stream()
+                .map(fines -> new CategoryFinesDTO(
+                        fines.category(),
+                        fines.loans(),
+                        fines.finedLoans(),
+                        BigDecimal.valueOf(fines.fineCents(), 2),
+                        BigDecimal.valueOf(fines.outstandingFineCents(), 2)
+                ))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * How long returned loans lasted, in weekly buckets, aggregated over the borrow history columns
+     */
+    public LoanDurationDTO getLoanDurations() {
+        BorrowHistoryColumns.LoanDurations durations = borrowHistoryColumns.loanDurations()
+                .orElseThrow(() -> new ServiceUnavailableException("Borrow history is still loading"));
+        
+        long[] loansByDays = durations.loansByDays();
+        List<LoanDurationBucketDTO> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket <= DURATION_BUCKETS; bucket++) {
+            int fromDays = bucket == 0 ? 0 : bucket * DURATION_BUCKET_DAYS + 1;
+            Integer toDays = bucket == DURATION_BUCKETS ? null : (bucket + 1) * DURATION_BUCKET_DAYS;
+            int end = toDays == null ? loansByDays.length - 1 : toDays;
+            long loans = 0;
+            for (int days = fromDays; days <= end; days++) {
+                loans += loansByDays[days];
+            }
+            buckets.add(new LoanDurationBucketDTO(fromDays, toDays, loans));
+        }
+        double averageDays = durations.returnedLoans() == 0 ? 0 : (double) durations.totalDays() / durations.returnedLoans();
+        return new LoanDurationDTO(
+                durations.returnedLoans(),
+                averageDays,
+                durations.percentile(0.5),
+                durations.percentile(0.9),
+                durations.percentile(0.99),
+                durations.maxDays(),
+                buckets
+        );
+    }
+    
+    /**
+     * The books most co-borrowed with this one, topped up with books of its category while there are
+     * too few co-borrows. The candidates and the book's category come from memory, so this reads
+     * only the rows returned.
+     */
     public List<SimilarBookDTO> getSimilarBooks(UUID bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
+        String category = bookSearchIndex.categoryOf(bookId)
+                .orElseGet(() -> bookRepository.findById(bookId)
+                        .orElseThrow(() -> new RuntimeException("Book not found"))
+                        .getCategory());
+        
+        Set<UUID> candidates = new LinkedHashSet<>(coBorrowIndex.similarBooks(bookId));
+        if (candidates.size() < SIMILAR_BOOKS) {
+            bookSearchIndex.filter(category, null, PageRequest.of(0, SIMILAR_BOOKS + 1, Sort.by("title")))
+                    .ifPresent(page -> candidates.addAll(page.ids()));
+        }
+        candidates.remove(bookId);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
         
-        // Find books with same category or author
-        List<Book> similarBooks = bookRepository.findByCategoryAndIsDeletedFalse(book.getCategory())
+        Map<UUID, SimilarBookDTO> books = bookRepository.findSimilarBooksByIds(candidates)
                 .stream()
-                .filter(b -> !b.getId().equals(bookId))
-                .limit(5)
+                .collect(Collectors.toMap(SimilarBookDTO::getBookId, Function.identity()));
+        return candidates.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .limit(SIMILAR_BOOKS)
                 .collect(Collectors.toList());
+    }
+    
+    public List<AvailabilitySummaryDTO> getAvailabilitySummary() {
+        return bookRepository.getAvailabilitySummary();
+    }
+    
+    /**
+     * Borrows and returns in the window from the in-memory counters; reads only the books returned
+     */
+    public TrendingDTO getTrending(TrendingWindow window, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        BorrowRateTracker.Trending trending = borrowRateTracker.trending(window, Math.min(limit, MAX_TRENDING_BOOKS));
         
-        return similarBooks.stream()
-                .map(b -> new SimilarBookDTO(
-                        b.getId(),
-                        b.getTitle(),
-                        b.getAuthor(),
-                        b.getCategory(),
-                        b.getAvailableCopies(),
-                        b.getIsAvailable()
-                ))
+        Map<UUID, Book> books = bookRepository.findAllById(trending.books().stream().map(BorrowRateTracker.Rate::key).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<TrendingBookDTO> trendingBooks = trending.books().stream()
+                .filter(rate -> books.containsKey(rate.key()))
+                .map(rate -> {
+                    Book book = books.get(rate.key());
+                    return new TrendingBookDTO(
+                            book.getId(),
+                            book.getTitle(),
+                            book.getAuthor(),
+                            book.getCategory(),
+                            rate.borrows(),
+                            rate.returns()
+                    );
+                })
+                .collect(Collectors.toList());
+        List<TrendingCategoryDTO> trendingCategories = trending.categories().stream()
+                .map(rate -> new TrendingCategoryDTO(rate.key(), rate.borrows(), rate.returns()))
                 .collect(Collectors.toList());
+        return new TrendingDTO(window.getLabel(), trendingBooks, trendingCategories);
     }
     
-    public List<AvailabilitySummaryDTO> getAvailabilitySummary() {
-        List<Object[]> results = bookRepository.getAvailabilitySummary();
+    public InventoryContentionDTO getInventoryContention() {
+        return inventoryLedger.getContention();
+    }
+    
+    /**
+     * Estimated borrows and distinct borrowers of the book from the sketches, with their error bounds
+     */
+    public ApproximateBookStatsDTO getApproximateBookStats(UUID bookId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found"));
+        BorrowSketches.BookEstimates estimates = borrowSketches.bookEstimates(bookId)
+                .orElseThrow(() -> new ServiceUnavailableException("Borrow sketches are still loading"));
+        return toApproximateBookStats(book, estimates);
+    }
+    
+    /**
+     * The books the Count-Min Sketch estimates are borrowed most; reads only the books returned
+     */
+    public List<ApproximateBookStatsDTO> getApproximateHeavyHitters(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<BorrowSketches.BookEstimates> heavyHitters = borrowSketches.heavyHitters(Math.min(limit, MAX_HEAVY_HITTERS));
         
-        return results.stream()
-                .map(result -> new AvailabilitySummaryDTO(
-                        (String) result[0],
-                        (Long) result[1],
-                        (Long) result[2]
-                ))
+        Map<UUID, Book> books = bookRepository.findAllById(heavyHitters.stream().map(BorrowSketches.BookEstimates::bookId).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return heavyHitters.stream()
+                .filter(estimates -> books.containsKey(estimates.bookId()))
+                .map(estimates -> toApproximateBookStats(books.get(estimates.bookId()), estimates))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Estimated distinct borrowers per category, from memory only
+     */
+    public List<ApproximateCategoryStatsDTO> getApproximateCategoryStats() {
+        return borrowSketches.categoryEstimates().stream()
+                .map(estimates -> new ApproximateCategoryStatsDTO(estimates.category(), toEstimate(estimates.distinctBorrowers())))
                 .collect(Collectors.toList());
     }
+    
+    private static ApproximateBookStatsDTO toApproximateBookStats(Book book, BorrowSketches.BookEstimates estimates) {
+        return new ApproximateBookStatsDTO(
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getCategory(),
+                toEstimate(estimates.borrows()),
+                toEstimate(estimates.distinctBorrowers())
+        );
+    }
+    
+    private static EstimateDTO toEstimate(BorrowSketches.Estimate estimate) {
+        return new EstimateDTO(estimate.value(), estimate.errorBound(), estimate.confidence());
+    }
 }
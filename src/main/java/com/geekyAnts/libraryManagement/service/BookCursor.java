@@ -0,0 +1,65 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.entity.Book;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Position of the last book on a keyset page: the sort it was read with, its value of the sort
+ * property and its id. Handed to clients as an opaque URL-safe token.
+ */
+record BookCursor(Sort.Order order, Comparable<?> value, UUID id) {
+
+    private static final Set<String> STRING_PROPERTIES = Set.of("title", "author", "category");
+    private static final Set<String> INTEGER_PROPERTIES = Set.of("totalCopies", "availableCopies");
+
+    static void checkSortable(Sort.Order order) {
+        if (!STRING_PROPERTIES.contains(order.getProperty()) && !INTEGER_PROPERTIES.contains(order.getProperty())) {
+            throw new IllegalArgumentException("Cannot page by cursor on property " + order.getProperty());
+        }
+    }
+
+    static BookCursor of(Book book, Sort.Order order) {
+        Comparable<?> value = switch (order.getProperty()) {
+            case "title" -> book.getTitle();
+            case "author" -> book.getAuthor();
+            case "category" -> book.getCategory();
+            case "totalCopies" -> book.getTotalCopies();
+            default -> book.getAvailableCopies();
+        };
+        return new BookCursor(order, value, book.getId());
+    }
+
+    /**
+     * Reads a token issued for the same sort; the value comes last since it may contain the separator
+     */
+    static BookCursor decode(String token, Sort.Order order) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        if (!parts[0].equals(order.getProperty()) || !parts[1].equals(order.getDirection().name())) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort");
+        }
+        try {
+            Comparable<?> value = INTEGER_PROPERTIES.contains(parts[0]) ? Integer.valueOf(parts[3]) : parts[3];
+            return new BookCursor(order, value, UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+    }
+
+    String encode() {
+        String raw = order.getProperty() + "\n" + order.getDirection().name() + "\n" + id + "\n" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
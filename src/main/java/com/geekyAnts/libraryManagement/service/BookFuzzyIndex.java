@@ -0,0 +1,465 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Typo-tolerant search over the words of book titles and authors.
+ *
+ * Words are lowercased with accents removed and kept in a BK-tree under Levenshtein distance, so
+ * the words near a query word are found without comparing against the whole vocabulary. A query
+ * word may be off by one edit when it has 3 to 5 characters and by two when longer; shorter words
+ * must match exactly. A book matches when every query word is near one of its title words (or
+ * author words for the author term), and books are ranked by the sum of those distances.
+ *
+ * Latency is bounded whatever the query: a query has at most maxWords words, each query word
+ * visits at most maxVisits tree nodes, and only the query word with the fewest matching books
+ * collects candidates, nearest words first and at most maxCandidates of them. The other query words
+ * are then checked against those candidates' own words. The tree walk stops wherever it is once
+ * maxVisits is reached, so the words it misses are not necessarily the farthest ones; only the
+ * candidate limit leaves out the books of the farthest words first. When either limit cuts a search
+ * short, its total only counts the books found and is marked as a lower bound.
+ *
+ * Kept up to date by BookService after each change commits and rebuilt at startup. Words no longer
+ * used by any book stay in the tree, skipped, until it is rebuilt in the background.
+ */
+@Component
+@Slf4j
+public class BookFuzzyIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final BookRepository bookRepository;
+    private final int maxVisits;
+    private final int maxCandidates;
+    private final int maxWords;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Document> documents = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private BkTree tree = new BkTree();
+    private volatile boolean loaded;
+
+    public BookFuzzyIndex(BookRepository bookRepository,
+                          @Value("${library.search.fuzzy-max-visits:20000}") int maxVisits,
+                          @Value("${library.search.fuzzy-max-candidates:1000}") int maxCandidates,
+                          @Value("${library.search.fuzzy-max-words:8}") int maxWords) {
+        this.bookRepository = bookRepository;
+        this.maxVisits = maxVisits;
+        this.maxCandidates = maxCandidates;
+        this.maxWords = maxWords;
+    }
+
+    /**
+     * Rebuilds the index once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = bookRepository.findSearchableBooks();
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            tree = new BkTree();
+            for (Object[] row : rows) {
+                put((UUID) row[0], (String) row[1], (String) row[2]);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Book fuzzy index loaded for {} books ({} words)", rows.size(), postings.size());
+    }
+
+    /**
+     * Indexes a new or changed book once the current transaction commits
+     */
+    public void index(Book book) {
+        indexAll(List.of(book));
+    }
+
+    /**
+     * Indexes a batch of new or changed books under one lock once the current transaction commits
+     */
+    public void indexAll(List<Book> books) {
+        List<Entry> entries = books.stream()
+                .map(book -> new Entry(book.getId(), book.getTitle(), book.getAuthor()))
+                .toList();
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                entries.forEach(entry -> put(entry.bookId(), entry.title(), entry.author()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Drops a deleted book once the current transaction commits
+     */
+    public void unindex(UUID bookId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(bookId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the tree without the words no book uses any more, once they make up half of it
+     */
+    @Scheduled(fixedDelayString = "${library.search.compact-interval-ms:60000}")
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (tree.size <= 2 * postings.size()) {
+                return;
+            }
+            int before = tree.size;
+            BkTree compacted = new BkTree();
+            postings.keySet().forEach(compacted::add);
+            tree = compacted;
+            log.info("Book fuzzy index compacted from {} to {} words", before, compacted.size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the page of books whose title and author words are near the given terms, closest first.
+     * Empty until the index has been loaded. Terms with more than maxWords words between them are
+     * rejected, since each word costs a tree walk.
+     */
+    public Optional<SearchPage> search(String title, String author, Pageable pageable) {
+        List<String> titleWords = wordsOf(title);
+        List<String> authorWords = wordsOf(author);
+        if (titleWords.size() + authorWords.size() > maxWords) {
+            throw new IllegalArgumentException("Fuzzy search takes at most " + maxWords + " words");
+        }
+        if (!loaded) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<QueryWord> queryWords = new ArrayList<>();
+            titleWords.forEach(word -> queryWords.add(queryWord(word, true)));
+            authorWords.forEach(word -> queryWords.add(queryWord(word, false)));
+            queryWords.sort(Comparator.comparingLong(QueryWord::books));
+
+            boolean complete = queryWords.stream().allMatch(QueryWord::complete);
+            Map<UUID, Integer> scores = new HashMap<>();
+            if (!queryWords.isEmpty()) {
+                complete &= candidates(queryWords.get(0), scores);
+            }
+            for (QueryWord queryWord : queryWords.subList(Math.min(1, queryWords.size()), queryWords.size())) {
+                scores.entrySet().removeIf(score -> {
+                    Document document = documents.get(score.getKey());
+                    int distance = queryWord.distanceTo(queryWord.inTitle() ? document.titleWords : document.authorWords);
+                    if (distance == Integer.MAX_VALUE) {
+                        return true;
+                    }
+                    score.setValue(score.getValue() + distance);
+                    return false;
+                });
+            }
+
+            Comparator<UUID> ranking = Comparator
+                    .comparing((UUID id) -> scores.get(id))
+                    .thenComparing(id -> documents.get(id).title, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(id -> id);
+            List<UUID> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort(ranking);
+
+            int from = 0;
+            int to = ranked.size();
+            if (pageable.isPaged()) {
+                from = (int) Math.min(to, pageable.getOffset());
+                to = (int) Math.min(to, pageable.getOffset() + pageable.getPageSize());
+            }
+            return Optional.of(new SearchPage(List.copyOf(ranked.subList(from, to)), ranked.size(), complete));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The indexed words near the query word and how many books they cover between them
+     */
+    private QueryWord queryWord(String word, boolean inTitle) {
+        Map<String, Integer> near = new HashMap<>();
+        long books = 0;
+        List<Near> found = new ArrayList<>();
+        boolean complete = tree.near(word, maxDistance(word), maxVisits, found);
+        for (Near match : found) {
+            Postings posting = postings.get(match.word());
+            if (posting != null) {
+                near.put(match.word(), match.distance());
+                books += (inTitle ? posting.titleBooks : posting.authorBooks).size();
+            }
+        }
+        return new QueryWord(near, inTitle, books, complete);
+    }
+
+    /**
+     * Adds up to maxCandidates books with a word near the query word, nearest words first, each
+     * with the distance of its nearest word. False when more books had to be left out.
+     */
+    private boolean candidates(QueryWord queryWord, Map<UUID, Integer> books) {
+        List<Map.Entry<String, Integer>> near = new ArrayList<>(queryWord.near().entrySet());
+        near.sort(Map.Entry.comparingByValue());
+
+        for (Map.Entry<String, Integer> match : near) {
+            Postings posting = postings.get(match.getKey());
+            for (UUID bookId : queryWord.inTitle() ? posting.titleBooks : posting.authorBooks) {
+                if (books.containsKey(bookId)) {
+                    continue;
+                }
+                if (books.size() >= maxCandidates) {
+                    return false;
+                }
+                books.put(bookId, match.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Must be called holding the write lock
+     */
+    private void put(UUID bookId, String title, String author) {
+        remove(bookId);
+        Document document = new Document(title, new LinkedHashSet<>(wordsOf(title)), new LinkedHashSet<>(wordsOf(author)));
+        documents.put(bookId, document);
+        document.titleWords.forEach(word -> postingsFor(word).titleBooks.add(bookId));
+        document.authorWords.forEach(word -> postingsFor(word).authorBooks.add(bookId));
+    }
+
+    /**
+     * Must be called holding the write lock
+     */
+    private void remove(UUID bookId) {
+        Document document = documents.remove(bookId);
+        if (document == null) {
+            return;
+        }
+        document.titleWords.forEach(word -> postings.get(word).titleBooks.remove(bookId));
+        document.authorWords.forEach(word -> postings.get(word).authorBooks.remove(bookId));
+        for (String word : document.words()) {
+            Postings posting = postings.get(word);
+            if (posting != null && posting.titleBooks.isEmpty() && posting.authorBooks.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    private Postings postingsFor(String word) {
+        return postings.computeIfAbsent(word, key -> {
+            tree.add(key);
+            return new Postings();
+        });
+    }
+
+    /**
+     * Edits allowed for a query word: none up to two characters, one up to five, two beyond
+     */
+    private static int maxDistance(String word) {
+        int length = word.codePointCount(0, word.length());
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    private static List<String> wordsOf(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String normalized = NON_WORD.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return normalized.isEmpty() ? List.of() : List.of(normalized.split(" "));
+    }
+
+    /**
+     * Levenshtein distance between two words, by code point
+     */
+    private static int distance(String a, String b) {
+        int[] left = a.codePoints().toArray();
+        int[] right = b.codePoints().toArray();
+        int[] previous = new int[right.length + 1];
+        int[] current = new int[right.length + 1];
+        for (int j = 0; j <= right.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= left.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= right.length; j++) {
+                int substitution = previous[j - 1] + (left[i - 1] == right[j - 1] ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[right.length];
+    }
+
+    /**
+     * IDs of the requested page, closest first, and the number of matching books. When a search
+     * limit was reached, totalExact is false and total only counts the books found.
+     */
+    public record SearchPage(List<UUID> ids, long total, boolean totalExact) {
+    }
+
+    private record Entry(UUID bookId, String title, String author) {
+    }
+
+    private record Near(String word, int distance) {
+    }
+
+    /**
+     * A word of the query with the indexed words near it, and the number of books those cover
+     */
+    private record QueryWord(Map<String, Integer> near, boolean inTitle, long books, boolean complete) {
+
+        /**
+         * Distance to the nearest of the words, or Integer.MAX_VALUE when none is near
+         */
+        int distanceTo(Set<String> words) {
+            int best = Integer.MAX_VALUE;
+            for (String word : words) {
+                best = Math.min(best, near.getOrDefault(word, Integer.MAX_VALUE));
+            }
+            return best;
+        }
+    }
+
+    private static final class Document {
+        private final String title;
+        private final Set<String> titleWords;
+        private final Set<String> authorWords;
+
+        private Document(String title, Set<String> titleWords, Set<String> authorWords) {
+            this.title = title;
+            this.titleWords = titleWords;
+            this.authorWords = authorWords;
+        }
+
+        private Set<String> words() {
+            Set<String> words = new HashSet<>(titleWords);
+            words.addAll(authorWords);
+            return words;
+        }
+    }
+
+    private static final class Postings {
+        private final Set<UUID> titleBooks = new HashSet<>();
+        private final Set<UUID> authorBooks = new HashSet<>();
+    }
+
+    /**
+     * Every child of a node is at the same distance from it as its index in the children array.
+     * Words are never removed; the postings map says which are still in use.
+     */
+    private static final class BkTree {
+        private Node root;
+        private int size;
+
+        void add(String word) {
+            if (root == null) {
+                root = new Node(word);
+                size++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int d = distance(word, node.word);
+                if (d == 0) {
+                    return;
+                }
+                Node child = node.child(d);
+                if (child == null) {
+                    node.setChild(d, new Node(word));
+                    size++;
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        /**
+         * Adds the words within maxDistance of the word, visiting at most maxVisits nodes. False
+         * when the walk stopped at the limit with nodes left to visit.
+         */
+        boolean near(String word, int maxDistance, int maxVisits, List<Near> found) {
+            if (root == null) {
+                return true;
+            }
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            int visits = 0;
+            while (!pending.isEmpty() && visits++ < maxVisits) {
+                Node node = pending.pop();
+                int d = distance(word, node.word);
+                if (d <= maxDistance) {
+                    found.add(new Near(node.word, d));
+                }
+                // By the triangle inequality only children between d - max and d + max can be close enough
+                int to = Math.min(d + maxDistance, node.children.length - 1);
+                for (int i = Math.max(1, d - maxDistance); i <= to; i++) {
+                    if (node.children[i] != null) {
+                        pending.push(node.children[i]);
+                    }
+                }
+            }
+            return pending.isEmpty();
+        }
+    }
+
+    private static final class Node {
+        private final String word;
+        private Node[] children = new Node[0];
+
+        private Node(String word) {
+            this.word = word;
+        }
+
+        Node child(int d) {
+            return d < children.length ? children[d] : null;
+        }
+
+        void setChild(int d, Node child) {
+            if (d >= children.length) {
+                children = Arrays.copyOf(children, d + 1);
+            }
+            children[d] = child;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geekyAnts.libraryManagement.dto.BookImportResultDTO;
+import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a catalog streamed as CSV or NDJSON, one chunk of rows at a time.
+ *
+ * Rows are parsed as they arrive and validated like a POST /api/books body; invalid rows are
+ * counted and skipped. Within a chunk, rows for the same title and author are merged, and one
+ * query finds the books that already exist. Those get the copies added, as addBook does, and the
+ * rest are inserted; Hibernate sends both as JDBC batches of the chunk size. Each chunk commits
+ * in its own transaction, so only one chunk of rows and entities is in memory at a time.
+ */
+@Component
+@Slf4j
+public class BookImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int PROGRESS_EVERY_CHUNKS = 100;
+    private static final List<String> CSV_COLUMNS = List.of("title", "author", "category", "totalcopies");
+
+    private final BookRepository bookRepository;
+    private final InventoryLedger inventoryLedger;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final BookFuzzyIndex bookFuzzyIndex;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxRecordChars;
+    private final int maxAttempts;
+
+    public BookImporter(BookRepository bookRepository,
+                        InventoryLedger inventoryLedger,
+                        BookSearchIndex bookSearchIndex,
+                        BookSuggestIndex bookSuggestIndex,
+                        BookFuzzyIndex bookFuzzyIndex,
+                        EntityManager entityManager,
+                        ObjectMapper objectMapper,
+                        Validator validator,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${library.import.chunk-size:1000}") int chunkSize,
+                        @Value("${library.import.max-record-chars:65536}") int maxRecordChars,
+                        @Value("${library.inventory.max-attempts:3}") int maxAttempts) {
+        this.bookRepository = bookRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookSuggestIndex = bookSuggestIndex;
+        this.bookFuzzyIndex = bookFuzzyIndex;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxRecordChars = maxRecordChars;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public BookImportResultDTO importBooks(InputStream body, DataFormat format) {
+        long startedAt = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        RowSource rows = format == DataFormat.CSV ? csvRows(reader) : ndjsonRows(reader);
+
+        try {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            Row row;
+            while ((row = rows.next()) != null) {
+                progress.rowsRead++;
+                String error = row.error() != null ? row.error() : validate(row.request());
+                if (error != null) {
+                    progress.reject(row.line(), error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, progress);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read import after " + progress.rowsRead + " rows: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            // Input that cannot be read on from stops the import; the chunks written so far stay
+            throw new IllegalArgumentException(e.getMessage() + "; " + progress.imported
+                    + " earlier rows were imported", e);
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        log.info("Imported {} rows in {} chunks in {} ms: {} books created, {} updated, {} rows rejected",
+                progress.rowsRead, progress.chunks, elapsedMs, progress.created, progress.updated, progress.rejected);
+        return new BookImportResultDTO(progress.rowsRead, progress.created, progress.updated, progress.rejected,
+                progress.chunks, elapsedMs, progress.errors);
+    }
+
+    /**
+     * Writes one chunk in its own transaction, running it again when a concurrent change to one of
+     * its books wins the version check
+     */
+    private void writeChunk(List<Row> chunk, Progress progress) {
+        // Rows for the same book are merged, keeping the category of the first
+        Map<String, BookRequestDTO> merged = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            merged.merge(key(row.request().getTitle(), row.request().getAuthor()), row.request(),
+                    (first, next) -> new BookRequestDTO(first.getTitle(), first.getAuthor(), first.getCategory(),
+                            first.getTotalCopies() + next.getTotalCopies()));
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int[] counts = transactionTemplate.execute(status -> writeMerged(merged));
+                progress.created += counts[0];
+                progress.updated += counts[1];
+                progress.imported += chunk.size();
+                progress.chunks++;
+                break;
+            } catch (OptimisticLockingFailureException e) {
+                inventoryLedger.recordVersionConflict();
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Failed to import books from line " + chunk.get(0).line()
+                            + ": concurrent updates; " + progress.imported + " earlier rows were imported", e);
+                }
+                log.warn("Concurrent update while importing chunk from line {}, retrying", chunk.get(0).line());
+            }
+        }
+        if (progress.chunks % PROGRESS_EVERY_CHUNKS == 0) {
+            log.info("Import progress: {} rows read, {} books created, {} updated, {} rows rejected",
+                    progress.rowsRead, progress.created, progress.updated, progress.rejected);
+        }
+    }
+
+    /**
+     * Returns the number of books created and updated
+     */
+    private int[] writeMerged(Map<String, BookRequestDTO> merged) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+
+        Set<String> titles = merged.values().stream().map(BookRequestDTO::getTitle).collect(Collectors.toSet());
+        Map<String, Book> existing = new HashMap<>();
+        for (Book book : bookRepository.findByTitleInAndIsDeletedFalse(titles)) {
+            existing.putIfAbsent(key(book.getTitle(), book.getAuthor()), book);
+        }
+
+        List<Book> created = new ArrayList<>();
+        int updated = 0;
+        for (Map.Entry<String, BookRequestDTO> entry : merged.entrySet()) {
+            BookRequestDTO request = entry.getValue();
+            Book book = existing.get(entry.getKey());
+            if (book != null) {
+                // Same as addBook: add the copies to the total and to the available count
+                book.setTotalCopies(book.getTotalCopies() + request.getTotalCopies());
+                book.setAvailableCopies(book.getAvailableCopies() + request.getTotalCopies());
+                book.setIsAvailable(true);
+                UUID bookId = book.getId();
+                if (!inventoryLedger.tryChange(bookId, request.getTotalCopies())) {
+                    TransactionHooks.afterCommit(() -> inventoryLedger.refresh(bookId));
+                }
+                updated++;
+            } else {
+                Book newBook = new Book();
+                newBook.setTitle(request.getTitle());
+                newBook.setAuthor(request.getAuthor());
+                newBook.setCategory(request.getCategory());
+                newBook.setTotalCopies(request.getTotalCopies());
+                newBook.setAvailableCopies(request.getTotalCopies());
+                newBook.setIsAvailable(true);
+                newBook.setIsDeleted(false);
+                created.add(newBook);
+            }
+        }
+
+        // Sends the batched inserts and updates now, so a version conflict fails this attempt
+        List<Book> saved = bookRepository.saveAllAndFlush(created);
+        // One commit callback per structure for the whole chunk rather than per book
+        Map<UUID, Integer> availableCopies = new HashMap<>();
+        saved.forEach(book -> availableCopies.put(book.getId(), book.getAvailableCopies()));
+        TransactionHooks.afterCommit(() -> availableCopies.forEach(inventoryLedger::resync));
+        bookSearchIndex.indexAll(saved);
+        bookSuggestIndex.indexAll(saved);
+        bookFuzzyIndex.indexAll(saved);
+        // The request's persistence context outlives this transaction (open in view), so the
+        // chunk's entities are detached here or they would pile up for the whole import
+        entityManager.clear();
+        return new int[]{saved.size(), updated};
+    }
+
+    private String validate(BookRequestDTO request) {
+        Set<ConstraintViolation<BookRequestDTO>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * A header line naming the columns (in any order, extra columns ignored), then one book per record
+     */
+    private RowSource csvRows(BufferedReader reader) {
+        CsvRecordReader records = new CsvRecordReader(reader, maxRecordChars);
+        int[] positions = new int[CSV_COLUMNS.size()];
+        return new RowSource() {
+            private boolean headerRead;
+
+            @Override
+            public Row next() throws IOException {
+                if (!headerRead) {
+                    readHeader();
+                    headerRead = true;
+                }
+                List<String> fields = records.next();
+                if (fields == null) {
+                    return null;
+                }
+                long line = records.recordLine();
+                for (int position : positions) {
+                    if (position >= fields.size()) {
+                        return Row.rejected(line, "Expected " + CSV_COLUMNS.size() + " columns, found " + fields.size());
+                    }
+                }
+                Integer totalCopies;
+                try {
+                    totalCopies = fields.get(positions[3]).isEmpty() ? null : Integer.valueOf(fields.get(positions[3]));
+                } catch (NumberFormatException e) {
+                    return Row.rejected(line, "Total copies must be a whole number");
+                }
+                return new Row(line, new BookRequestDTO(fields.get(positions[0]), fields.get(positions[1]),
+                        fields.get(positions[2]), totalCopies), null);
+            }
+
+            private void readHeader() throws IOException {
+                List<String> header = records.next();
+                List<String> names = header == null ? List.of()
+                        : header.stream().map(name -> name.toLowerCase(Locale.ROOT)).toList();
+                for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+                    positions[i] = names.indexOf(CSV_COLUMNS.get(i));
+                    if (positions[i] < 0) {
+                        throw new IllegalArgumentException("CSV header must name the columns title, author, category and totalCopies");
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * One JSON object per line, with the fields of a POST /api/books body
+     */
+    private RowSource ndjsonRows(BufferedReader reader) {
+        return new RowSource() {
+            private long lineNumber;
+
+            @Override
+            public Row next() throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    lineNumber++;
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.isBlank());
+                // A null, array or scalar line is a rejected row like any other, not a book to validate
+                try (JsonParser parser = objectMapper.createParser(line)) {
+                    JsonToken token = parser.nextToken();
+                    if (token != JsonToken.START_OBJECT) {
+                        return Row.rejected(lineNumber, "Expected a JSON object, found " + describe(token));
+                    }
+                    return new Row(lineNumber, objectMapper.readValue(parser, BookRequestDTO.class), null);
+                } catch (JsonProcessingException e) {
+                    return Row.rejected(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    private static String describe(JsonToken token) {
+        return switch (token) {
+            case VALUE_NULL -> "null";
+            case START_ARRAY -> "an array";
+            case VALUE_STRING -> "a string";
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> "a number";
+            case VALUE_TRUE, VALUE_FALSE -> "a boolean";
+            default -> String.valueOf(token);
+        };
+    }
+
+    private static String key(String title, String author) {
+        return title + '\u0000' + author;
+    }
+
+    private interface RowSource {
+        /**
+         * The next row, or null at the end of the input
+         */
+        Row next() throws IOException;
+    }
+
+    /**
+     * A parsed row, or the reason it could not be parsed
+     */
+    private record Row(long line, BookRequestDTO request, String error) {
+        static Row rejected(long line, String error) {
+            return new Row(line, null, error);
+        }
+    }
+
+    private static final class Progress {
+        private long rowsRead;
+        private long created;
+        private long updated;
+        private long rejected;
+        private long imported;
+        private int chunks;
+        private final List<String> errors = new ArrayList<>();
+
+        void reject(long line, String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + line + ": " + error);
+            }
+        }
+    }
+}
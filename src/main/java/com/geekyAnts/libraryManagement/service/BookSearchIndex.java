@@ -0,0 +1,563 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory n-gram inverted index over book titles and authors.
+ *
+ * Every 1-, 2- and 3-character substring of the lowercased title and author maps to a bitmap of
+ * the books containing it. A search intersects the bitmaps of the query's grams (an exact answer
+ * for terms of up to three characters) and checks the remaining candidates with contains(), so it
+ * matches the case-insensitive LIKE '%term%' of BookRepository.searchBooks. Only the IDs of the
+ * requested page are returned; the caller loads those rows.
+ *
+ * Books are numbered in title order when the index is built, so for the default title sort the
+ * page is read straight off the candidate bitmap by rank. Books added later are numbered after
+ * them and merged in per query until the index is compacted again in the background.
+ *
+ * The same ordinals back a bitmap per category and one of the books with a copy available, so the
+ * catalog listing filters by ANDing bitmaps and pages by rank without reading the books table.
+ * Availability follows the InventoryLedger, which reports every book that runs out or gets a copy back.
+ *
+ * Kept up to date by BookService after each change commits and rebuilt at startup.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    private static final int MAX_GRAM = 3;
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("title", "author", "category");
+    private static final Comparator<Document> BY_TITLE = Comparator
+            .comparing((Document document) -> document.title)
+            .thenComparingInt(document -> document.ordinal);
+
+    private final BookRepository bookRepository;
+    private final InventoryLedger inventoryLedger;
+    private final int compactThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment;
+    // Changes made while a compaction is running, replayed on the compacted segment
+    private List<Consumer<Segment>> pendingChanges;
+
+    public BookSearchIndex(BookRepository bookRepository, InventoryLedger inventoryLedger,
+                           @Value("${library.search.compact-threshold:1000}") int compactThreshold) {
+        this.bookRepository = bookRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.compactThreshold = compactThreshold;
+    }
+
+    @PostConstruct
+    void listenToLedger() {
+        inventoryLedger.addAvailabilityListener(this::availabilityChanged);
+    }
+
+    /**
+     * Builds the index once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Document> documents = new ArrayList<>();
+        for (Object[] row : bookRepository.findSearchableBooks()) {
+            documents.add(new Document((UUID) row[0], (String) row[1], (String) row[2], (String) row[3], (Boolean) row[4]));
+        }
+        Segment built = Segment.build(documents);
+        lock.writeLock().lock();
+        try {
+            segment = built;
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Book search index loaded for {} books ({} grams)", documents.size(), built.gramCount());
+    }
+
+    /**
+     * Indexes a new or changed book once the current transaction commits
+     */
+    public void index(Book book) {
+        indexAll(List.of(book));
+    }
+
+    /**
+     * Indexes a batch of new or changed books in one change once the current transaction commits
+     */
+    public void indexAll(List<Book> books) {
+        List<Document> documents = books.stream()
+                .map(book -> new Document(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(), false))
+                .toList();
+        TransactionHooks.afterCommit(() -> {
+            // The ledger may have moved on since the books were saved
+            List<Document> current = documents.stream()
+                    .map(document -> document.withAvailable(inventoryLedger.getAvailableCopies(document.id) > 0))
+                    .toList();
+            apply(target -> current.forEach(target::put));
+        });
+    }
+
+    /**
+     * Drops a deleted book once the current transaction commits
+     */
+    public void unindex(UUID bookId) {
+        TransactionHooks.afterCommit(() -> apply(target -> target.remove(bookId)));
+    }
+
+    /**
+     * Renumbers the books in title order once enough have been added since the last build.
+     * The new segment is built without holding the lock; changes made meanwhile are replayed on it.
+     */
+    @Scheduled(fixedDelayString = "${library.search.compact-interval-ms:60000}")
+    public void compact() {
+        List<Document> documents;
+        lock.writeLock().lock();
+        try {
+            if (segment == null || pendingChanges != null || segment.unsortedCount() < compactThreshold) {
+                return;
+            }
+            documents = segment.liveDocuments();
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment compacted = null;
+        try {
+            compacted = Segment.build(documents);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // A rebuild while compacting wins and clears the pending changes
+                if (compacted != null && pendingChanges != null) {
+                    pendingChanges.forEach(compacted::apply);
+                    segment = compacted;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Book search index compacted for {} books", documents.size());
+    }
+
+    /**
+     * Finds the page of books whose title and author contain the given terms, ignoring case.
+     * Empty when the index cannot answer exactly as the database would: before it is loaded,
+     * for terms containing LIKE wildcards, or when sorting by a property it does not hold.
+     */
+    public Optional<SearchPage> search(String title, String author, Pageable pageable) {
+        if (hasWildcard(title) || hasWildcard(author) || !isSortable(pageable.getSort())) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (segment == null) {
+                return Optional.empty();
+            }
+            return Optional.of(segment.search(normalize(title), normalize(author), pageable));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the page of books in the category (any when null) that have, or have no, copy available
+     * (either when null). Empty before the index is loaded or when sorting by a property it does not hold.
+     */
+    public Optional<SearchPage> filter(String category, Boolean available, Pageable pageable) {
+        if (!isSortable(pageable.getSort())) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (segment == null) {
+                return Optional.empty();
+            }
+            return Optional.of(segment.filter(category, available, pageable));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The category of an indexed book. Empty before the index is loaded or when the book is not in it.
+     */
+    public Optional<String> categoryOf(UUID bookId) {
+        lock.readLock().lock();
+        try {
+            return segment == null ? Optional.empty() : Optional.ofNullable(segment.categoryOf(bookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Called by the ledger when the book runs out of copies or gets one back. Reads the count again
+     * under the lock, so when two changes race the one applied last still sees the latest count.
+     */
+    private void availabilityChanged(UUID bookId) {
+        apply(target -> target.setAvailable(bookId, inventoryLedger.getAvailableCopies(bookId) > 0));
+    }
+
+    private void apply(Consumer<Segment> change) {
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                segment.apply(change);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String term) {
+        return term == null ? null : term.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean hasWildcard(String term) {
+        return term != null && (term.indexOf('%') >= 0 || term.indexOf('_') >= 0);
+    }
+
+    private static boolean isSortable(Sort sort) {
+        return sort.stream().allMatch(order -> SORTABLE_PROPERTIES.contains(order.getProperty()));
+    }
+
+    /**
+     * IDs of the requested page in order, and the number of matching books
+     */
+    public record SearchPage(List<UUID> ids, long total) {
+    }
+
+    /**
+     * The index proper. Ordinals below sortedCount are in title order; later ones were added
+     * since the last build. Ordinals are never reused; the slot of a removed book is null.
+     * Not thread-safe; the outer class guards it with its lock.
+     */
+    private static final class Segment {
+        private final List<Document> documents = new ArrayList<>();
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        private final Map<Long, RoaringBitmap> titleGrams = new HashMap<>();
+        private final Map<Long, RoaringBitmap> authorGrams = new HashMap<>();
+        private final Map<String, RoaringBitmap> categories = new HashMap<>();
+        private final RoaringBitmap available = new RoaringBitmap();
+        private final RoaringBitmap live = new RoaringBitmap();
+        private int sortedCount;
+
+        static Segment build(List<Document> documents) {
+            List<Document> sorted = new ArrayList<>(documents);
+            sorted.sort(Comparator.comparing((Document document) -> document.title));
+            Segment segment = new Segment();
+            sorted.forEach(segment::put);
+            segment.sortedCount = segment.documents.size();
+            segment.titleGrams.values().forEach(RoaringBitmap::runOptimize);
+            segment.authorGrams.values().forEach(RoaringBitmap::runOptimize);
+            segment.categories.values().forEach(RoaringBitmap::runOptimize);
+            segment.available.runOptimize();
+            return segment;
+        }
+
+        void apply(Consumer<Segment> change) {
+            change.accept(this);
+        }
+
+        void put(Document document) {
+            remove(document.id);
+            int ordinal = documents.size();
+            Document numbered = document.withOrdinal(ordinal);
+            documents.add(numbered);
+            ordinals.put(numbered.id, ordinal);
+            live.add(ordinal);
+            categories.computeIfAbsent(numbered.category, key -> new RoaringBitmap()).add(ordinal);
+            if (numbered.available) {
+                available.add(ordinal);
+            }
+            forEachGram(numbered.titleLower, gram -> titleGrams.computeIfAbsent(gram, key -> new RoaringBitmap()).add(ordinal));
+            forEachGram(numbered.authorLower, gram -> authorGrams.computeIfAbsent(gram, key -> new RoaringBitmap()).add(ordinal));
+        }
+
+        void remove(UUID id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            Document document = documents.set(ordinal, null);
+            live.remove(ordinal);
+            available.remove(ordinal);
+            RoaringBitmap category = categories.get(document.category);
+            category.remove(ordinal);
+            if (category.isEmpty()) {
+                categories.remove(document.category);
+            }
+            forEachGram(document.titleLower, gram -> removeFrom(titleGrams, gram, ordinal));
+            forEachGram(document.authorLower, gram -> removeFrom(authorGrams, gram, ordinal));
+        }
+
+        void setAvailable(UUID id, boolean isAvailable) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal == null) {
+                return;
+            }
+            documents.set(ordinal, documents.get(ordinal).withAvailable(isAvailable));
+            if (isAvailable) {
+                available.add(ordinal);
+            } else {
+                available.remove(ordinal);
+            }
+        }
+
+        String categoryOf(UUID id) {
+            Integer ordinal = ordinals.get(id);
+            return ordinal == null ? null : documents.get(ordinal).category;
+        }
+
+        int unsortedCount() {
+            return documents.size() - sortedCount;
+        }
+
+        int gramCount() {
+            return titleGrams.size() + authorGrams.size();
+        }
+
+        List<Document> liveDocuments() {
+            return documents.stream().filter(Objects::nonNull).toList();
+        }
+
+        SearchPage search(String titleTerm, String authorTerm, Pageable pageable) {
+            // An empty term is LIKE '%%', which matches every book
+            RoaringBitmap candidates = live;
+            if (titleTerm != null && !titleTerm.isEmpty()) {
+                candidates = RoaringBitmap.and(candidates, candidatesFor(titleGrams, titleTerm));
+            }
+            if (authorTerm != null && !authorTerm.isEmpty()) {
+                candidates = RoaringBitmap.and(candidates, candidatesFor(authorGrams, authorTerm));
+            }
+
+            // Grams only narrow down terms longer than a gram; those candidates are checked in full
+            boolean exact = (titleTerm == null || titleTerm.length() <= MAX_GRAM)
+                    && (authorTerm == null || authorTerm.length() <= MAX_GRAM);
+            List<Sort.Order> orders = pageable.getSort().toList();
+            if (exact && orders.size() == 1 && orders.get(0).getProperty().equals("title")) {
+                return pageByRank(candidates, pageable, orders.get(0).isDescending());
+            }
+            return pageBySorting(candidates, titleTerm, authorTerm, pageable);
+        }
+
+        SearchPage filter(String category, Boolean isAvailable, Pageable pageable) {
+            RoaringBitmap candidates = live;
+            if (category != null) {
+                candidates = RoaringBitmap.and(candidates, categories.getOrDefault(category, new RoaringBitmap()));
+            }
+            if (isAvailable != null) {
+                candidates = isAvailable
+                        ? RoaringBitmap.and(candidates, available)
+                        : RoaringBitmap.andNot(candidates, available);
+            }
+
+            List<Sort.Order> orders = pageable.getSort().toList();
+            if (orders.size() == 1 && orders.get(0).getProperty().equals("title")) {
+                return pageByRank(candidates, pageable, orders.get(0).isDescending());
+            }
+            return pageBySorting(candidates, null, null, pageable);
+        }
+
+        /**
+         * Reads the page off the candidate bitmap by rank, merging in books added since the last build
+         */
+        private SearchPage pageByRank(RoaringBitmap candidates, Pageable pageable, boolean descending) {
+            int total = candidates.getCardinality();
+            int sortedMatches = sortedCount == 0 ? 0 : (int) candidates.rank(sortedCount - 1);
+            long limit = pageable.isPaged() ? pageable.getOffset() + pageable.getPageSize() : total;
+
+            List<Document> page = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, sortedMatches); i++) {
+                page.add(documents.get(candidates.select(descending ? sortedMatches - 1 - i : i)));
+            }
+            if (total > sortedMatches) {
+                for (int i = sortedMatches; i < total; i++) {
+                    page.add(documents.get(candidates.select(i)));
+                }
+                page.sort(descending ? BY_TITLE.reversed() : BY_TITLE);
+            }
+            return toPage(page, pageable, total);
+        }
+
+        /**
+         * Checks every candidate and keeps the first offset + size matches in a bounded heap
+         */
+        private SearchPage pageBySorting(RoaringBitmap candidates, String titleTerm, String authorTerm,
+                                         Pageable pageable) {
+            boolean verifyTitle = titleTerm != null && titleTerm.length() > MAX_GRAM;
+            boolean verifyAuthor = authorTerm != null && authorTerm.length() > MAX_GRAM;
+            Comparator<Document> order = comparatorFor(pageable.getSort());
+            long limit = pageable.isPaged() ? pageable.getOffset() + pageable.getPageSize() : Long.MAX_VALUE;
+
+            // Largest on top, so it is the one dropped when a smaller match comes along
+            PriorityQueue<Document> top = new PriorityQueue<>(order.reversed());
+            long total = 0;
+            IntIterator iterator = candidates.getIntIterator();
+            while (iterator.hasNext()) {
+                Document document = documents.get(iterator.next());
+                if ((verifyTitle && !document.titleLower.contains(titleTerm))
+                        || (verifyAuthor && !document.authorLower.contains(authorTerm))) {
+                    continue;
+                }
+                total++;
+                if (top.size() < limit) {
+                    top.add(document);
+                } else if (order.compare(document, top.peek()) < 0) {
+                    top.poll();
+                    top.add(document);
+                }
+            }
+
+            List<Document> page = new ArrayList<>(top);
+            page.sort(order);
+            return toPage(page, pageable, total);
+        }
+
+        private static SearchPage toPage(List<Document> sorted, Pageable pageable, long total) {
+            int from = 0;
+            int to = sorted.size();
+            if (pageable.isPaged()) {
+                from = (int) Math.min(to, pageable.getOffset());
+                to = (int) Math.min(to, pageable.getOffset() + pageable.getPageSize());
+            }
+            return new SearchPage(sorted.subList(from, to).stream().map(document -> document.id).toList(), total);
+        }
+
+        private static RoaringBitmap candidatesFor(Map<Long, RoaringBitmap> postings, String term) {
+            int gramLength = Math.min(MAX_GRAM, term.length());
+            List<RoaringBitmap> lists = new ArrayList<>();
+            for (int i = 0; i + gramLength <= term.length(); i++) {
+                RoaringBitmap posting = postings.get(gramKey(term, i, gramLength));
+                if (posting == null) {
+                    return new RoaringBitmap();
+                }
+                lists.add(posting);
+            }
+            // Intersect the rarest grams first
+            lists.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+            RoaringBitmap result = lists.get(0);
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result = RoaringBitmap.and(result, lists.get(i));
+            }
+            return result;
+        }
+
+        private static void removeFrom(Map<Long, RoaringBitmap> postings, long gram, int ordinal) {
+            RoaringBitmap posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(ordinal);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        /**
+         * Visits every gram of the text; a gram that occurs twice is visited twice
+         */
+        private static void forEachGram(String text, LongConsumer action) {
+            for (int length = 1; length <= MAX_GRAM; length++) {
+                for (int i = 0; i + length <= text.length(); i++) {
+                    action.accept(gramKey(text, i, length));
+                }
+            }
+        }
+
+        /**
+         * Packs the gram length and up to three UTF-16 chars into one key
+         */
+        private static long gramKey(String text, int start, int length) {
+            long key = length;
+            for (int i = 0; i < length; i++) {
+                key = (key << 16) | text.charAt(start + i);
+            }
+            return key;
+        }
+
+        private static Comparator<Document> comparatorFor(Sort sort) {
+            Comparator<Document> comparator = null;
+            for (Sort.Order order : sort) {
+                Comparator<Document> next = switch (order.getProperty()) {
+                    case "title" -> Comparator.comparing(document -> document.title);
+                    case "author" -> Comparator.comparing(document -> document.author);
+                    default -> Comparator.comparing(document -> document.category);
+                };
+                if (order.isDescending()) {
+                    next = next.reversed();
+                }
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            // Ties keep index order
+            Comparator<Document> byOrdinal = Comparator.comparingInt(document -> document.ordinal);
+            return comparator == null ? byOrdinal : comparator.thenComparing(byOrdinal);
+        }
+    }
+
+    private static final class Document {
+        private final UUID id;
+        private final int ordinal;
+        private final String title;
+        private final String author;
+        private final String category;
+        private final boolean available;
+        private final String titleLower;
+        private final String authorLower;
+
+        private Document(UUID id, String title, String author, String category, boolean available) {
+            this(id, -1, title, author, category, available, title.toLowerCase(Locale.ROOT), author.toLowerCase(Locale.ROOT));
+        }
+
+        private Document(UUID id, int ordinal, String title, String author, String category, boolean available,
+                         String titleLower, String authorLower) {
+            this.id = id;
+            this.ordinal = ordinal;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.available = available;
+            this.titleLower = titleLower;
+            this.authorLower = authorLower;
+        }
+
+        private Document withOrdinal(int ordinal) {
+            return new Document(id, ordinal, title, author, category, available, titleLower, authorLower);
+        }
+
+        private Document withAvailable(boolean available) {
+            return new Document(id, ordinal, title, author, category, available, titleLower, authorLower);
+        }
+    }
+}
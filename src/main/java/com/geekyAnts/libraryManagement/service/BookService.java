@@ -1,20 +1,37 @@
 package com.geekyAnts.libraryManagement.service;
 
 import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.BookImportResultDTO;
 import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BookSuggestionDTO;
+import com.geekyAnts.libraryManagement.dto.CursorPageDTO;
+import com.geekyAnts.libraryManagement.dto.SearchPageDTO;
 import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
 import com.geekyAnts.libraryManagement.repository.BookRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,7 +41,16 @@ import java.util.stream.Collectors;
 public class BookService {
     
     private final BookRepository bookRepository;
+    private final InventoryLedger inventoryLedger;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final BookFuzzyIndex bookFuzzyIndex;
+    private final BookImporter bookImporter;
+    private final DataExporter dataExporter;
     
+    @Retryable(retryFor = OptimisticLockingFailureException.class,
+               maxAttemptsExpression = "${library.inventory.max-attempts:3}",
+               backoff = @Backoff(delay = 20, multiplier = 2))
     public BookDTO addBook(BookRequestDTO request) {
         try {
             log.info("Adding new book: title={}, author={}, category={}, copies={}", 
@@ -41,7 +67,8 @@ public class BookService {
                 book.setTotalCopies(book.getTotalCopies() + request.getTotalCopies());
                 book.setAvailableCopies(book.getAvailableCopies() + request.getTotalCopies());
                 book.setIsAvailable(book.getAvailableCopies() > 0);
-                Book savedBook = bookRepository.save(book);
+                Book savedBook = bookRepository.saveAndFlush(book);
+                applyToLedger(savedBook.getId(), request.getTotalCopies());
                 log.info("Successfully updated book copies. New total: {}, Available: {}", 
                         savedBook.getTotalCopies(), savedBook.getAvailableCopies());
                 return BookDTO.fromEntity(savedBook);
@@ -57,9 +84,18 @@ public class BookService {
                 book.setIsAvailable(request.getTotalCopies() > 0);
                 book.setIsDeleted(false);
                 Book savedBook = bookRepository.save(book);
+                TransactionHooks.afterCommit(() -> inventoryLedger.resync(savedBook.getId(), savedBook.getAvailableCopies()));
+                bookSearchIndex.index(savedBook);
+                bookSuggestIndex.index(savedBook);
+                bookFuzzyIndex.index(savedBook);
                 log.info("Successfully created new book with ID: {}", savedBook.getId());
                 return BookDTO.fromEntity(savedBook);
             }
+        } catch (OptimisticLockingFailureException e) {
+            // Surfaced unwrapped so the retry policy can run the whole method again
+            log.warn("Concurrent update while adding copies of book: title={}, author={}", request.getTitle(), request.getAuthor());
+            inventoryLedger.recordVersionConflict();
+            throw e;
         } catch (Exception e) {
             log.error("Error adding book: title={}, author={}, error={}", 
                     request.getTitle(), request.getAuthor(), e.getMessage(), e);
@@ -72,6 +108,10 @@ public class BookService {
         try {
             log.debug("Fetching all books with pagination: page={}, size={}", 
                     pageable.getPageNumber(), pageable.getPageSize());
+            Optional<BookSearchIndex.SearchPage> result = bookSearchIndex.filter(null, null, pageable);
+            if (result.isPresent()) {
+                return loadPage(result.get().ids(), result.get().total(), pageable);
+            }
             return bookRepository.findByIsDeletedFalse(pageable)
                     .map(BookDTO::fromEntity);
         } catch (Exception e) {
@@ -80,16 +120,81 @@ public class BookService {
         }
     }
     
+    /**
+     * Filters and pages with the index's bitmaps and loads only the books on the requested page,
+     * falling back to the database when the index cannot answer
+     */
     @Transactional(readOnly = true)
     public Page<BookDTO> getBooksWithFilters(String category, Boolean available, Pageable pageable) {
+        Optional<BookSearchIndex.SearchPage> result = bookSearchIndex.filter(category, available, pageable);
+        if (result.isPresent()) {
+            return loadPage(result.get().ids(), result.get().total(), pageable);
+        }
         return bookRepository.findBooksWithFilters(category, available, pageable)
                 .map(BookDTO::fromEntity);
     }
     
+    /**
+     * Answers from the search index and loads only the books on the requested page,
+     * falling back to the LIKE query when the index cannot answer
+     */
     @Transactional(readOnly = true)
     public Page<BookDTO> searchBooks(String title, String author, Pageable pageable) {
-        return bookRepository.searchBooks(title, author, pageable)
-                .map(BookDTO::fromEntity);
+        Optional<BookSearchIndex.SearchPage> result = bookSearchIndex.search(title, author, pageable);
+        if (result.isEmpty()) {
+            return bookRepository.searchBooks(title, author, pageable)
+                    .map(BookDTO::fromEntity);
+        }
+        return loadPage(result.get().ids(), result.get().total(), pageable);
+    }
+    
+    /**
+     * Typo-tolerant search ranked by edit distance, closest first; the requested sort is not applied.
+     * Falls back to the exact search until the fuzzy index has been loaded. A broad query that hits
+     * the index's limits comes back with totalExact false and a total that is only a lower bound.
+     */
+    @Transactional(readOnly = true)
+    public Page<BookDTO> fuzzySearchBooks(String title, String author, Pageable pageable) {
+        Optional<BookFuzzyIndex.SearchPage> result = bookFuzzyIndex.search(title, author, pageable);
+        if (result.isEmpty()) {
+            return searchBooks(title, author, pageable);
+        }
+        BookFuzzyIndex.SearchPage page = result.get();
+        return new SearchPageDTO<>(loadContent(page.ids()), pageable, page.total(), page.totalExact());
+    }
+    
+    /**
+     * Served from memory without a transaction, so no connection is taken per keystroke
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<BookSuggestionDTO> getSuggestions(String prefix, int limit) {
+        return bookSuggestIndex.suggest(prefix, limit);
+    }
+    
+    /**
+     * Keyset page of books matching all the given filters, following the page the cursor came from.
+     * Reads one row past the page to learn whether there is another, and counts only when asked.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<BookDTO> scrollBooks(String category, Boolean available, String title, String author,
+                                              Sort.Order order, String cursor, int size, boolean includeTotal) {
+        BookCursor.checkSortable(order);
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        BookCursor after = cursor == null || cursor.isBlank() ? null : BookCursor.decode(cursor, order);
+        
+        List<Book> books = bookRepository.findBooksAfter(category, available, title, author, order,
+                after == null ? null : after.value(), after == null ? null : after.id(), size + 1);
+        boolean hasNext = books.size() > size;
+        List<Book> page = hasNext ? books.subList(0, size) : books;
+        String nextCursor = hasNext ? BookCursor.of(page.get(size - 1), order).encode() : null;
+        Long total = includeTotal ? bookRepository.countBooks(category, available, title, author) : null;
+        
+        List<BookDTO> content = page.stream()
+                .map(BookDTO::fromEntity)
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(content, content.size(), hasNext, nextCursor, total);
     }
     
     @Transactional(readOnly = true)
@@ -98,6 +203,9 @@ public class BookService {
                 .map(BookDTO::fromEntity);
     }
     
+    @Retryable(retryFor = OptimisticLockingFailureException.class,
+               maxAttemptsExpression = "${library.inventory.max-attempts:3}",
+               backoff = @Backoff(delay = 20, multiplier = 2))
     public BookDTO updateBook(UUID id, BookRequestDTO request) {
         try {
             log.info("Updating book with ID: {}", id);
@@ -116,20 +224,36 @@ public class BookService {
             
             // Update copies if needed
             int copyDifference = request.getTotalCopies() - book.getTotalCopies();
+            if (book.getAvailableCopies() + copyDifference < 0) {
+                log.warn("Cannot reduce copies of book {} below the number currently borrowed", id);
+                throw new RuntimeException("Cannot reduce total copies below the number of copies currently borrowed");
+            }
             book.setTotalCopies(request.getTotalCopies());
             book.setAvailableCopies(book.getAvailableCopies() + copyDifference);
             book.setIsAvailable(book.getAvailableCopies() > 0);
             
-            Book savedBook = bookRepository.save(book);
+            // Flushed here so a version conflict with a concurrent borrow or return is retried
+            Book savedBook = bookRepository.saveAndFlush(book);
+            applyToLedger(id, copyDifference);
+            bookSearchIndex.index(savedBook);
+            bookSuggestIndex.index(savedBook);
+            bookFuzzyIndex.index(savedBook);
             log.info("Successfully updated book. New total copies: {}, Available copies: {}", 
                     savedBook.getTotalCopies(), savedBook.getAvailableCopies());
             return BookDTO.fromEntity(savedBook);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Concurrent update of book with ID: {}", id);
+            inventoryLedger.recordVersionConflict();
+            throw e;
         } catch (Exception e) {
             log.error("Error updating book with ID: {}, error={}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to update book: " + e.getMessage(), e);
         }
     }
     
+    @Retryable(retryFor = OptimisticLockingFailureException.class,
+               maxAttemptsExpression = "${library.inventory.max-attempts:3}",
+               backoff = @Backoff(delay = 20, multiplier = 2))
     public void deleteBook(UUID id) {
         try {
             log.info("Deleting book with ID: {}", id);
@@ -146,14 +270,38 @@ public class BookService {
             }
             
             book.setIsDeleted(true);
-            bookRepository.save(book);
+            bookRepository.saveAndFlush(book);
+            TransactionHooks.afterCommit(() -> inventoryLedger.untrack(id));
+            bookSearchIndex.unindex(id);
+            bookSuggestIndex.unindex(id);
+            bookFuzzyIndex.unindex(id);
             log.info("Successfully deleted book with ID: {}", id);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Concurrent update while deleting book with ID: {}", id);
+            inventoryLedger.recordVersionConflict();
+            throw e;
         } catch (Exception e) {
             log.error("Error deleting book with ID: {}, error={}", id, e.getMessage(), e);
             throw new RuntimeException("Failed to delete book: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Runs without a surrounding transaction; the importer commits each chunk on its own
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BookImportResultDTO importBooks(InputStream body, DataFormat format) {
+        return bookImporter.importBooks(body, format);
+    }
+    
+    /**
+     * Holds one read-only transaction, and its connection, until the whole catalog is written
+     */
+    @Transactional(readOnly = true)
+    public void exportBooks(OutputStream out, DataFormat format) throws IOException {
+        dataExporter.exportBooks(out, format);
+    }
+    
     @Cacheable("availableBooks")
     @Transactional(readOnly = true)
     public List<BookDTO> getAvailableBooks() {
@@ -172,16 +320,39 @@ public class BookService {
     }
     
     public void updateAvailableCopies(UUID bookId, int change) {
-        Book book = bookRepository.findByIdAndIsDeletedFalse(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
-        
-        int newAvailableCopies = book.getAvailableCopies() + change;
-        if (newAvailableCopies < 0) {
+        // Single conditional UPDATE instead of loading, mutating and saving the entity
+        if (bookRepository.changeAvailableCopies(bookId, change) == 0) {
+            bookRepository.findByIdAndIsDeletedFalse(bookId)
+                    .orElseThrow(() -> new RuntimeException("Book not found with id: " + bookId));
             throw new RuntimeException("Cannot reduce available copies below 0");
         }
-        
-        book.setAvailableCopies(newAvailableCopies);
-        book.setIsAvailable(newAvailableCopies > 0);
-        bookRepository.save(book);
+        applyToLedger(bookId, change);
+    }
+    
+    /**
+     * Loads the books of a page answered by an index, keeping the index's order
+     */
+    private Page<BookDTO> loadPage(List<UUID> ids, long total, Pageable pageable) {
+        return new PageImpl<>(loadContent(ids), pageable, total);
+    }
+    
+    private List<BookDTO> loadContent(List<UUID> ids) {
+        Map<UUID, Book> books = bookRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(BookDTO::fromEntity)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Mirrors a committed change in copies in the inventory ledger, re-reading the row if the ledger disagrees
+     */
+    private void applyToLedger(UUID bookId, int change) {
+        if (!inventoryLedger.tryChange(bookId, change)) {
+            TransactionHooks.afterCommit(() -> inventoryLedger.refresh(bookId));
+        }
     }
 }
@@ -0,0 +1,600 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.BookSuggestionDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.SuggestionType;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Prefix autocomplete over book titles and authors, ranked by how often the books were borrowed.
+ *
+ * Each distinct lowercased title and author is a key in a path-compressed trie laid out in flat
+ * arrays; a prefix resolves to the contiguous range of keys below its trie node. A max segment
+ * tree over the borrow counts of the keys then yields the most borrowed completions of that range
+ * best-first, so a lookup costs O(prefix length + limit * log n) and allocates only the result.
+ * Borrows update the segment tree in place.
+ *
+ * Keys added since the last build live in a small sorted map that is merged into every lookup
+ * until the index is compacted again in the background. Kept up to date by BookService and
+ * BorrowService after each change commits and rebuilt at startup.
+ */
+@Component
+@Slf4j
+public class BookSuggestIndex {
+
+    private static final int MAX_LIMIT = 50;
+    private static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingLong((Suggestion suggestion) -> suggestion.borrows).reversed()
+            .thenComparing(suggestion -> suggestion.key);
+
+    private final BookRepository bookRepository;
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final int compactThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment;
+    // Changes made while a compaction is running, replayed on the compacted segment
+    private List<Consumer<Segment>> pendingChanges;
+
+    public BookSuggestIndex(BookRepository bookRepository,
+                            BorrowRecordRepository borrowRecordRepository,
+                            @Value("${library.search.compact-threshold:1000}") int compactThreshold) {
+        this.bookRepository = bookRepository;
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Builds the index once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<UUID, Long> borrowCounts = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.findTopBorrowedBooks()) {
+            borrowCounts.put((UUID) row[0], (Long) row[1]);
+        }
+        List<BookEntry> books = new ArrayList<>();
+        for (Object[] row : bookRepository.findSearchableBooks()) {
+            UUID bookId = (UUID) row[0];
+            books.add(new BookEntry(bookId, (String) row[1], (String) row[2], borrowCounts.getOrDefault(bookId, 0L)));
+        }
+        Segment built = Segment.build(books);
+        lock.writeLock().lock();
+        try {
+            segment = built;
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Book suggest index loaded for {} books ({} suggestions)", books.size(), built.keys.length);
+    }
+
+    /**
+     * Indexes a new or changed book once the current transaction commits
+     */
+    public void index(Book book) {
+        indexAll(List.of(book));
+    }
+
+    /**
+     * Indexes a batch of new or changed books in one change once the current transaction commits
+     */
+    public void indexAll(List<Book> books) {
+        List<BookEntry> entries = books.stream()
+                .map(book -> new BookEntry(book.getId(), book.getTitle(), book.getAuthor(), 0))
+                .toList();
+        TransactionHooks.afterCommit(() -> apply(target ->
+                entries.forEach(entry -> target.put(entry.id(), entry.title(), entry.author()))));
+    }
+
+    /**
+     * Drops a deleted book once the current transaction commits
+     */
+    public void unindex(UUID bookId) {
+        TransactionHooks.afterCommit(() -> apply(target -> target.remove(bookId)));
+    }
+
+    /**
+     * Counts a borrow of the book towards its title and author once the current transaction commits
+     */
+    public void recordBorrow(UUID bookId) {
+        TransactionHooks.afterCommit(() -> apply(target -> target.recordBorrow(bookId)));
+    }
+
+    /**
+     * Rebuilds the trie once enough keys have been added since the last build.
+     * The new segment is built without holding the lock; changes made meanwhile are replayed on it.
+     */
+    @Scheduled(fixedDelayString = "${library.search.compact-interval-ms:60000}")
+    public void compact() {
+        List<BookEntry> books;
+        lock.writeLock().lock();
+        try {
+            if (segment == null || pendingChanges != null || segment.added.size() < compactThreshold) {
+                return;
+            }
+            books = new ArrayList<>(segment.books.values());
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Segment compacted = null;
+        try {
+            compacted = Segment.build(books);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // A rebuild while compacting wins and clears the pending changes
+                if (compacted != null && pendingChanges != null) {
+                    pendingChanges.forEach(compacted::apply);
+                    segment = compacted;
+                }
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Book suggest index compacted for {} books", books.size());
+    }
+
+    /**
+     * Up to limit titles and authors starting with the prefix, ignoring case, most borrowed first.
+     * Ties are broken alphabetically. Empty until the index has been loaded.
+     */
+    public List<BookSuggestionDTO> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        String normalized = prefix.stripLeading().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            if (segment == null) {
+                return List.of();
+            }
+            List<Suggestion> matches = segment.suggest(normalized, Math.min(limit, MAX_LIMIT));
+            List<BookSuggestionDTO> result = new ArrayList<>(matches.size());
+            for (Suggestion match : matches) {
+                result.add(new BookSuggestionDTO(match.text, match.type, match.borrows));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Segment> change) {
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                segment.apply(change);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The trie over the keys present at the last build, the keys added since, and the books
+     * behind them. A key keeps its slot while it has no books left so it can come back;
+     * such slots hold -1 in the segment tree and are never returned.
+     * Not thread-safe; the outer class guards it with its lock.
+     */
+    private static final class Segment {
+        private final String[] keys;
+        private final Suggestion[] slots;
+        private final Map<String, Suggestion> suggestions;
+        private final TreeMap<String, Suggestion> added = new TreeMap<>();
+        private final Map<UUID, BookEntry> books;
+
+        // Trie nodes; the children of a node are numbered consecutively and ordered by label
+        private int nodeCount;
+        private final int[] nodeLo;
+        private final int[] nodeHi;
+        private final int[] nodeDepth;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final char[] label;
+
+        // Max segment tree over the borrow counts of the slots, leaves from index `leaves` on
+        private final int leaves;
+        private final int[] tree;
+
+        private Segment(String[] keys, Map<String, Suggestion> suggestions, Map<UUID, BookEntry> books) {
+            this.keys = keys;
+            this.suggestions = suggestions;
+            this.books = books;
+            this.slots = new Suggestion[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                slots[i] = suggestions.get(keys[i]);
+                slots[i].slot = i;
+            }
+
+            int maxNodes = 2 * keys.length + 1;
+            nodeLo = new int[maxNodes];
+            nodeHi = new int[maxNodes];
+            nodeDepth = new int[maxNodes];
+            firstChild = new int[maxNodes];
+            childCount = new int[maxNodes];
+            label = new char[maxNodes];
+            buildTrie();
+
+            int size = 1;
+            while (size < keys.length) {
+                size <<= 1;
+            }
+            leaves = size;
+            tree = new int[2 * leaves];
+            for (int i = 0; i < leaves; i++) {
+                tree[leaves + i] = i < keys.length ? popularity(slots[i]) : -1;
+            }
+            for (int i = leaves - 1; i >= 1; i--) {
+                tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        static Segment build(List<BookEntry> entries) {
+            Map<String, Suggestion> suggestions = new HashMap<>();
+            Map<UUID, BookEntry> books = new HashMap<>();
+            for (BookEntry book : entries) {
+                books.put(book.id(), book);
+                count(suggestions, SuggestionType.TITLE, book.title(), book.borrows());
+                count(suggestions, SuggestionType.AUTHOR, book.author(), book.borrows());
+            }
+            String[] keys = suggestions.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            return new Segment(keys, suggestions, books);
+        }
+
+        void apply(Consumer<Segment> change) {
+            change.accept(this);
+        }
+
+        void put(UUID bookId, String title, String author) {
+            BookEntry previous = books.remove(bookId);
+            long borrows = 0;
+            if (previous != null) {
+                adjust(previous, -1, -previous.borrows());
+                borrows = previous.borrows();
+            }
+            BookEntry book = new BookEntry(bookId, title, author, borrows);
+            books.put(bookId, book);
+            adjust(book, 1, borrows);
+        }
+
+        void remove(UUID bookId) {
+            BookEntry previous = books.remove(bookId);
+            if (previous != null) {
+                adjust(previous, -1, -previous.borrows());
+            }
+        }
+
+        void recordBorrow(UUID bookId) {
+            BookEntry book = books.get(bookId);
+            if (book != null) {
+                books.put(bookId, new BookEntry(bookId, book.title(), book.author(), book.borrows() + 1));
+                adjust(book, 0, 1);
+            }
+        }
+
+        List<Suggestion> suggest(String prefix, int limit) {
+            List<Suggestion> matches = new ArrayList<>(limit);
+            int node = findNode(prefix);
+            if (node >= 0) {
+                collectTop(nodeLo[node], nodeHi[node], limit, matches);
+            }
+            if (added.isEmpty()) {
+                return matches;
+            }
+
+            for (Suggestion suggestion : added.tailMap(prefix).values()) {
+                if (!suggestion.key.startsWith(prefix)) {
+                    break;
+                }
+                matches.add(suggestion);
+            }
+            matches.sort(BY_POPULARITY);
+            return matches.size() > limit ? matches.subList(0, limit) : matches;
+        }
+
+        /**
+         * The trie node whose keys are exactly those starting with the prefix, or -1 if there are none
+         */
+        private int findNode(String prefix) {
+            if (nodeCount == 0) {
+                return -1;
+            }
+            int node = 0;
+            int matched = 0;
+            while (true) {
+                int depth = nodeDepth[node];
+                int end = Math.min(depth, prefix.length());
+                // Every key below the node shares its first `depth` chars, so checking one is enough
+                if (!keys[nodeLo[node]].regionMatches(matched, prefix, matched, end - matched)) {
+                    return -1;
+                }
+                if (prefix.length() <= depth) {
+                    return node;
+                }
+                node = childFor(node, prefix.charAt(depth));
+                if (node < 0) {
+                    return -1;
+                }
+                matched = depth + 1;
+            }
+        }
+
+        private int childFor(int node, char c) {
+            int lo = firstChild[node];
+            int hi = lo + childCount[node] - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (label[mid] < c) {
+                    lo = mid + 1;
+                } else if (label[mid] > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Adds the slots in [from, to) with the highest borrow counts to matches, best first.
+         * Segment tree nodes covering the range are expanded in order of their maximum, ties going
+         * to the leftmost node, so leaves come out by borrow count and then by key.
+         */
+        private void collectTop(int from, int to, int limit, List<Suggestion> matches) {
+            int[] heapNode = new int[64];
+            int[] heapStart = new int[64];
+            int size = 0;
+            // At most two nodes per level cover the range
+            for (int lo = from + leaves, hi = to + leaves; lo < hi; lo >>= 1, hi >>= 1) {
+                if ((lo & 1) == 1) {
+                    heapNode[size++] = lo++;
+                }
+                if ((hi & 1) == 1) {
+                    heapNode[size++] = --hi;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                heapStart[i] = firstLeaf(heapNode[i]);
+            }
+            heapify(heapNode, heapStart, size);
+
+            while (size > 0 && matches.size() < limit) {
+                int node = heapNode[0];
+                size--;
+                heapNode[0] = heapNode[size];
+                heapStart[0] = heapStart[size];
+                siftDown(heapNode, heapStart, size, 0);
+                if (tree[node] < 0) {
+                    break;
+                }
+                if (node >= leaves) {
+                    matches.add(slots[node - leaves]);
+                    continue;
+                }
+                for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                    if (tree[child] >= 0) {
+                        if (size == heapNode.length) {
+                            heapNode = Arrays.copyOf(heapNode, size * 2);
+                            heapStart = Arrays.copyOf(heapStart, size * 2);
+                        }
+                        heapNode[size] = child;
+                        heapStart[size] = firstLeaf(child);
+                        siftUp(heapNode, heapStart, size++);
+                    }
+                }
+            }
+        }
+
+        private int firstLeaf(int node) {
+            while (node < leaves) {
+                node <<= 1;
+            }
+            return node;
+        }
+
+        private boolean before(int[] heapNode, int[] heapStart, int a, int b) {
+            int valueA = tree[heapNode[a]];
+            int valueB = tree[heapNode[b]];
+            return valueA != valueB ? valueA > valueB : heapStart[a] < heapStart[b];
+        }
+
+        private void heapify(int[] heapNode, int[] heapStart, int size) {
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(heapNode, heapStart, size, i);
+            }
+        }
+
+        private void siftUp(int[] heapNode, int[] heapStart, int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!before(heapNode, heapStart, i, parent)) {
+                    return;
+                }
+                swap(heapNode, heapStart, i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heapNode, int[] heapStart, int size, int i) {
+            while (true) {
+                int best = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && before(heapNode, heapStart, left, best)) {
+                    best = left;
+                }
+                if (right < size && before(heapNode, heapStart, right, best)) {
+                    best = right;
+                }
+                if (best == i) {
+                    return;
+                }
+                swap(heapNode, heapStart, i, best);
+                i = best;
+            }
+        }
+
+        private static void swap(int[] heapNode, int[] heapStart, int a, int b) {
+            int node = heapNode[a];
+            heapNode[a] = heapNode[b];
+            heapNode[b] = node;
+            int start = heapStart[a];
+            heapStart[a] = heapStart[b];
+            heapStart[b] = start;
+        }
+
+        /**
+         * Lays out the path-compressed trie breadth first. A node covers the keys [lo, hi) sharing
+         * their first `depth` chars; its children split them by the next char. Keys are unique,
+         * so a single key is a leaf and a node has at most one key ending at its depth.
+         */
+        private void buildTrie() {
+            if (keys.length == 0) {
+                return;
+            }
+            nodeLo[0] = 0;
+            nodeHi[0] = keys.length;
+            nodeCount = 1;
+            for (int node = 0; node < nodeCount; node++) {
+                int lo = nodeLo[node];
+                int hi = nodeHi[node];
+                int depth = commonPrefix(keys[lo], keys[hi - 1]);
+                nodeDepth[node] = depth;
+                firstChild[node] = nodeCount;
+                if (hi - lo == 1) {
+                    continue;
+                }
+
+                int start = keys[lo].length() == depth ? lo + 1 : lo;
+                while (start < hi) {
+                    char c = keys[start].charAt(depth);
+                    int end = endOfRun(start, hi, depth, c);
+                    nodeLo[nodeCount] = start;
+                    nodeHi[nodeCount] = end;
+                    label[nodeCount] = c;
+                    nodeCount++;
+                    start = end;
+                }
+                childCount[node] = nodeCount - firstChild[node];
+            }
+        }
+
+        /**
+         * First index in (start, hi) whose char at depth is past c; the keys are sorted, so a binary search
+         */
+        private int endOfRun(int start, int hi, int depth, char c) {
+            int lo = start + 1;
+            int end = hi;
+            while (lo < end) {
+                int mid = (lo + end) >>> 1;
+                if (keys[mid].charAt(depth) == c) {
+                    lo = mid + 1;
+                } else {
+                    end = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void adjust(BookEntry book, int bookChange, long borrowChange) {
+            adjust(SuggestionType.TITLE, book.title(), bookChange, borrowChange);
+            adjust(SuggestionType.AUTHOR, book.author(), bookChange, borrowChange);
+        }
+
+        private void adjust(SuggestionType type, String text, int bookChange, long borrowChange) {
+            String key = keyOf(type, text);
+            Suggestion suggestion = suggestions.get(key);
+            if (suggestion == null) {
+                suggestion = new Suggestion(key, text, type);
+                suggestions.put(key, suggestion);
+                added.put(key, suggestion);
+            }
+            suggestion.books += bookChange;
+            suggestion.borrows += borrowChange;
+
+            if (suggestion.slot >= 0) {
+                int i = suggestion.slot + leaves;
+                tree[i] = popularity(suggestion);
+                for (i >>= 1; i >= 1; i >>= 1) {
+                    tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+                }
+            } else if (suggestion.books == 0) {
+                suggestions.remove(key);
+                added.remove(key);
+            }
+        }
+
+        private static void count(Map<String, Suggestion> suggestions, SuggestionType type, String text, long borrows) {
+            Suggestion suggestion = suggestions.computeIfAbsent(keyOf(type, text), key -> new Suggestion(key, text, type));
+            suggestion.books++;
+            suggestion.borrows += borrows;
+        }
+
+        private static int popularity(Suggestion suggestion) {
+            return suggestion.books > 0 ? (int) Math.min(suggestion.borrows, Integer.MAX_VALUE) : -1;
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * The lowercased text, then a separator that sorts before any char and the type, so a
+         * title and an author with the same text are distinct keys matched by the same prefixes
+         */
+        private static String keyOf(SuggestionType type, String text) {
+            return text.toLowerCase(Locale.ROOT) + '\u0000' + type.ordinal();
+        }
+    }
+
+    private static final class Suggestion {
+        private final String key;
+        private final String text;
+        private final SuggestionType type;
+        private int slot = -1;
+        private int books;
+        private long borrows;
+
+        private Suggestion(String key, String text, SuggestionType type) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+        }
+    }
+
+    private record BookEntry(UUID id, String title, String author, long borrows) {
+    }
+}
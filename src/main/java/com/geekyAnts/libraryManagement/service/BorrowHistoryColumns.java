@@ -0,0 +1,526 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Borrow history as columns of primitives, one array per field, for aggregations that would
+ * otherwise scan borrow_records and build an entity per row.
+ *
+ * Each row is a borrow: book, borrower and category as ordinals, borrow, due and return dates as
+ * epoch days, and the fine in cents. Borrows are appended and returns filled in as they commit.
+ * Fines accrued overnight are bulk updates in the database, so once the accrual finishes the loans
+ * it touched are read again. The whole table is only read at startup and on a long schedule as a
+ * safety net; changes that commit while it is read are replayed onto the new columns.
+ */
+@Component
+@Slf4j
+public class BorrowHistoryColumns {
+
+    private static final int NOT_RETURNED = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Loans of a year or more share the last duration slot
+    private static final int MAX_TRACKED_DAYS = 365;
+    // Rows per parallel aggregation task
+    private static final int CHUNK_ROWS = 1 << 18;
+    // Accrued fines applied per write lock
+    private static final int FINE_BATCH_ROWS = 10_000;
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns;
+    // Changes committed while a refresh reads the table, or null when none is running
+    private List<Consumer<Columns>> pending;
+
+    public BorrowHistoryColumns(BorrowRecordRepository borrowRecordRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Reads the whole history into new columns and swaps them in
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${library.history.refresh-interval-ms:86400000}",
+               initialDelayString = "${library.history.refresh-interval-ms:86400000}")
+    public void refresh() {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                // Another refresh is already reading the table
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns built = null;
+        try {
+            built = load();
+        } catch (Exception e) {
+            log.error("Error refreshing borrow history columns: {}", e.getMessage(), e);
+        } finally {
+            install(built);
+        }
+        if (built != null) {
+            log.info("Borrow history columns loaded with {} borrows", built.size);
+        }
+    }
+
+    /**
+     * Tries the load again soon after it failed, rather than leaving the columns empty until the
+     * next scheduled refresh
+     */
+    @Scheduled(fixedDelayString = "${library.history.retry-interval-ms:30000}",
+               initialDelayString = "${library.history.retry-interval-ms:30000}")
+    public void loadIfMissing() {
+        lock.readLock().lock();
+        try {
+            if (columns != null || pending != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        refresh();
+    }
+
+    /**
+     * Reads again the fines of the outstanding loans accrued through the given day, after the
+     * nightly accrual has updated them in the database
+     */
+    public void refreshFines(LocalDate accruedThrough) {
+        long[] updated = new long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> batch = new ArrayList<>();
+            try (Stream<Object[]> rows = borrowRecordRepository.streamFinesAccruedOn(accruedThrough)) {
+                rows.forEach(row -> {
+                    batch.add(row);
+                    if (batch.size() == FINE_BATCH_ROWS) {
+                        updated[0] += applyFines(batch);
+                    }
+                });
+            }
+            updated[0] += applyFines(batch);
+        });
+        log.info("Borrow history columns updated with {} fines accrued through {}", updated[0], accruedThrough);
+    }
+
+    /**
+     * Appends the borrow once the current transaction commits
+     */
+    public void recordBorrow(UUID recordId, UUID bookId, UUID borrowerId, String category,
+                             LocalDate borrowDate, LocalDate dueDate) {
+        int borrowDay = toEpochDay(borrowDate);
+        int dueDay = toEpochDay(dueDate);
+        TransactionHooks.afterCommit(() -> apply(target ->
+                target.appendBorrow(recordId, bookId, borrowerId, category, borrowDay, dueDay)));
+    }
+
+    /**
+     * Fills in the return date and final fine of the borrower's loan of the book once the current
+     * transaction commits
+     */
+    public void recordReturn(UUID bookId, UUID borrowerId, LocalDate returnDate, BigDecimal fineAmount) {
+        int returnDay = toEpochDay(returnDate);
+        int fineCents = toCents(fineAmount);
+        TransactionHooks.afterCommit(() -> apply(target -> target.markReturned(bookId, borrowerId, returnDay, fineCents)));
+    }
+
+    /**
+     * Loans, loans overdue on the given day and fines of every borrower with a loan; empty until loaded
+     */
+    public Optional<List<BorrowerTotals>> borrowerTotals(LocalDate today) {
+        int todayDay = toEpochDay(today);
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return Optional.empty();
+            }
+            Columns c = columns;
+            // Per borrower, side by side: loans, overdue loans, fine cents
+            long[] sums = new long[c.borrowers.size() * 3];
+            for (int row = 0; row < c.size; row++) {
+                int base = c.borrower[row] * 3;
+                sums[base]++;
+                if (c.returnDay[row] == NOT_RETURNED && c.dueDay[row] < todayDay) {
+                    sums[base + 1]++;
+                }
+                sums[base + 2] += c.fineCents[row];
+            }
+
+            List<BorrowerTotals> totals = new ArrayList<>();
+            for (int borrower = 0; borrower < c.borrowers.size(); borrower++) {
+                int base = borrower * 3;
+                if (sums[base] > 0) {
+                    totals.add(new BorrowerTotals(c.borrowers.keys.get(borrower), sums[base], sums[base + 1], sums[base + 2]));
+                }
+            }
+            return Optional.of(totals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loans and fines per category; empty until loaded
+     */
+    public Optional<List<CategoryFines>> finesByCategory() {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return Optional.empty();
+            }
+            Columns c = columns;
+            int categories = c.categories.size();
+            // Per category, side by side: loans, fined loans, fine cents, fine cents still outstanding
+            long[] sums = aggregate(c, categories * 4, (acc, from, to) -> {
+                for (int row = from; row < to; row++) {
+                    int base = c.category[row] * 4;
+                    acc[base]++;
+                    int fine = c.fineCents[row];
+                    if (fine > 0) {
+                        acc[base + 1]++;
+                        acc[base + 2] += fine;
+                        if (c.returnDay[row] == NOT_RETURNED) {
+                            acc[base + 3] += fine;
+                        }
+                    }
+                }
+            });
+
+            List<CategoryFines> fines = new ArrayList<>();
+            for (int category = 0; category < categories; category++) {
+                int base = category * 4;
+                if (sums[base] > 0) {
+                    fines.add(new CategoryFines(c.categories.keys.get(category),
+                            sums[base], sums[base + 1], sums[base + 2], sums[base + 3]));
+                }
+            }
+            return Optional.of(fines);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * How many returned loans lasted each number of days; empty until loaded
+     */
+    public Optional<LoanDurations> loanDurations() {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return Optional.empty();
+            }
+            Columns c = columns;
+            // Loans per number of days, then the total days of all of them
+            int slots = MAX_TRACKED_DAYS + 1;
+            long[] sums = aggregate(c, slots + 1, (acc, from, to) -> {
+                for (int row = from; row < to; row++) {
+                    int returnDay = c.returnDay[row];
+                    if (returnDay != NOT_RETURNED) {
+                        int days = Math.max(0, returnDay - c.borrowDay[row]);
+                        acc[Math.min(days, MAX_TRACKED_DAYS)]++;
+                        acc[slots] += days;
+                    }
+                }
+            });
+            long returnedLoans = 0;
+            int maxDays = 0;
+            for (int days = 0; days < slots; days++) {
+                returnedLoans += sums[days];
+                if (sums[days] > 0) {
+                    maxDays = days;
+                }
+            }
+            if (sums[MAX_TRACKED_DAYS] > 0) {
+                maxDays = longestLoan(c);
+            }
+            return Optional.of(new LoanDurations(returnedLoans, sums[slots], maxDays, Arrays.copyOf(sums, slots)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Columns load() {
+        // Rows borrowed from today on may also be among the pending changes
+        Columns loading = new Columns(toEpochDay(LocalDate.now()));
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = borrowRecordRepository.streamHistoryColumns()) {
+                rows.forEach(row -> loading.append((UUID) row[0], (UUID) row[1], (UUID) row[2], (String) row[3],
+                        toEpochDay((LocalDate) row[4]), toEpochDay((LocalDate) row[5]),
+                        toEpochDay((LocalDate) row[6]), toCents((BigDecimal) row[7])));
+            }
+        });
+        return loading;
+    }
+
+    /**
+     * Replays the pending changes onto the new columns, if the read succeeded, and swaps them in
+     */
+    private void install(Columns built) {
+        lock.writeLock().lock();
+        try {
+            if (built != null) {
+                pending.forEach(change -> change.accept(built));
+                built.recentRecordIds = null;
+                columns = built;
+            }
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a batch of fines under one lock and empties it, so the lock is not held while rows are read
+     */
+    private int applyFines(List<Object[]> batch) {
+        List<Object[]> fines = List.copyOf(batch);
+        batch.clear();
+        apply(target -> fines.forEach(row ->
+                target.updateFine((UUID) row[0], (UUID) row[1], toCents((BigDecimal) row[2]))));
+        return fines.size();
+    }
+
+    private void apply(Consumer<Columns> change) {
+        lock.writeLock().lock();
+        try {
+            if (columns != null) {
+                change.accept(columns);
+            }
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the loop over chunks of rows in parallel, each into its own array of sums, and adds the
+     * arrays up. The loop is a plain for over primitive arrays, so it stays tight.
+     */
+    private static long[] aggregate(Columns c, int width, ChunkAggregator aggregator) {
+        int chunks = (c.size + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    long[] acc = new long[width];
+                    aggregator.add(acc, chunk * CHUNK_ROWS, Math.min(c.size, (chunk + 1) * CHUNK_ROWS));
+                    return acc;
+                })
+                .reduce((a, b) -> {
+                    for (int i = 0; i < width; i++) {
+                        a[i] += b[i];
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new long[width]);
+    }
+
+    private static int longestLoan(Columns c) {
+        int longest = 0;
+        for (int row = 0; row < c.size; row++) {
+            if (c.returnDay[row] != NOT_RETURNED) {
+                longest = Math.max(longest, c.returnDay[row] - c.borrowDay[row]);
+            }
+        }
+        return longest;
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NOT_RETURNED : (int) date.toEpochDay();
+    }
+
+    private static int toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        long cents = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        return (int) Math.min(cents, Integer.MAX_VALUE);
+    }
+
+    @FunctionalInterface
+    private interface ChunkAggregator {
+        void add(long[] acc, int fromRow, int toRow);
+    }
+
+    public record BorrowerTotals(UUID borrowerId, long loans, long overdueLoans, long fineCents) {
+    }
+
+    public record CategoryFines(String category, long loans, long finedLoans, long fineCents, long outstandingFineCents) {
+    }
+
+    /**
+     * loansByDays[d] is the number of returned loans that lasted d days; the last slot holds every
+     * loan of MAX_TRACKED_DAYS or more, and maxDays the longest of them
+     */
+    public record LoanDurations(long returnedLoans, long totalDays, int maxDays, long[] loansByDays) {
+
+        /**
+         * The number of days at or under which the given fraction of returned loans ended
+         */
+        public int percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * returnedLoans);
+            long seen = 0;
+            for (int days = 0; days < loansByDays.length; days++) {
+                seen += loansByDays[days];
+                if (seen >= rank && seen > 0) {
+                    return days == MAX_TRACKED_DAYS ? maxDays : days;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Not thread-safe; the outer class guards it with its lock
+     */
+    private static final class Columns {
+        private final Ordinals<UUID> books = new Ordinals<>();
+        private final Ordinals<UUID> borrowers = new Ordinals<>();
+        private final Ordinals<String> categories = new Ordinals<>();
+        // Row of each outstanding loan, keyed by borrower and book ordinal; a borrower has at most one per book
+        private final Map<Long, Integer> outstanding = new HashMap<>();
+        private final int recentFromDay;
+        // Ids of the rows read that were borrowed from recentFromDay on, so replayed borrows are not added twice
+        private Set<UUID> recentRecordIds = new HashSet<>();
+
+        private int size;
+        private int[] book = new int[INITIAL_CAPACITY];
+        private int[] borrower = new int[INITIAL_CAPACITY];
+        private int[] category = new int[INITIAL_CAPACITY];
+        private int[] borrowDay = new int[INITIAL_CAPACITY];
+        private int[] dueDay = new int[INITIAL_CAPACITY];
+        private int[] returnDay = new int[INITIAL_CAPACITY];
+        // Cents fit an int up to a fine of about $21 million, far above any real one; larger ones are capped
+        private int[] fineCents = new int[INITIAL_CAPACITY];
+
+        private Columns(int recentFromDay) {
+            this.recentFromDay = recentFromDay;
+        }
+
+        void append(UUID recordId, UUID bookId, UUID borrowerId, String categoryName,
+                    int borrowDayValue, int dueDayValue, int returnDayValue, int fine) {
+            if (size == book.length) {
+                grow();
+            }
+            int bookOrdinal = books.of(bookId);
+            int borrowerOrdinal = borrowers.of(borrowerId);
+            book[size] = bookOrdinal;
+            borrower[size] = borrowerOrdinal;
+            category[size] = categories.of(categoryName);
+            borrowDay[size] = borrowDayValue;
+            dueDay[size] = dueDayValue;
+            returnDay[size] = returnDayValue;
+            fineCents[size] = fine;
+            if (returnDayValue == NOT_RETURNED) {
+                outstanding.put(loanKey(borrowerOrdinal, bookOrdinal), size);
+            }
+            if (recentRecordIds != null && borrowDayValue >= recentFromDay) {
+                recentRecordIds.add(recordId);
+            }
+            size++;
+        }
+
+        /**
+         * Appends a new borrow. While changes that committed during a refresh are replayed, skips
+         * the ones the refresh already read; a return it already read finds no outstanding loan.
+         */
+        void appendBorrow(UUID recordId, UUID bookId, UUID borrowerId, String categoryName,
+                          int borrowDayValue, int dueDayValue) {
+            if (recentRecordIds != null && recentRecordIds.contains(recordId)) {
+                return;
+            }
+            append(recordId, bookId, borrowerId, categoryName, borrowDayValue, dueDayValue, NOT_RETURNED, 0);
+        }
+
+        void markReturned(UUID bookId, UUID borrowerId, int returnDayValue, int fine) {
+            Long key = loanKey(bookId, borrowerId);
+            Integer row = key == null ? null : outstanding.remove(key);
+            if (row != null) {
+                returnDay[row] = returnDayValue;
+                fineCents[row] = fine;
+            }
+        }
+
+        /**
+         * Sets the fine of an outstanding loan; a loan returned since the fine was read keeps its final fine
+         */
+        void updateFine(UUID bookId, UUID borrowerId, int fine) {
+            Long key = loanKey(bookId, borrowerId);
+            Integer row = key == null ? null : outstanding.get(key);
+            if (row != null) {
+                fineCents[row] = fine;
+            }
+        }
+
+        private Long loanKey(UUID bookId, UUID borrowerId) {
+            Integer bookOrdinal = books.ordinals.get(bookId);
+            Integer borrowerOrdinal = borrowers.ordinals.get(borrowerId);
+            return bookOrdinal == null || borrowerOrdinal == null ? null : loanKey(borrowerOrdinal, bookOrdinal);
+        }
+
+        private void grow() {
+            int capacity = book.length + (book.length >> 1);
+            book = Arrays.copyOf(book, capacity);
+            borrower = Arrays.copyOf(borrower, capacity);
+            category = Arrays.copyOf(category, capacity);
+            borrowDay = Arrays.copyOf(borrowDay, capacity);
+            dueDay = Arrays.copyOf(dueDay, capacity);
+            returnDay = Arrays.copyOf(returnDay, capacity);
+            fineCents = Arrays.copyOf(fineCents, capacity);
+        }
+
+        private static long loanKey(int borrowerOrdinal, int bookOrdinal) {
+            return ((long) borrowerOrdinal << 32) | (bookOrdinal & 0xFFFFFFFFL);
+        }
+    }
+
+    private static final class Ordinals<K> {
+        private final Map<K, Integer> ordinals = new HashMap<>();
+        private final List<K> keys = new ArrayList<>();
+
+        int of(K key) {
+            Integer ordinal = ordinals.get(key);
+            if (ordinal == null) {
+                ordinal = keys.size();
+                ordinals.put(key, ordinal);
+                keys.add(key);
+            }
+            return ordinal;
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
+}
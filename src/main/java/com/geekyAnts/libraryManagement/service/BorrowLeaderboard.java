@@ -0,0 +1,214 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Borrow count of every borrowed book and the K most borrowed, kept in memory.
+ *
+ * Each committed borrow adds one to its book's count. Between checks counts only grow, so the
+ * top K stay exact by comparing each new count with the smallest of them; the top K are then
+ * published as an immutable list that readers take without locking.
+ *
+ * Loaded from borrow_records at startup and checked against them on a schedule. A book is only
+ * repaired when its count differs on two checks in a row, since a borrow committed while the
+ * table is read can show up in one and not yet in the other.
+ */
+@Component
+@Slf4j
+public class BorrowLeaderboard {
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final int topK;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<UUID, Entry> counts = new HashMap<>();
+    private final List<Entry> top = new ArrayList<>();
+    private Set<UUID> suspectBooks = Collections.emptySet();
+    private volatile boolean loaded;
+    private volatile List<Ranking> published = List.of();
+
+    public BorrowLeaderboard(BorrowRecordRepository borrowRecordRepository,
+                             @Value("${library.analytics.top-k:5}") int topK) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("Leaderboard size must be positive");
+        }
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.topK = topK;
+    }
+
+    /**
+     * Loads the counts once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<UUID, Long> borrowCounts = loadBorrowCounts();
+        lock.lock();
+        try {
+            counts.clear();
+            borrowCounts.forEach((bookId, count) -> counts.put(bookId, new Entry(bookId, count)));
+            rankAll();
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Borrow leaderboard loaded for {} books", borrowCounts.size());
+    }
+
+    /**
+     * Counts the borrow once the current transaction commits
+     */
+    public void recordBorrow(UUID bookId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.lock();
+            try {
+                Entry entry = counts.computeIfAbsent(bookId, id -> new Entry(id, 0));
+                entry.count++;
+                if (rank(entry)) {
+                    publish();
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * The most borrowed books, most borrowed first, at most K of them
+     */
+    public List<Ranking> topBorrowed() {
+        return published;
+    }
+
+    /**
+     * Compares the counts with the borrow_records table and repairs books that differed on the
+     * previous check too
+     */
+    @Scheduled(fixedDelayString = "${library.analytics.verify-interval-ms:300000}",
+               initialDelayString = "${library.analytics.verify-interval-ms:300000}")
+    public void verify() {
+        if (!loaded) {
+            return;
+        }
+
+        try {
+            Map<UUID, Long> expected = loadBorrowCounts();
+            Set<UUID> mismatched = new HashSet<>();
+            int repaired = 0;
+            lock.lock();
+            try {
+                Set<UUID> bookIds = new HashSet<>(expected.keySet());
+                bookIds.addAll(counts.keySet());
+                for (UUID bookId : bookIds) {
+                    long expectedCount = expected.getOrDefault(bookId, 0L);
+                    Entry entry = counts.get(bookId);
+                    long count = entry == null ? 0 : entry.count;
+                    if (count == expectedCount) {
+                        continue;
+                    }
+                    if (!suspectBooks.contains(bookId)) {
+                        mismatched.add(bookId);
+                        continue;
+                    }
+                    log.warn("Repairing borrow count of book {}: leaderboard={}, table={}", bookId, count, expectedCount);
+                    if (expectedCount == 0) {
+                        counts.remove(bookId);
+                    } else if (entry == null) {
+                        counts.put(bookId, new Entry(bookId, expectedCount));
+                    } else {
+                        entry.count = expectedCount;
+                    }
+                    repaired++;
+                }
+                // A count may have gone down, which the incremental ranking does not handle
+                if (repaired > 0) {
+                    rankAll();
+                }
+                suspectBooks = mismatched;
+            } finally {
+                lock.unlock();
+            }
+            log.info("Verified borrow leaderboard for {} books: {} repaired, {} pending recheck",
+                    expected.size(), repaired, mismatched.size());
+        } catch (Exception e) {
+            log.error("Error verifying borrow leaderboard: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<UUID, Long> loadBorrowCounts() {
+        Map<UUID, Long> borrowCounts = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.findTopBorrowedBooks()) {
+            borrowCounts.put((UUID) row[0], (Long) row[1]);
+        }
+        return borrowCounts;
+    }
+
+    /**
+     * Moves an entry whose count just went up into or within the top K.
+     * Returns whether the top K changed.
+     */
+    private boolean rank(Entry entry) {
+        int position = top.indexOf(entry);
+        if (position < 0) {
+            if (top.size() < topK) {
+                top.add(entry);
+            } else if (entry.count > top.get(topK - 1).count) {
+                top.set(topK - 1, entry);
+            } else {
+                return false;
+            }
+            position = top.size() - 1;
+        }
+        // Move up past entries with a smaller count
+        while (position > 0 && top.get(position - 1).count < entry.count) {
+            Collections.swap(top, position - 1, position);
+            position--;
+        }
+        return true;
+    }
+
+    private void rankAll() {
+        top.clear();
+        counts.values().stream()
+                .sorted(Comparator.comparingLong((Entry entry) -> entry.count).reversed())
+                .limit(topK)
+                .forEach(top::add);
+        publish();
+    }
+
+    private void publish() {
+        published = top.stream().map(entry -> new Ranking(entry.bookId, entry.count)).toList();
+    }
+
+    public record Ranking(UUID bookId, long borrowCount) {
+    }
+
+    /**
+     * A book's count; identity matters, as the top K list holds the same entries as the map
+     */
+    private static final class Entry {
+        private final UUID bookId;
+        private long count;
+
+        private Entry(UUID bookId, long count) {
+            this.bookId = bookId;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.enums.TrendingWindow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Borrows and returns per book and per category over the last five minutes, hour and day.
+ *
+ * Every tracked book or category owns a row of int counters in one array allocated at startup. For
+ * each window a row holds a ring of buckets (10 of 30 seconds, 12 of 5 minutes, 24 of an hour),
+ * once for borrows and once for returns. An event adds one to the current bucket of each ring.
+ * When time moves on to a new bucket, that bucket is cleared in every row before it is reused,
+ * and rows with nothing left in the day ring are freed. A window's count is the sum of its ring,
+ * so it covers the current partial bucket and the ones before it.
+ *
+ * Memory is fixed by the number of rows, whatever the event rate. While every book row is taken,
+ * events for other books still count towards their category. Counts start empty at startup.
+ */
+@Component
+@Slf4j
+public class BorrowRateTracker {
+
+    private static final TrendingWindow[] WINDOWS = TrendingWindow.values();
+    private static final int[] OFFSETS = new int[WINDOWS.length];
+    // Buckets of all rings of one kind of event; a row holds borrows, then returns
+    private static final int RING_BUCKETS;
+    private static final int BORROWS = 0;
+
+    static {
+        int offset = 0;
+        for (TrendingWindow window : WINDOWS) {
+            OFFSETS[window.ordinal()] = offset;
+            offset += window.getBuckets();
+        }
+        RING_BUCKETS = offset;
+    }
+
+    private static final int RETURNS = RING_BUCKETS;
+    private static final int ROW_WIDTH = 2 * RING_BUCKETS;
+
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Counters<UUID> books;
+    private final Counters<String> categories;
+    // The bucket each window is filling, in bucket lengths since the epoch
+    private final long[] epochs = new long[WINDOWS.length];
+    private long untrackedEvents;
+
+    public BorrowRateTracker(@Value("${library.trending.max-books:10000}") int maxBooks,
+                             @Value("${library.trending.max-categories:1000}") int maxCategories,
+                             Clock clock) {
+        if (maxBooks <= 0 || maxCategories <= 0) {
+            throw new IllegalArgumentException("Trending row limits must be positive");
+        }
+        this.clock = clock;
+        this.books = new Counters<>(maxBooks);
+        this.categories = new Counters<>(maxCategories);
+        long now = clock.millis();
+        for (TrendingWindow window : WINDOWS) {
+            epochs[window.ordinal()] = now / window.getBucketMillis();
+        }
+    }
+
+    /**
+     * Counts a borrow of the book once the current transaction commits
+     */
+    public void recordBorrow(UUID bookId, String category) {
+        TransactionHooks.afterCommit(() -> record(bookId, category, BORROWS));
+    }
+
+    /**
+     * Counts a return of the book once the current transaction commits
+     */
+    public void recordReturn(UUID bookId, String category) {
+        TransactionHooks.afterCommit(() -> record(bookId, category, RETURNS));
+    }
+
+    /**
+     * The books with the most borrows in the window, at most limit of them, and every category with
+     * a borrow or return in it, most borrowed first
+     */
+    public Trending trending(TrendingWindow window, int limit) {
+        lock.lock();
+        try {
+            advance(clock.millis());
+            return new Trending(books.top(window, limit), categories.top(window, Integer.MAX_VALUE));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(UUID bookId, String category, int kind) {
+        lock.lock();
+        try {
+            advance(clock.millis());
+            if (!books.add(bookId, kind, epochs) && untrackedEvents++ == 0) {
+                log.warn("All trending book rows are taken; other books count only towards their category until rows free up");
+            }
+            categories.add(category, kind, epochs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the buckets each window has moved past since the last event, at most a full ring
+     */
+    private void advance(long now) {
+        for (TrendingWindow window : WINDOWS) {
+            int w = window.ordinal();
+            long epoch = now / window.getBucketMillis();
+            if (epoch <= epochs[w]) {
+                continue;
+            }
+            long steps = Math.min(epoch - epochs[w], window.getBuckets());
+            for (long step = 1; step <= steps; step++) {
+                int bucket = (int) ((epochs[w] + step) % window.getBuckets());
+                books.clearBucket(window, bucket);
+                categories.clearBucket(window, bucket);
+            }
+            epochs[w] = epoch;
+        }
+
+        int freed = books.freeQuiet();
+        categories.freeQuiet();
+        if (freed > 0 && untrackedEvents > 0) {
+            log.info("Trending book rows freed up again; {} book events went untracked meanwhile", untrackedEvents);
+            untrackedEvents = 0;
+        }
+    }
+
+    public record Rate<K>(K key, long borrows, long returns) {
+    }
+
+    public record Trending(List<Rate<UUID>> books, List<Rate<String>> categories) {
+    }
+
+    /**
+     * Rows of counters for up to capacity keys. Not thread-safe; the outer class guards it with its lock.
+     */
+    private static final class Counters<K> {
+        private final int[] counts;
+        private final Map<K, Integer> rows = new HashMap<>();
+        private final int[] freeRows;
+        private int freeCount;
+        // Set when a day bucket is cleared, so quiet rows are looked for once an hour
+        private boolean dayBucketCleared;
+
+        Counters(int capacity) {
+            this.counts = new int[capacity * ROW_WIDTH];
+            this.freeRows = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                freeRows[i] = capacity - 1 - i;
+            }
+            this.freeCount = capacity;
+        }
+
+        /**
+         * Counts one event in the current bucket of every ring. Returns false when every row is taken.
+         */
+        boolean add(K key, int kind, long[] epochs) {
+            Integer row = rows.get(key);
+            if (row == null) {
+                if (freeCount == 0) {
+                    return false;
+                }
+                row = freeRows[--freeCount];
+                rows.put(key, row);
+            }
+            int base = row * ROW_WIDTH + kind;
+            for (TrendingWindow window : WINDOWS) {
+                int w = window.ordinal();
+                counts[base + OFFSETS[w] + (int) (epochs[w] % window.getBuckets())]++;
+            }
+            return true;
+        }
+
+        void clearBucket(TrendingWindow window, int bucket) {
+            int column = OFFSETS[window.ordinal()] + bucket;
+            for (int row : rows.values()) {
+                counts[row * ROW_WIDTH + BORROWS + column] = 0;
+                counts[row * ROW_WIDTH + RETURNS + column] = 0;
+            }
+            if (window == TrendingWindow.DAY) {
+                dayBucketCleared = true;
+            }
+        }
+
+        /**
+         * Frees the rows with nothing left in the day ring, which holds everything the shorter rings
+         * do. Runs once after each day bucket is cleared. Returns the number freed.
+         */
+        int freeQuiet() {
+            if (!dayBucketCleared) {
+                return 0;
+            }
+            dayBucketCleared = false;
+            int freed = 0;
+            Iterator<Integer> iterator = rows.values().iterator();
+            while (iterator.hasNext()) {
+                int row = iterator.next();
+                if (sum(row, BORROWS, TrendingWindow.DAY) == 0 && sum(row, RETURNS, TrendingWindow.DAY) == 0) {
+                    iterator.remove();
+                    freeRows[freeCount++] = row;
+                    freed++;
+                }
+            }
+            return freed;
+        }
+
+        List<Rate<K>> top(TrendingWindow window, int limit) {
+            List<Rate<K>> rates = new ArrayList<>();
+            rows.forEach((key, row) -> {
+                long borrows = sum(row, BORROWS, window);
+                long returns = sum(row, RETURNS, window);
+                if (borrows > 0 || returns > 0) {
+                    rates.add(new Rate<>(key, borrows, returns));
+                }
+            });
+            rates.sort(Comparator.comparingLong((Rate<K> rate) -> rate.borrows())
+                    .thenComparingLong(Rate::returns)
+                    .reversed());
+            return rates.size() > limit ? rates.subList(0, limit) : rates;
+        }
+
+        private long sum(int row, int kind, TrendingWindow window) {
+            int start = row * ROW_WIDTH + kind + OFFSETS[window.ordinal()];
+            long sum = 0;
+            for (int i = start; i < start + window.getBuckets(); i++) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+    }
+}
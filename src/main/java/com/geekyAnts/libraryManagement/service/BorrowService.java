@@ -1,26 +1,40 @@
 package com.geekyAnts.libraryManagement.service;
 
+import com.geekyAnts.libraryManagement.dto.BatchBorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BatchItemResultDTO;
+import com.geekyAnts.libraryManagement.dto.BatchResultDTO;
+import com.geekyAnts.libraryManagement.dto.BatchReturnRequestDTO;
 import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
 import com.geekyAnts.libraryManagement.dto.BorrowRequestDTO;
 import com.geekyAnts.libraryManagement.dto.ReturnRequestDTO;
 import com.geekyAnts.libraryManagement.entity.Book;
 import com.geekyAnts.libraryManagement.entity.BorrowRecord;
 import com.geekyAnts.libraryManagement.entity.Borrower;
-import com.geekyAnts.libraryManagement.entity.FinePolicy;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
+import com.geekyAnts.libraryManagement.enums.LoanCheckResult;
 import com.geekyAnts.libraryManagement.repository.BookRepository;
 import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
 import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
-import com.geekyAnts.libraryManagement.repository.FinePolicyRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,10 +43,27 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BorrowService {
     
+    // Oracle allows 1000 elements in an IN list; other drivers cap bind parameters higher
+    private static final int OVERDUE_LOOKUP_CHUNK = 1000;
+    
     private final BorrowRecordRepository borrowRecordRepository;
     private final BookRepository bookRepository;
     private final BorrowerRepository borrowerRepository;
-    private final FinePolicyRepository finePolicyRepository;
+    private final InventoryLedger inventoryLedger;
+    private final ActiveLoanIndex activeLoanIndex;
+    private final FineRateTable fineRateTable;
+    private final OverdueTracker overdueTracker;
+    private final BookSuggestIndex bookSuggestIndex;
+    private final CoBorrowIndex coBorrowIndex;
+    private final BorrowLeaderboard borrowLeaderboard;
+    private final BorrowRateTracker borrowRateTracker;
+    private final BorrowSketches borrowSketches;
+    private final BorrowHistoryColumns borrowHistoryColumns;
+    private final DataExporter dataExporter;
+    private final EntityManager entityManager;
+    
+    @Value("${library.inventory.max-attempts:3}")
+    private int maxInventoryAttempts;
     
     public BorrowRecordDTO borrowBook(BorrowRequestDTO request) {
         try {
@@ -55,31 +86,28 @@ public class BorrowService {
             
             log.info("Borrower: {} ({}), Book: {} by {} - Available copies: {}", 
                     borrower.getName(), borrower.getMembershipType(), 
-                    book.getTitle(), book.getAuthor(), book.getAvailableCopies());
+                    book.getTitle(), book.getAuthor(), inventoryLedger.getAvailableCopies(book.getId()));
             
-            // Check if borrower has reached max borrow limit
-            long activeBorrowCount = borrowRecordRepository.countActiveBorrowRecordsByBorrower(request.getBorrowerId());
-            if (activeBorrowCount >= borrower.getMaxBorrowLimit()) {
+            // Check the borrow limit and duplicate loans against the active loan index
+            // (the loan is recorded there now and undone if this transaction rolls back)
+            LoanCheckResult loanCheck = activeLoanIndex.tryAdd(borrower.getId(), book.getId(), borrower.getMaxBorrowLimit());
+            if (loanCheck == LoanCheckResult.LIMIT_REACHED) {
                 log.warn("Borrower {} has reached maximum borrow limit: {}/{}", 
-                        borrower.getName(), activeBorrowCount, borrower.getMaxBorrowLimit());
+                        borrower.getName(), activeLoanIndex.countActiveLoans(borrower.getId()), borrower.getMaxBorrowLimit());
                 throw new RuntimeException("Borrower has reached maximum borrow limit of " + borrower.getMaxBorrowLimit());
             }
+            if (loanCheck == LoanCheckResult.ALREADY_BORROWED) {
+                log.warn("Borrower {} already has book {} borrowed", borrower.getName(), book.getTitle());
+                throw new RuntimeException("Borrower already has this book borrowed");
+            }
             
-            // Check if book is available
-            if (book.getAvailableCopies() <= 0) {
+            // Take a copy (released again if this transaction rolls back)
+            if (!tryTakeCopy(book)) {
                 log.warn("Book {} is not available for borrowing. Available copies: {}", 
-                        book.getTitle(), book.getAvailableCopies());
+                        book.getTitle(), inventoryLedger.getAvailableCopies(book.getId()));
                 throw new RuntimeException("Book is not available for borrowing");
             }
             
-            // Check if borrower already has this book borrowed
-            Optional<BorrowRecord> existingRecord = borrowRecordRepository
-                    .findActiveBorrowRecordByBorrowerAndBook(request.getBorrowerId(), request.getBookId());
-            if (existingRecord.isPresent()) {
-                log.warn("Borrower {} already has book {} borrowed", borrower.getName(), book.getTitle());
-                throw new RuntimeException("Borrower already has this book borrowed");
-            }
-            
             // Create borrow record
             BorrowRecord borrowRecord = new BorrowRecord();
             borrowRecord.setBook(book);
@@ -88,14 +116,10 @@ public class BorrowService {
             borrowRecord.setDueDate(LocalDate.now().plusDays(14));
             borrowRecord.setIsActive(true);
             
-            // Reduce available copies
-            book.setAvailableCopies(book.getAvailableCopies() - 1);
-            book.setIsAvailable(book.getAvailableCopies() > 0);
-            bookRepository.save(book);
-            
             BorrowRecord savedRecord = borrowRecordRepository.save(borrowRecord);
+            publishBorrow(savedRecord);
             log.info("Successfully borrowed book. Record ID: {}, Due date: {}, Remaining copies: {}", 
-                    savedRecord.getId(), savedRecord.getDueDate(), book.getAvailableCopies());
+                    savedRecord.getId(), savedRecord.getDueDate(), inventoryLedger.getAvailableCopies(book.getId()));
             
             return BorrowRecordDTO.fromEntity(savedRecord);
         } catch (Exception e) {
@@ -125,28 +149,12 @@ public class BorrowService {
                     borrowRecord.getBook().getTitle(), borrowRecord.getBook().getAuthor(), 
                     borrowRecord.getBorrower().getName());
             
-            // Set return date
-            borrowRecord.setReturnDate(LocalDate.now());
-            
-            // Calculate fine if overdue
-            if (borrowRecord.isOverdue()) {
-                BigDecimal fineAmount = calculateFine(borrowRecord);
-                borrowRecord.setFineAmount(fineAmount);
-                log.warn("Book returned overdue. Fine calculated: ${}, Days overdue: {}", 
-                        fineAmount, borrowRecord.getDaysOverdue());
-            } else {
-                log.info("Book returned on time. No fine applied.");
-            }
-            
-            // Increase available copies
+            closeBorrowRecord(borrowRecord);
             Book book = borrowRecord.getBook();
-            book.setAvailableCopies(book.getAvailableCopies() + 1);
-            book.setIsAvailable(book.getAvailableCopies() > 0);
-            bookRepository.save(book);
             
             BorrowRecord savedRecord = borrowRecordRepository.save(borrowRecord);
             log.info("Successfully returned book. Record ID: {}, Return date: {}, Available copies: {}", 
-                    savedRecord.getId(), savedRecord.getReturnDate(), book.getAvailableCopies());
+                    savedRecord.getId(), savedRecord.getReturnDate(), inventoryLedger.getAvailableCopies(book.getId()));
             
             return BorrowRecordDTO.fromEntity(savedRecord);
         } catch (Exception e) {
@@ -156,6 +164,128 @@ public class BorrowService {
         }
     }
     
+    /**
+     * Borrows a cart of books for one borrower in a single transaction. Books that cannot be
+     * borrowed are reported per item and do not fail the rest of the cart.
+     */
+    public BatchResultDTO borrowBooks(BatchBorrowRequestDTO request) {
+        try {
+            log.info("Processing batch borrow request: borrowerId={}, books={}", 
+                    request.getBorrowerId(), request.getBookIds().size());
+            
+            Borrower borrower = borrowerRepository.findByIdAndIsActiveTrue(request.getBorrowerId())
+                    .orElseThrow(() -> {
+                        log.error("Borrower not found or inactive: {}", request.getBorrowerId());
+                        return new RuntimeException("Borrower not found or inactive");
+                    });
+            
+            // One lookup for all books; limits and duplicates are checked against the active loan index
+            Map<UUID, Book> books = bookRepository.findByIdInAndIsDeletedFalse(new LinkedHashSet<>(request.getBookIds()))
+                    .stream()
+                    .collect(Collectors.toMap(Book::getId, Function.identity()));
+            
+            List<BatchItemResultDTO> results = new ArrayList<>();
+            List<BorrowRecord> newRecords = new ArrayList<>();
+            Set<UUID> seen = new HashSet<>();
+            LocalDate today = LocalDate.now();
+            for (UUID bookId : request.getBookIds()) {
+                Book book = books.get(bookId);
+                if (!seen.add(bookId)) {
+                    results.add(BatchItemResultDTO.failure(bookId, "Book appears more than once in this batch"));
+                    continue;
+                }
+                if (book == null) {
+                    results.add(BatchItemResultDTO.failure(bookId, "Book not found or deleted"));
+                    continue;
+                }
+                
+                LoanCheckResult loanCheck = activeLoanIndex.tryAdd(borrower.getId(), bookId, borrower.getMaxBorrowLimit());
+                if (loanCheck == LoanCheckResult.ALREADY_BORROWED) {
+                    results.add(BatchItemResultDTO.failure(bookId, "Borrower already has this book borrowed"));
+                } else if (loanCheck == LoanCheckResult.LIMIT_REACHED) {
+                    results.add(BatchItemResultDTO.failure(bookId, 
+                            "Borrower has reached maximum borrow limit of " + borrower.getMaxBorrowLimit()));
+                } else if (!tryTakeCopy(book)) {
+                    activeLoanIndex.remove(borrower.getId(), bookId);
+                    results.add(BatchItemResultDTO.failure(bookId, "Book is not available for borrowing"));
+                } else {
+                    BorrowRecord borrowRecord = new BorrowRecord();
+                    borrowRecord.setBook(book);
+                    borrowRecord.setBorrower(borrower);
+                    borrowRecord.setBorrowDate(today);
+                    borrowRecord.setDueDate(today.plusDays(14));
+                    borrowRecord.setIsActive(true);
+                    newRecords.add(borrowRecord);
+                    // Placeholder, replaced with the saved record below
+                    results.add(null);
+                }
+            }
+            
+            // Inserted together so Hibernate can send them as one JDBC batch
+            List<BorrowRecord> savedRecords = borrowRecordRepository.saveAll(newRecords);
+            savedRecords.forEach(this::publishBorrow);
+            int saved = 0;
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) == null) {
+                    BorrowRecord savedRecord = savedRecords.get(saved++);
+                    results.set(i, BatchItemResultDTO.success(savedRecord.getBook().getId(), 
+                            "Book borrowed successfully", BorrowRecordDTO.fromEntity(savedRecord)));
+                }
+            }
+            
+            log.info("Batch borrow completed for borrower {}: {} of {} books borrowed", 
+                    borrower.getName(), savedRecords.size(), request.getBookIds().size());
+            return BatchResultDTO.of(results);
+        } catch (Exception e) {
+            log.error("Error processing batch borrow request: borrowerId={}, error={}", 
+                    request.getBorrowerId(), e.getMessage(), e);
+            throw new RuntimeException("Failed to borrow books: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Returns several borrow records in a single transaction, reporting the outcome per record
+     */
+    public BatchResultDTO returnBooks(BatchReturnRequestDTO request) {
+        try {
+            log.info("Processing batch return request: records={}", request.getBorrowRecordIds().size());
+            
+            Map<UUID, BorrowRecord> records = borrowRecordRepository
+                    .findWithDetailsByIdIn(new LinkedHashSet<>(request.getBorrowRecordIds()))
+                    .stream()
+                    .collect(Collectors.toMap(BorrowRecord::getId, Function.identity()));
+            
+            List<BatchItemResultDTO> results = new ArrayList<>();
+            List<BorrowRecord> returnedRecords = new ArrayList<>();
+            Set<UUID> seen = new HashSet<>();
+            for (UUID recordId : request.getBorrowRecordIds()) {
+                BorrowRecord borrowRecord = records.get(recordId);
+                if (!seen.add(recordId)) {
+                    results.add(BatchItemResultDTO.failure(recordId, "Borrow record appears more than once in this batch"));
+                } else if (borrowRecord == null) {
+                    results.add(BatchItemResultDTO.failure(recordId, "Borrow record not found"));
+                } else if (!borrowRecord.getIsActive() || borrowRecord.getReturnDate() != null) {
+                    results.add(BatchItemResultDTO.failure(recordId, "Book is already returned or record is inactive"));
+                } else {
+                    closeBorrowRecord(borrowRecord);
+                    returnedRecords.add(borrowRecord);
+                    results.add(BatchItemResultDTO.success(recordId, "Book returned successfully", 
+                            BorrowRecordDTO.fromEntity(borrowRecord)));
+                }
+            }
+            
+            // Updated together so Hibernate can send them as one JDBC batch
+            borrowRecordRepository.saveAll(returnedRecords);
+            
+            log.info("Batch return completed: {} of {} records returned", 
+                    returnedRecords.size(), request.getBorrowRecordIds().size());
+            return BatchResultDTO.of(results);
+        } catch (Exception e) {
+            log.error("Error processing batch return request: error={}", e.getMessage(), e);
+            throw new RuntimeException("Failed to return books: " + e.getMessage(), e);
+        }
+    }
+    
     @Transactional(readOnly = true)
     public List<BorrowRecordDTO> getActiveBorrowRecords() {
         return borrowRecordRepository.findActiveBorrowRecords()
@@ -172,22 +302,102 @@ public class BorrowService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Holds one read-only transaction, and its connection, until every borrow record is written
+     */
+    @Transactional(readOnly = true)
+    public void exportBorrowRecords(OutputStream out, DataFormat format) throws IOException {
+        dataExporter.exportBorrowRecords(out, format);
+    }
+    
+    /**
+     * Loads the loans in the overdue tracker's set by ID instead of scanning for past due dates,
+     * OVERDUE_LOOKUP_CHUNK IDs per query so the IN list stays within driver limits
+     */
     @Transactional(readOnly = true)
     public List<BorrowRecordDTO> getOverdueBorrowRecords() {
-        return borrowRecordRepository.findOverdueBorrowRecords()
-                .stream()
-                .map(BorrowRecordDTO::fromEntity)
-                .collect(Collectors.toList());
+        List<UUID> overdueRecordIds = List.copyOf(overdueTracker.getOverdueRecordIds());
+        List<BorrowRecordDTO> overdue = new ArrayList<>();
+        for (int from = 0; from < overdueRecordIds.size(); from += OVERDUE_LOOKUP_CHUNK) {
+            List<UUID> chunk = overdueRecordIds.subList(from, Math.min(overdueRecordIds.size(), from + OVERDUE_LOOKUP_CHUNK));
+            borrowRecordRepository.findWithDetailsByIdIn(chunk).stream()
+                    // A record returned after it fired may still be in the set until the return commits
+                    .filter(BorrowRecord::isOverdue)
+                    .map(BorrowRecordDTO::fromEntity)
+                    .forEach(overdue::add);
+            // Only the DTOs are kept, so each chunk's entities can go
+            entityManager.clear();
+        }
+        overdue.sort(Comparator.comparing(BorrowRecordDTO::getDueDate));
+        return overdue;
     }
     
-    private BigDecimal calculateFine(BorrowRecord borrowRecord) {
-        // Get fine policy for book category
-        Optional<FinePolicy> finePolicy = finePolicyRepository.findByCategoryAndIsActiveTrue(borrowRecord.getBook().getCategory());
-        
-        BigDecimal finePerDay = finePolicy.map(FinePolicy::getFinePerDay)
-                .orElse(BigDecimal.valueOf(1.0)); // Default fine of $1 per day
+    /**
+     * Reserves a copy in the inventory ledger and confirms it with a conditional UPDATE on the books row.
+     * A sold-out title is rejected by the ledger without a database round trip.
+     */
+    private boolean tryTakeCopy(Book book) {
+        for (int attempt = 1; attempt <= maxInventoryAttempts; attempt++) {
+            if (!inventoryLedger.tryReserve(book.getId())) {
+                return false;
+            }
+            if (bookRepository.changeAvailableCopies(book.getId(), -1) == 1) {
+                return true;
+            }
+            // The ledger had a copy the row did not: resync it and try again
+            log.warn("Inventory conflict on book {} (attempt {}/{})", book.getTitle(), attempt, maxInventoryAttempts);
+            inventoryLedger.recordConditionalUpdateMiss(book.getId());
+        }
+        return false;
+    }
+    
+    /**
+     * Tells the overdue tracker and the borrow indexes about a new loan. Runs inside the borrow
+     * transaction and only registers their after-commit hooks, so nothing changes if it rolls back.
+     */
+    private void publishBorrow(BorrowRecord borrowRecord) {
+        Book book = borrowRecord.getBook();
+        UUID borrowerId = borrowRecord.getBorrower().getId();
+        overdueTracker.track(borrowRecord.getId(), borrowRecord.getDueDate());
+        bookSuggestIndex.recordBorrow(book.getId());
+        coBorrowIndex.recordBorrow(borrowerId, book.getId());
+        borrowLeaderboard.recordBorrow(book.getId());
+        borrowRateTracker.recordBorrow(book.getId(), book.getCategory());
+        borrowSketches.recordBorrow(borrowRecord.getId(), borrowerId, book.getId(), book.getCategory());
+        borrowHistoryColumns.recordBorrow(borrowRecord.getId(), book.getId(), borrowerId, book.getCategory(),
+                borrowRecord.getBorrowDate(), borrowRecord.getDueDate());
+    }
+    
+    /**
+     * Sets the return date, finalizes any fine and puts the copy back
+     */
+    private void closeBorrowRecord(BorrowRecord borrowRecord) {
+        // Set return date
+        LocalDate returnDate = LocalDate.now();
+        borrowRecord.setReturnDate(returnDate);
         
+        // Finalize the fine: use the amount accrued overnight when it is current, otherwise price it from the cached rates
         long daysOverdue = borrowRecord.getDaysOverdue();
-        return finePerDay.multiply(BigDecimal.valueOf(daysOverdue));
+        if (daysOverdue > 0) {
+            BigDecimal fineAmount = returnDate.equals(borrowRecord.getFineAccruedThrough())
+                    ? borrowRecord.getFineAmount()
+                    : fineRateTable.calculateFine(borrowRecord.getBook().getCategory(), daysOverdue);
+            borrowRecord.setFineAmount(fineAmount);
+            log.warn("Book returned overdue. Fine calculated: ${}, Days overdue: {}", fineAmount, daysOverdue);
+        } else {
+            log.info("Book returned on time. No fine applied.");
+        }
+        borrowRecord.setFineAccruedThrough(returnDate);
+        
+        // Put the copy back with a single conditional UPDATE, then in the inventory ledger
+        Book book = borrowRecord.getBook();
+        if (bookRepository.changeAvailableCopies(book.getId(), 1) == 0) {
+            log.warn("Could not restore available copies for book {}", book.getId());
+        }
+        inventoryLedger.release(book.getId());
+        activeLoanIndex.remove(borrowRecord.getBorrower().getId(), book.getId());
+        overdueTracker.untrack(borrowRecord.getId());
+        borrowRateTracker.recordReturn(book.getId(), book.getCategory());
+        borrowHistoryColumns.recordReturn(book.getId(), borrowRecord.getBorrower().getId(), returnDate, borrowRecord.getFineAmount());
     }
 }
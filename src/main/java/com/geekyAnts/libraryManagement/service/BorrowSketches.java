@@ -0,0 +1,400 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate borrow statistics in fixed-size sketches: a HyperLogLog of distinct borrowers per book
+ * and per category, and a Count-Min Sketch of borrows per book with the books it estimates highest
+ * kept as heavy-hitter candidates. Every estimate comes with its error bound and confidence.
+ *
+ * Updated as borrows commit. The sketches are saved to a snapshot file on a schedule and at shutdown;
+ * at startup the snapshot is loaded and the borrows recorded since it was saved are replayed. When
+ * there is no usable snapshot, because it is missing, was saved with other settings, or its last
+ * borrow is not in the database, every borrow is replayed instead. Borrows still committing while a
+ * snapshot is saved can be missed.
+ */
+@Component
+@Slf4j
+public class BorrowSketches {
+
+    private static final int SNAPSHOT_MAGIC = 0x4C425331;
+    // Two-sided bound of 1.96 standard errors, which holds with 95% confidence
+    private static final double DISTINCT_STANDARD_ERRORS = 1.96;
+    private static final double DISTINCT_CONFIDENCE = 0.95;
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final int bookPrecision;
+    private final int categoryPrecision;
+    private final int width;
+    private final int depth;
+    private final int heavyHitters;
+    private final Path snapshotPath;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state;
+
+    public BorrowSketches(BorrowRecordRepository borrowRecordRepository,
+                          @Value("${library.sketches.book-precision:8}") int bookPrecision,
+                          @Value("${library.sketches.category-precision:12}") int categoryPrecision,
+                          @Value("${library.sketches.frequency-error:0.001}") double frequencyError,
+                          @Value("${library.sketches.frequency-confidence:0.99}") double frequencyConfidence,
+                          @Value("${library.sketches.heavy-hitters:100}") int heavyHitters,
+                          @Value("${library.sketches.snapshot-path:}") String snapshotPath) {
+        if (Math.min(bookPrecision, categoryPrecision) < HyperLogLog.MIN_PRECISION
+                || Math.max(bookPrecision, categoryPrecision) > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between "
+                    + HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION);
+        }
+        if (heavyHitters <= 0) {
+            throw new IllegalArgumentException("Heavy hitters tracked must be positive");
+        }
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.bookPrecision = bookPrecision;
+        this.categoryPrecision = categoryPrecision;
+        this.width = CountMinSketch.widthFor(frequencyError);
+        this.depth = CountMinSketch.depthFor(frequencyConfidence);
+        this.heavyHitters = heavyHitters;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+    }
+
+    /**
+     * Loads the snapshot and replays the borrows since, once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Snapshot snapshot = readSnapshot();
+        if (snapshot == null) {
+            rebuild();
+            return;
+        }
+        List<Object[]> rows = borrowRecordRepository.findBorrowEventsSince(snapshot.savedAt());
+        replay(snapshot.state(), rows);
+        log.info("Borrow sketches loaded from {} saved at {}, with {} borrows since",
+                snapshotPath, snapshot.savedAt(), rows.size());
+    }
+
+    /**
+     * Replays every borrow, ignoring any snapshot
+     */
+    public void rebuild() {
+        List<Object[]> rows = borrowRecordRepository.findBorrowEvents();
+        replay(new State(), rows);
+        log.info("Borrow sketches built from {} borrows", rows.size());
+    }
+
+    /**
+     * Counts the borrow once the current transaction commits
+     */
+    public void recordBorrow(UUID recordId, UUID borrowerId, UUID bookId, String category) {
+        TransactionHooks.afterCommit(() -> {
+            lock.lock();
+            try {
+                if (state != null) {
+                    state.record(recordId, borrowerId, bookId, category);
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Estimated borrows and distinct borrowers of the book; empty until the sketches are loaded
+     */
+    public Optional<BookEstimates> bookEstimates(UUID bookId) {
+        lock.lock();
+        try {
+            return state == null ? Optional.empty() : Optional.of(state.bookEstimates(bookId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The books estimated to be borrowed most, most borrowed first, at most limit of them and never
+     * more than the heavy hitters tracked
+     */
+    public List<BookEstimates> heavyHitters(int limit) {
+        lock.lock();
+        try {
+            if (state == null) {
+                return List.of();
+            }
+            return state.candidates.keySet().stream()
+                    .map(state::bookEstimates)
+                    .sorted(Comparator.comparingLong((BookEstimates estimates) -> estimates.borrows().value()).reversed())
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimated distinct borrowers of every borrowed category, most borrowers first
+     */
+    public List<CategoryEstimates> categoryEstimates() {
+        lock.lock();
+        try {
+            if (state == null) {
+                return List.of();
+            }
+            List<CategoryEstimates> estimates = new ArrayList<>();
+            state.categoryBorrowers.forEach((category, hll) ->
+                    estimates.add(new CategoryEstimates(category, distinct(hll, categoryPrecision))));
+            estimates.sort(Comparator.comparingLong((CategoryEstimates estimate) -> estimate.distinctBorrowers().value()).reversed());
+            return estimates;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the sketches to a temporary file and moves it over the snapshot, so a crash mid-write
+     * leaves the previous snapshot in place
+     */
+    @Scheduled(fixedDelayString = "${library.sketches.snapshot-interval-ms:300000}",
+               initialDelayString = "${library.sketches.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public void save() {
+        if (snapshotPath == null) {
+            return;
+        }
+
+        try {
+            byte[] bytes;
+            lock.lock();
+            try {
+                // With no borrows there is nothing to keep, nor a borrow to match the database by
+                if (state == null || state.lastRecordId == null) {
+                    return;
+                }
+                bytes = serialize(state, LocalDateTime.now());
+            } finally {
+                lock.unlock();
+            }
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, snapshotPath.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.info("Saved borrow sketches to {} ({} bytes)", snapshotPath, bytes.length);
+        } catch (IOException e) {
+            log.error("Error saving borrow sketches to {}: {}", snapshotPath, e.getMessage(), e);
+        }
+    }
+
+    private void replay(State built, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            built.record((UUID) row[0], (UUID) row[1], (UUID) row[2], (String) row[3]);
+        }
+        lock.lock();
+        try {
+            state = built;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Estimate distinct(HyperLogLog hll, int precision) {
+        long value = hll.estimate();
+        long errorBound = (long) Math.ceil(DISTINCT_STANDARD_ERRORS * HyperLogLog.relativeStandardError(precision) * value);
+        return new Estimate(value, errorBound, DISTINCT_CONFIDENCE);
+    }
+
+    private byte[] serialize(State state, LocalDateTime savedAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeUTF(savedAt.toString());
+        out.writeInt(bookPrecision);
+        out.writeInt(categoryPrecision);
+        out.writeInt(width);
+        out.writeInt(depth);
+        out.writeInt(heavyHitters);
+        writeUuid(out, state.lastRecordId);
+        state.borrows.writeTo(out);
+        out.writeInt(state.candidates.size());
+        for (UUID bookId : state.candidates.keySet()) {
+            writeUuid(out, bookId);
+        }
+        out.writeInt(state.bookBorrowers.size());
+        for (Map.Entry<UUID, HyperLogLog> entry : state.bookBorrowers.entrySet()) {
+            writeUuid(out, entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.writeInt(state.categoryBorrowers.size());
+        for (Map.Entry<String, HyperLogLog> entry : state.categoryBorrowers.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The saved sketches, or null when there is no snapshot or it cannot be used
+     */
+    private Snapshot readSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("{} is not a borrow sketch snapshot; rebuilding", snapshotPath);
+                return null;
+            }
+            LocalDateTime savedAt = LocalDateTime.parse(in.readUTF());
+            if (in.readInt() != bookPrecision || in.readInt() != categoryPrecision || in.readInt() != width
+                    || in.readInt() != depth || in.readInt() != heavyHitters) {
+                log.info("Borrow sketch snapshot {} was saved with other settings; rebuilding", snapshotPath);
+                return null;
+            }
+            State saved = new State();
+            saved.lastRecordId = readUuid(in);
+            if (!borrowRecordRepository.existsById(saved.lastRecordId)) {
+                log.info("Borrow sketch snapshot {} is from another database; rebuilding", snapshotPath);
+                return null;
+            }
+            saved.borrows = CountMinSketch.readFrom(in, width, depth);
+            int candidates = in.readInt();
+            for (int i = 0; i < candidates; i++) {
+                UUID bookId = readUuid(in);
+                saved.candidates.put(bookId, hash(bookId));
+            }
+            int books = in.readInt();
+            for (int i = 0; i < books; i++) {
+                saved.bookBorrowers.put(readUuid(in), HyperLogLog.readFrom(in, bookPrecision));
+            }
+            int categories = in.readInt();
+            for (int i = 0; i < categories; i++) {
+                saved.categoryBorrowers.put(in.readUTF(), HyperLogLog.readFrom(in, categoryPrecision));
+            }
+            return new Snapshot(savedAt, saved);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error reading borrow sketch snapshot {}; rebuilding: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Murmur3 finalizer over both halves of the id, so every bit of the hash depends on all of them
+     */
+    private static long hash(UUID id) {
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * An estimate and how far the true value may be from it with the given confidence. Borrow counts
+     * only overcount, so the true count lies between value - errorBound and value; distinct borrower
+     * counts may be off either way.
+     */
+    public record Estimate(long value, long errorBound, double confidence) {
+    }
+
+    public record BookEstimates(UUID bookId, Estimate borrows, Estimate distinctBorrowers) {
+    }
+
+    public record CategoryEstimates(String category, Estimate distinctBorrowers) {
+    }
+
+    private record Snapshot(LocalDateTime savedAt, State state) {
+    }
+
+    /**
+     * Not thread-safe; the outer class guards it with its lock
+     */
+    private final class State {
+        private CountMinSketch borrows = new CountMinSketch(width, depth);
+        // Heavy-hitter candidates and their hashes, at most heavyHitters of them
+        private final Map<UUID, Long> candidates = new HashMap<>();
+        private final Map<UUID, HyperLogLog> bookBorrowers = new HashMap<>();
+        private final Map<String, HyperLogLog> categoryBorrowers = new HashMap<>();
+        // The last borrow recorded, to tell whether a snapshot belongs to this database
+        private UUID lastRecordId;
+
+        void record(UUID recordId, UUID borrowerId, UUID bookId, String category) {
+            long borrowerHash = hash(borrowerId);
+            bookBorrowers.computeIfAbsent(bookId, id -> new HyperLogLog(bookPrecision)).add(borrowerHash);
+            categoryBorrowers.computeIfAbsent(category, c -> new HyperLogLog(categoryPrecision)).add(borrowerHash);
+            lastRecordId = recordId;
+
+            long bookHash = hash(bookId);
+            long estimate = borrows.add(bookHash);
+            if (candidates.containsKey(bookId)) {
+                return;
+            }
+            if (candidates.size() >= heavyHitters) {
+                // Replace the candidate now estimated lowest, if this book is estimated higher
+                UUID lowest = null;
+                long lowestEstimate = Long.MAX_VALUE;
+                for (Map.Entry<UUID, Long> candidate : candidates.entrySet()) {
+                    long candidateEstimate = borrows.estimate(candidate.getValue());
+                    if (candidateEstimate < lowestEstimate) {
+                        lowest = candidate.getKey();
+                        lowestEstimate = candidateEstimate;
+                    }
+                }
+                if (estimate <= lowestEstimate) {
+                    return;
+                }
+                candidates.remove(lowest);
+            }
+            candidates.put(bookId, bookHash);
+        }
+
+        BookEstimates bookEstimates(UUID bookId) {
+            Estimate borrowEstimate = new Estimate(borrows.estimate(hash(bookId)), borrows.errorBound(), borrows.confidence());
+            HyperLogLog hll = bookBorrowers.get(bookId);
+            Estimate distinctBorrowers = hll == null
+                    ? new Estimate(0, 0, DISTINCT_CONFIDENCE)
+                    : distinct(hll, bookPrecision);
+            return new BookEstimates(bookId, borrowEstimate, distinctBorrowers);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.entity.Borrower;
+import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of active borrowers by email and by the words of their name.
+ *
+ * Emails are normalized (trimmed, lowercased) and kept sorted, so a term is looked up as an exact
+ * email and as an email prefix. Names are split into lowercased words with accents removed; every
+ * word of the term must start a word of the name. Matches are ranked exact email first, then
+ * email prefix, then names whose words equal the term's words, then names whose words start with
+ * them, and alphabetically by name within a rank.
+ *
+ * Kept up to date by BorrowerService after each change commits and rebuilt at startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BorrowerSearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int EXACT_EMAIL = 1000;
+    private static final int EMAIL_PREFIX = 500;
+    private static final int EXACT_WORD = 20;
+    private static final int WORD_PREFIX = 10;
+    // A name that starts with the whole term ranks above one that only contains its words
+    private static final int NAME_PREFIX = 5;
+
+    private final BorrowerRepository borrowerRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, UUID> emails = new TreeMap<>();
+    private final NavigableMap<String, Set<UUID>> words = new TreeMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Rebuilds the index once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = borrowerRepository.findSearchableBorrowers();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            emails.clear();
+            words.clear();
+            for (Object[] row : rows) {
+                put((UUID) row[0], (String) row[1], (String) row[2]);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Borrower search index loaded for {} borrowers ({} name words)", rows.size(), words.size());
+    }
+
+    /**
+     * Indexes a new or changed borrower once the current transaction commits
+     */
+    public void index(Borrower borrower) {
+        UUID borrowerId = borrower.getId();
+        String name = borrower.getName();
+        String email = borrower.getEmail();
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                put(borrowerId, name, email);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Drops a deactivated borrower once the current transaction commits
+     */
+    public void unindex(UUID borrowerId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(borrowerId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Names and emails of the indexed borrowers among the given ones; deactivated borrowers and any
+     * borrower before the index is loaded are left out
+     */
+    public Map<UUID, Contact> contactsOf(Collection<UUID> borrowerIds) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, Contact> contacts = new HashMap<>();
+            for (UUID borrowerId : borrowerIds) {
+                Entry entry = entries.get(borrowerId);
+                if (entry != null) {
+                    contacts.put(borrowerId, new Contact(entry.name, entry.email));
+                }
+            }
+            return contacts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the requested page of borrowers matching the term, best match first.
+     * Empty until the index has been loaded.
+     */
+    public Optional<SearchPage> search(String term, Pageable pageable) {
+        if (!loaded) {
+            return Optional.empty();
+        }
+        String email = normalizeEmail(term);
+        List<String> termWords = wordsOf(term);
+
+        lock.readLock().lock();
+        try {
+            Map<UUID, Integer> scores = new HashMap<>();
+            if (!email.isEmpty()) {
+                for (Map.Entry<String, UUID> match : emails.tailMap(email, true).entrySet()) {
+                    if (!match.getKey().startsWith(email)) {
+                        break;
+                    }
+                    scores.put(match.getValue(), match.getKey().equals(email) ? EXACT_EMAIL : EMAIL_PREFIX);
+                }
+            }
+            if (!termWords.isEmpty()) {
+                scoreNames(termWords, normalizeName(term), scores);
+            }
+
+            Comparator<UUID> ranking = Comparator
+                    .comparing((UUID id) -> scores.get(id), Comparator.reverseOrder())
+                    .thenComparing(id -> entries.get(id).name, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(id -> id);
+            List<UUID> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort(ranking);
+
+            int from = 0;
+            int to = ranked.size();
+            if (pageable.isPaged()) {
+                from = (int) Math.min(to, pageable.getOffset());
+                to = (int) Math.min(to, pageable.getOffset() + pageable.getPageSize());
+            }
+            return Optional.of(new SearchPage(List.copyOf(ranked.subList(from, to)), ranked.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds to the scores the borrowers whose name has, for every word of the term, a word starting with it
+     */
+    private void scoreNames(List<String> termWords, String term, Map<UUID, Integer> scores) {
+        Map<UUID, Integer> nameScores = null;
+        for (String termWord : termWords) {
+            Map<UUID, Integer> wordScores = new HashMap<>();
+            for (Map.Entry<String, Set<UUID>> match : words.tailMap(termWord, true).entrySet()) {
+                if (!match.getKey().startsWith(termWord)) {
+                    break;
+                }
+                int score = match.getKey().equals(termWord) ? EXACT_WORD : WORD_PREFIX;
+                for (UUID borrowerId : match.getValue()) {
+                    wordScores.merge(borrowerId, score, Math::max);
+                }
+            }
+            if (nameScores == null) {
+                nameScores = wordScores;
+            } else {
+                Map<UUID, Integer> previous = nameScores;
+                wordScores.keySet().retainAll(previous.keySet());
+                wordScores.replaceAll((borrowerId, score) -> score + previous.get(borrowerId));
+                nameScores = wordScores;
+            }
+            if (nameScores.isEmpty()) {
+                return;
+            }
+        }
+
+        nameScores.forEach((borrowerId, score) -> {
+            if (entries.get(borrowerId).normalizedName.startsWith(term)) {
+                score += NAME_PREFIX;
+            }
+            scores.merge(borrowerId, score, Integer::sum);
+        });
+    }
+
+    /**
+     * Must be called holding the write lock
+     */
+    private void put(UUID borrowerId, String name, String email) {
+        remove(borrowerId);
+        Entry entry = new Entry(name, normalizeName(name), normalizeEmail(email), wordsOf(name));
+        entries.put(borrowerId, entry);
+        emails.put(entry.email, borrowerId);
+        for (String word : entry.words) {
+            words.computeIfAbsent(word, key -> new HashSet<>()).add(borrowerId);
+        }
+    }
+
+    /**
+     * Must be called holding the write lock
+     */
+    private void remove(UUID borrowerId) {
+        Entry entry = entries.remove(borrowerId);
+        if (entry == null) {
+            return;
+        }
+        emails.remove(entry.email, borrowerId);
+        for (String word : entry.words) {
+            Set<UUID> borrowerIds = words.get(word);
+            if (borrowerIds != null && borrowerIds.remove(borrowerId) && borrowerIds.isEmpty()) {
+                words.remove(word);
+            }
+        }
+    }
+
+    private static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lowercased, without accents and with runs of spaces and punctuation collapsed to one space
+     */
+    private static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static List<String> wordsOf(String text) {
+        String normalized = normalizeName(text);
+        return normalized.isEmpty() ? List.of() : List.of(normalized.split(" "));
+    }
+
+    /**
+     * IDs of the requested page in rank order, and the number of matching borrowers
+     */
+    public record SearchPage(List<UUID> ids, long total) {
+    }
+
+    public record Contact(String name, String email) {
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final String normalizedName;
+        private final String email;
+        private final List<String> words;
+
+        private Entry(String name, String normalizedName, String email, List<String> words) {
+            this.name = name;
+            this.normalizedName = normalizedName;
+            this.email = email;
+            this.words = words;
+        }
+    }
+}
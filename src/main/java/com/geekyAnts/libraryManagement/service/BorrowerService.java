@@ -6,12 +6,20 @@ import com.geekyAnts.libraryManagement.entity.Borrower;
 import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,6 +29,7 @@ import java.util.stream.Collectors;
 public class BorrowerService {
     
     private final BorrowerRepository borrowerRepository;
+    private final BorrowerSearchIndex borrowerSearchIndex;
     
     public BorrowerDTO registerBorrower(BorrowerRequestDTO request) {
         try {
@@ -40,6 +49,7 @@ public class BorrowerService {
             borrower.setIsActive(true);
             
             Borrower savedBorrower = borrowerRepository.save(borrower);
+            borrowerSearchIndex.index(savedBorrower);
             log.info("Successfully registered borrower with ID: {}", savedBorrower.getId());
             return BorrowerDTO.fromEntity(savedBorrower);
         } catch (Exception e) {
@@ -71,12 +81,29 @@ public class BorrowerService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Answers from the borrower search index and loads only the borrowers on the requested page,
+     * falling back to the LIKE query until the index is loaded
+     */
     @Transactional(readOnly = true)
-    public List<BorrowerDTO> searchBorrowers(String searchTerm) {
-        return borrowerRepository.searchBorrowers(searchTerm)
+    public Page<BorrowerDTO> searchBorrowers(String searchTerm, Pageable pageable) {
+        Optional<BorrowerSearchIndex.SearchPage> result = borrowerSearchIndex.search(searchTerm, pageable);
+        if (result.isEmpty()) {
+            Pageable byName = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("name"));
+            return borrowerRepository.searchBorrowers(searchTerm, byName)
+                    .map(BorrowerDTO::fromEntity);
+        }
+        
+        List<UUID> ids = result.get().ids();
+        Map<UUID, Borrower> borrowers = borrowerRepository.findAllById(ids)
                 .stream()
+                .collect(Collectors.toMap(Borrower::getId, Function.identity()));
+        List<BorrowerDTO> content = ids.stream()
+                .map(borrowers::get)
+                .filter(Objects::nonNull)
                 .map(BorrowerDTO::fromEntity)
                 .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.get().total());
     }
     
     public BorrowerDTO updateBorrower(UUID id, BorrowerRequestDTO request) {
@@ -100,6 +127,7 @@ public class BorrowerService {
             borrower.setMembershipType(request.getMembershipType());
             
             Borrower savedBorrower = borrowerRepository.save(borrower);
+            borrowerSearchIndex.index(savedBorrower);
             log.info("Successfully updated borrower with ID: {}", savedBorrower.getId());
             return BorrowerDTO.fromEntity(savedBorrower);
         } catch (Exception e) {
@@ -125,6 +153,7 @@ public class BorrowerService {
             
             borrower.setIsActive(false);
             borrowerRepository.save(borrower);
+            borrowerSearchIndex.unindex(id);
             log.info("Successfully deactivated borrower with ID: {}", id);
         } catch (Exception e) {
             log.error("Error deactivating borrower with ID: {}, error={}", id, e.getMessage(), e);
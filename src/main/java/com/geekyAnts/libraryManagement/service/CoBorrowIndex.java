@@ -0,0 +1,389 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-to-item co-borrow counts: how many borrowers took both of two books.
+ *
+ * When a borrower takes a book for the first time, every other book in their recent history gains
+ * one co-borrow with it, in both directions. Each book keeps its counts in an int-keyed open
+ * addressing map and its K most co-borrowed neighbors in a list sorted by count; since counts only
+ * grow, the list is kept exact by checking each increment against its smallest entry, and a lookup
+ * just copies it.
+ *
+ * Memory is bounded by remembering only the last few distinct books per borrower and by a periodic
+ * compaction that keeps only the largest counts per book. A pair dropped by compaction starts again
+ * from zero if it is borrowed together later.
+ *
+ * Kept up to date by BorrowService after each borrow commits and rebuilt at startup.
+ */
+@Component
+@Slf4j
+public class CoBorrowIndex {
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final int topK;
+    private final int maxNeighbors;
+    private final int historySize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state;
+
+    public CoBorrowIndex(BorrowRecordRepository borrowRecordRepository,
+                         @Value("${library.recommendations.top-k:10}") int topK,
+                         @Value("${library.recommendations.max-neighbors:200}") int maxNeighbors,
+                         @Value("${library.recommendations.history-size:50}") int historySize) {
+        if (topK <= 0 || maxNeighbors < topK || historySize <= 0) {
+            throw new IllegalArgumentException("Need 0 < top-k <= max-neighbors and a positive history size");
+        }
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.topK = topK;
+        this.maxNeighbors = maxNeighbors;
+        this.historySize = historySize;
+    }
+
+    /**
+     * Replays every borrow, oldest first, once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = borrowRecordRepository.findBorrowPairs();
+        State built = new State();
+        for (Object[] row : rows) {
+            built.recordBorrow((UUID) row[0], (UUID) row[1]);
+        }
+        built.compact();
+        lock.writeLock().lock();
+        try {
+            state = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Co-borrow index loaded from {} borrows of {} books", rows.size(), built.books.size());
+    }
+
+    /**
+     * Counts the borrow once the current transaction commits
+     */
+    public void recordBorrow(UUID borrowerId, UUID bookId) {
+        TransactionHooks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (state != null) {
+                    state.recordBorrow(borrowerId, bookId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * The books most often borrowed by the same borrowers as the given one, most co-borrowed first.
+     * Empty when the book has no co-borrows or the index has not been loaded.
+     */
+    public List<UUID> similarBooks(UUID bookId) {
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return List.of();
+            }
+            Integer ordinal = state.ordinals.get(bookId);
+            if (ordinal == null) {
+                return List.of();
+            }
+            Neighbors neighbors = state.neighbors.get(ordinal);
+            List<UUID> similar = new ArrayList<>(neighbors.topSize);
+            for (int i = 0; i < neighbors.topSize; i++) {
+                similar.add(state.books.get(neighbors.topBooks[i]));
+            }
+            return similar;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all but the largest counts of each book. Takes the lock one book at a time.
+     */
+    @Scheduled(fixedDelayString = "${library.recommendations.compact-interval-ms:300000}")
+    public void compact() {
+        int dropped = 0;
+        for (int ordinal = 0; ; ordinal++) {
+            lock.writeLock().lock();
+            try {
+                if (state == null || ordinal >= state.neighbors.size()) {
+                    break;
+                }
+                dropped += state.neighbors.get(ordinal).compact();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (dropped > 0) {
+            log.info("Co-borrow index compacted, dropped {} counts", dropped);
+        }
+    }
+
+    /**
+     * Not thread-safe; the outer class guards it with its lock
+     */
+    private final class State {
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        private final List<UUID> books = new ArrayList<>();
+        private final List<Neighbors> neighbors = new ArrayList<>();
+        private final Map<UUID, History> histories = new HashMap<>();
+
+        void recordBorrow(UUID borrowerId, UUID bookId) {
+            int book = ordinalOf(bookId);
+            History history = histories.computeIfAbsent(borrowerId, id -> new History(historySize));
+            if (history.contains(book)) {
+                return;
+            }
+            Neighbors bookNeighbors = neighbors.get(book);
+            for (int i = 0; i < history.size; i++) {
+                int other = history.books[i];
+                bookNeighbors.increment(other);
+                neighbors.get(other).increment(book);
+            }
+            history.add(book);
+        }
+
+        void compact() {
+            neighbors.forEach(Neighbors::compact);
+        }
+
+        private int ordinalOf(UUID bookId) {
+            Integer ordinal = ordinals.get(bookId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            ordinals.put(bookId, books.size());
+            books.add(bookId);
+            neighbors.add(new Neighbors());
+            return books.size() - 1;
+        }
+    }
+
+    /**
+     * Co-borrow counts of one book and its top K neighbors, sorted by count descending
+     */
+    private final class Neighbors {
+        private final IntCounter counts = new IntCounter();
+        private final int[] topBooks = new int[topK];
+        private final int[] topCounts = new int[topK];
+        private int topSize;
+
+        void increment(int other) {
+            int count = counts.increment(other);
+            int position = indexInTop(other);
+            if (position < 0) {
+                if (topSize < topK) {
+                    position = topSize++;
+                } else if (count > topCounts[topSize - 1]) {
+                    position = topSize - 1;
+                } else {
+                    return;
+                }
+                topBooks[position] = other;
+            }
+            topCounts[position] = count;
+            // Move up past neighbors with a smaller count
+            while (position > 0 && topCounts[position - 1] < topCounts[position]) {
+                swap(position - 1, position);
+                position--;
+            }
+        }
+
+        /**
+         * Keeps the largest maxNeighbors counts, always including the top K. Returns the number dropped.
+         */
+        int compact() {
+            int size = counts.size();
+            if (size <= maxNeighbors) {
+                return 0;
+            }
+            int[] values = counts.values();
+            Arrays.sort(values);
+            // Ties straddling the threshold are all dropped, unless they are in the top K
+            int threshold = values[size - maxNeighbors];
+            int bound = values[size - maxNeighbors - 1] == threshold ? threshold + 1 : threshold;
+            counts.retain((book, count) -> count >= bound || indexInTop(book) >= 0);
+            return size - counts.size();
+        }
+
+        private int indexInTop(int book) {
+            for (int i = 0; i < topSize; i++) {
+                if (topBooks[i] == book) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void swap(int i, int j) {
+            int book = topBooks[i];
+            topBooks[i] = topBooks[j];
+            topBooks[j] = book;
+            int count = topCounts[i];
+            topCounts[i] = topCounts[j];
+            topCounts[j] = count;
+        }
+    }
+
+    /**
+     * The last distinct books a borrower took, oldest first
+     */
+    private static final class History {
+        private final int[] books;
+        private int size;
+
+        private History(int capacity) {
+            this.books = new int[capacity];
+        }
+
+        boolean contains(int book) {
+            for (int i = 0; i < size; i++) {
+                if (books[i] == book) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(int book) {
+            if (size == books.length) {
+                System.arraycopy(books, 1, books, 0, size - 1);
+                size--;
+            }
+            books[size++] = book;
+        }
+    }
+
+    /**
+     * Open addressing map from a non-negative int key to a count, with linear probing
+     */
+    private static final class IntCounter {
+        private static final int EMPTY = -1;
+
+        private int[] keys = emptyKeys(8);
+        private int[] values = new int[8];
+        private int size;
+
+        /**
+         * Adds one to the key's count and returns the new count
+         */
+        int increment(int key) {
+            int slot = slotOf(keys, key);
+            if (keys[slot] == key) {
+                return ++values[slot];
+            }
+            keys[slot] = key;
+            values[slot] = 1;
+            if (++size * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            return 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] values() {
+            int[] result = new int[size];
+            int next = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    result[next++] = values[slot];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes every entry the filter rejects, shrinking the table to fit the rest
+         */
+        void retain(IntBiPredicate filter) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            int kept = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY && filter.test(oldKeys[slot], oldValues[slot])) {
+                    kept++;
+                }
+            }
+            int capacity = 8;
+            while (kept * 4 > capacity * 3) {
+                capacity *= 2;
+            }
+            keys = emptyKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY && filter.test(oldKeys[slot], oldValues[slot])) {
+                    put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = emptyKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private void put(int key, int value) {
+            int slot = slotOf(keys, key);
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+
+        /**
+         * The slot holding the key, or the empty slot where it would go
+         */
+        private static int slotOf(int[] keys, int key) {
+            int mask = keys.length - 1;
+            // Spread consecutive ordinals across the table
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int[] emptyKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntBiPredicate {
+        boolean test(int key, int value);
+    }
+}
@@ -0,0 +1,104 @@
+package com.geekyAnts.libraryManagement.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count-Min Sketch of event counts per 64-bit key hash, as depth rows of width counters.
+ *
+ * Each row adds one to the counter its hash function picks, and a key's estimate is the smallest of
+ * its counters. Collisions only add, so the estimate never undercounts; with width = ceil(e / epsilon)
+ * and depth = ceil(ln(1 / (1 - confidence))) it overcounts by at most epsilon times the total with
+ * the given confidence. The row hashes are derived from the two halves of the key hash.
+ * Not thread-safe; callers synchronize.
+ */
+final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Count-Min Sketch width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    static int widthFor(double epsilon) {
+        if (epsilon <= 0 || epsilon >= 1) {
+            throw new IllegalArgumentException("Count-Min Sketch error must be between 0 and 1");
+        }
+        return (int) Math.ceil(Math.E / epsilon);
+    }
+
+    static int depthFor(double confidence) {
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("Count-Min Sketch confidence must be between 0 and 1");
+        }
+        return (int) Math.ceil(Math.log(1 / (1 - confidence)));
+    }
+
+    /**
+     * Counts one event for the key and returns its new estimate
+     */
+    long add(long hash) {
+        total++;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, ++counters[index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    long total() {
+        return total;
+    }
+
+    /**
+     * How much any estimate may exceed the true count: e / width of all events counted
+     */
+    long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    /**
+     * Probability that an estimate is within the error bound
+     */
+    double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(total);
+        for (long counter : counters) {
+            out.writeLong(counter);
+        }
+    }
+
+    static CountMinSketch readFrom(DataInput in, int width, int depth) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(width, depth);
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = in.readLong();
+        }
+        return sketch;
+    }
+
+    private int index(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return row * width + Math.floorMod(combined, width);
+    }
+}
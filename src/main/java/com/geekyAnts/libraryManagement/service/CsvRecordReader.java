@@ -0,0 +1,142 @@
+package com.geekyAnts.libraryManagement.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: fields separated by commas, optionally quoted, with
+ * doubled quotes inside quoted fields and line breaks allowed within them.
+ *
+ * A record may span at most maxRecordChars characters, line breaks included. Past that the input is
+ * rejected with the line the record started on, so an unterminated quote fails fast instead of
+ * buffering the rest of the file as one field.
+ */
+final class CsvRecordReader {
+
+    private final Reader reader;
+    private final int maxRecordChars;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder lineBuffer = new StringBuilder();
+    private int position;
+    private int limit;
+    // Set after a '\r', so a '\n' right after it ends the same line
+    private boolean skipLineFeed;
+    private long lineNumber;
+    private long recordLine;
+
+    CsvRecordReader(Reader reader, int maxRecordChars) {
+        if (maxRecordChars <= 0) {
+            throw new IllegalArgumentException("CSV record limit must be positive");
+        }
+        this.reader = reader;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * Line on which the last record returned started
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * The next record, or null at the end of the input. Blank lines are skipped.
+     */
+    List<String> next() throws IOException {
+        String line;
+        do {
+            line = readLine(lineNumber + 1, 0);
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        recordLine = lineNumber;
+        int recordLength = line.length();
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // A quoted field goes on to the next line
+                line = readLine(recordLine, recordLength + 1);
+                lineNumber++;
+                if (line == null) {
+                    throw new IllegalArgumentException("Unterminated quoted field starting on line " + recordLine);
+                }
+                recordLength += 1 + line.length();
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * The next line without its terminator, or null at the end of the input. Fails once the
+     * record so far and the line together pass the limit, before reading any further.
+     */
+    private String readLine(long startLine, int recordLength) throws IOException {
+        lineBuffer.setLength(0);
+        boolean found = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return found ? lineBuffer.toString() : null;
+                }
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+            found = true;
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                position++;
+            }
+            lineBuffer.append(buffer, start, position - start);
+            if (recordLength + lineBuffer.length() > maxRecordChars) {
+                throw new IllegalArgumentException("Record starting on line " + startLine + " is longer than "
+                        + maxRecordChars + " characters; check for an unterminated quoted field");
+            }
+            if (position < limit) {
+                skipLineFeed = buffer[position++] == '\r';
+                return lineBuffer.toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.entity.BorrowRecord;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes the catalog or the borrow history as CSV or NDJSON straight from a streamed query.
+ *
+ * Rows come from a forward-only cursor read with a JDBC fetch size, are mapped to the DTOs the JSON
+ * endpoints return, and are written one at a time. Each entity is detached once written, so memory
+ * use does not grow with the table. Output is flushed after the first row and then every
+ * FLUSH_EVERY_ROWS rows, so the client starts receiving data at once.
+ *
+ * Callers provide the read-only transaction the cursor needs.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DataExporter {
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    // The importer finds its columns by name, so a CSV export of the catalog can be imported again
+    private static final List<Column<BookDTO>> BOOK_COLUMNS = List.of(
+            new Column<>("id", BookDTO::getId),
+            new Column<>("title", BookDTO::getTitle),
+            new Column<>("author", BookDTO::getAuthor),
+            new Column<>("category", BookDTO::getCategory),
+            new Column<>("totalCopies", BookDTO::getTotalCopies),
+            new Column<>("availableCopies", BookDTO::getAvailableCopies),
+            new Column<>("isAvailable", BookDTO::getIsAvailable)
+    );
+
+    private static final List<Column<BorrowRecordDTO>> BORROW_RECORD_COLUMNS = List.of(
+            new Column<>("id", BorrowRecordDTO::getId),
+            new Column<>("bookId", BorrowRecordDTO::getBookId),
+            new Column<>("bookTitle", BorrowRecordDTO::getBookTitle),
+            new Column<>("bookAuthor", BorrowRecordDTO::getBookAuthor),
+            new Column<>("borrowerId", BorrowRecordDTO::getBorrowerId),
+            new Column<>("borrowerName", BorrowRecordDTO::getBorrowerName),
+            new Column<>("borrowerEmail", BorrowRecordDTO::getBorrowerEmail),
+            new Column<>("borrowDate", BorrowRecordDTO::getBorrowDate),
+            new Column<>("dueDate", BorrowRecordDTO::getDueDate),
+            new Column<>("returnDate", BorrowRecordDTO::getReturnDate),
+            new Column<>("fineAmount", BorrowRecordDTO::getFineAmount),
+            new Column<>("isOverdue", BorrowRecordDTO::getIsOverdue),
+            new Column<>("daysOverdue", BorrowRecordDTO::getDaysOverdue)
+    );
+
+    private final BookRepository bookRepository;
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public void exportBooks(OutputStream out, DataFormat format) throws IOException {
+        try (Stream<Book> books = bookRepository.streamCatalog()) {
+            long rows = write(books, BookDTO::fromEntity, entityManager::detach, BOOK_COLUMNS, out, format);
+            log.info("Exported {} books as {}", rows, format);
+        }
+    }
+
+    public void exportBorrowRecords(OutputStream out, DataFormat format) throws IOException {
+        try (Stream<BorrowRecord> records = borrowRecordRepository.streamBorrowHistory()) {
+            long rows = write(records, BorrowRecordDTO::fromEntity, record -> {
+                // The fetched book and borrower are managed on their own and would stay behind
+                entityManager.detach(record.getBook());
+                entityManager.detach(record.getBorrower());
+                entityManager.detach(record);
+            }, BORROW_RECORD_COLUMNS, out, format);
+            log.info("Exported {} borrow records as {}", rows, format);
+        }
+    }
+
+    /**
+     * Returns the number of rows written. The output stream is left open for the caller.
+     */
+    private <E, T> long write(Stream<E> entities, Function<E, T> toDto, Consumer<E> detach,
+                              List<Column<T>> columns, OutputStream out, DataFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == DataFormat.CSV) {
+            for (int i = 0; i < columns.size(); i++) {
+                writer.write(i == 0 ? "" : ",");
+                writer.write(columns.get(i).name());
+            }
+            writer.write("\r\n");
+        }
+
+        long rows = 0;
+        Iterator<E> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            E entity = iterator.next();
+            T dto = toDto.apply(entity);
+            detach.accept(entity);
+            if (format == DataFormat.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    writer.write(i == 0 ? "" : ",");
+                    writer.write(csvField(columns.get(i).value().apply(dto)));
+                }
+                writer.write("\r\n");
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+            rows++;
+            if (rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    /**
+     * Quotes the value as RFC 4180 requires when it holds a comma, a quote or a line break
+     */
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + text.replace("\"", "\"\"") + '"';
+            }
+        }
+        return text;
+    }
+
+    private record Column<T>(String name, Function<T, Object> value) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accrues fines on outstanding overdue loans with set-based updates.
+ *
+ * Every loan due on the same day owes the same number of days, so each due date is one chunk:
+ * one UPDATE per category with an active policy, then one for the remaining categories at the
+ * default rate. Each chunk commits on its own. Rows already accrued through today are skipped,
+ * so a re-run is a no-op and a missed night is caught up on the next one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FineAccrualEngine {
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final FineRateTable fineRateTable;
+    private final PlatformTransactionManager transactionManager;
+
+    public int accrueFines(LocalDate today) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Map<String, BigDecimal> rates = fineRateTable.getRates();
+        List<LocalDate> dueDates = borrowRecordRepository.findDueDatesPendingFineAccrual(today);
+
+        int accrued = 0;
+        for (LocalDate dueDate : dueDates) {
+            long daysOverdue = today.toEpochDay() - dueDate.toEpochDay();
+            Integer updated = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (Map.Entry<String, BigDecimal> rate : rates.entrySet()) {
+                    rows += borrowRecordRepository.accrueFinesForCategory(dueDate, today, rate.getKey(),
+                            rate.getValue().multiply(BigDecimal.valueOf(daysOverdue)));
+                }
+                // Rows still pending belong to categories without an active policy
+                rows += borrowRecordRepository.accrueRemainingFines(dueDate, today,
+                        FineRateTable.DEFAULT_FINE_PER_DAY.multiply(BigDecimal.valueOf(daysOverdue)));
+                return rows;
+            });
+            log.debug("Accrued fines for {} loans due on {} ({} days overdue)", updated, dueDate, daysOverdue);
+            accrued += updated;
+        }
+
+        log.info("Accrued fines for {} overdue loans across {} due dates", accrued, dueDates.size());
+        return accrued;
+    }
+}
@@ -0,0 +1,59 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.entity.FinePolicy;
+import com.geekyAnts.libraryManagement.repository.FinePolicyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable category-to-rate table built from the active fine policies.
+ *
+ * Readers never query fine_policies; when a policy changes a new table is built and swapped
+ * in with a single volatile write once the change commits.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FineRateTable {
+
+    // Default fine of $1 per day for categories without an active policy
+    public static final BigDecimal DEFAULT_FINE_PER_DAY = BigDecimal.valueOf(1.0);
+
+    private final FinePolicyRepository finePolicyRepository;
+
+    private volatile Map<String, BigDecimal> ratesByCategory = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        ratesByCategory = Map.copyOf(finePolicyRepository.findByIsActiveTrue()
+                .stream()
+                .collect(Collectors.toMap(FinePolicy::getCategory, FinePolicy::getFinePerDay)));
+        log.info("Loaded fine rates for {} categories", ratesByCategory.size());
+    }
+
+    /**
+     * Rebuilds the table after the current transaction commits
+     */
+    public void reloadAfterCommit() {
+        TransactionHooks.afterCommit(this::reload);
+    }
+
+    public Map<String, BigDecimal> getRates() {
+        return ratesByCategory;
+    }
+
+    public BigDecimal getFinePerDay(String category) {
+        return ratesByCategory.getOrDefault(category, DEFAULT_FINE_PER_DAY);
+    }
+
+    public BigDecimal calculateFine(String category, long daysOverdue) {
+        return getFinePerDay(category).multiply(BigDecimal.valueOf(daysOverdue));
+    }
+}
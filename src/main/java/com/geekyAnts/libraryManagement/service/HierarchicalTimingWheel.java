@@ -0,0 +1,183 @@
+package com.geekyAnts.libraryManagement.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel with O(1) schedule and cancel.
+ *
+ * Level 0 has one slot per tick; each level above covers 64 times the span of the level below.
+ * A timer goes into the lowest level whose span reaches its deadline and is moved down a level
+ * each time the wheel below wraps, so it is touched at most once per level before it fires.
+ * Slots are intrusive doubly linked lists, and timers are indexed by key for cancellation.
+ * Advancing skips the ticks at which the empty lower levels have nothing to do, so a long jump
+ * costs a step per cascade rather than per tick. Not thread-safe; callers synchronize.
+ */
+final class HierarchicalTimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // 64^6 ticks, which at one tick a second is more than two thousand years
+    private static final int LEVELS = 6;
+
+    private final Node<K>[][] wheels;
+    private final Map<K, Node<K>> timers = new HashMap<>();
+    // Timers held in each level
+    private final int[] levelSizes = new int[LEVELS];
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HierarchicalTimingWheel(long startTick) {
+        this.wheels = new Node[LEVELS][SLOTS];
+        this.currentTick = startTick;
+    }
+
+    /**
+     * Schedules the key to expire at the given tick, replacing any earlier timer for it.
+     * Returns false without scheduling when the deadline has already passed.
+     */
+    boolean schedule(K key, long deadlineTick) {
+        cancel(key);
+        if (deadlineTick <= currentTick) {
+            return false;
+        }
+        Node<K> node = new Node<>(key, deadlineTick);
+        timers.put(key, node);
+        place(node);
+        return true;
+    }
+
+    boolean cancel(K key) {
+        Node<K> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to the given tick and returns the keys whose deadlines passed
+     */
+    List<K> advanceTo(long tick) {
+        List<K> expired = new ArrayList<>();
+        while (currentTick < tick) {
+            // Nothing happens before the next slot of the lowest level holding a timer comes round
+            int lowest = 0;
+            while (lowest < LEVELS && levelSizes[lowest] == 0) {
+                lowest++;
+            }
+            if (lowest == LEVELS) {
+                currentTick = tick;
+                break;
+            }
+            if (lowest > 0) {
+                long span = 1L << (SLOT_BITS * lowest);
+                long nextSlot = (currentTick | (span - 1)) + 1;
+                currentTick = Math.min(tick, nextSlot - 1);
+                if (currentTick == tick) {
+                    break;
+                }
+            }
+
+            currentTick++;
+            // Cascade the levels whose next slot starts at this tick, highest first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, expired);
+                }
+            }
+            expire(wheels[0], (int) (currentTick & SLOT_MASK), expired);
+        }
+        return expired;
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    private void cascade(int level, List<K> expired) {
+        int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Node<K> node = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (node != null) {
+            Node<K> next = node.next;
+            levelSizes[level]--;
+            node.prev = null;
+            node.next = null;
+            if (node.deadlineTick <= currentTick) {
+                timers.remove(node.key);
+                expired.add(node.key);
+            } else {
+                place(node);
+            }
+            node = next;
+        }
+    }
+
+    private void expire(Node<K>[] wheel, int slot, List<K> expired) {
+        Node<K> node = wheel[slot];
+        wheel[slot] = null;
+        while (node != null) {
+            Node<K> next = node.next;
+            levelSizes[0]--;
+            timers.remove(node.key);
+            expired.add(node.key);
+            node = next;
+        }
+    }
+
+    private void place(Node<K> node) {
+        long delta = node.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        // Deadlines beyond the top level wait in its furthest slot and are re-placed when it comes round
+        long tick = level == LEVELS - 1
+                ? Math.min(node.deadlineTick, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1)
+                : node.deadlineTick;
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        Node<K> head = wheels[level][slot];
+        node.level = level;
+        node.slot = slot;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        wheels[level][slot] = node;
+        levelSizes[level]++;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            wheels[node.level][node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        levelSizes[node.level]--;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.InventoryContentionDTO;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory ledger of available copies per book.
+ *
+ * Borrow and return reserve and release copies with a CAS on a per-book counter, so a sold-out
+ * title is rejected without touching the database. The books table stays authoritative: every
+ * reservation is confirmed by a conditional UPDATE, and when that UPDATE finds no copy left the
+ * counter is resynced from the row. On startup the counters are rebuilt from total copies minus
+ * active borrow records, which also repairs rows left inconsistent by a crash.
+ *
+ * Listeners are told whenever a book runs out of copies or gets one back, whatever the cause.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryLedger {
+
+    private final BookRepository bookRepository;
+    private final BorrowRecordRepository borrowRecordRepository;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<UUID>> availabilityListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder ledgerRejections = new LongAdder();
+    private final LongAdder conditionalUpdateMisses = new LongAdder();
+    private final LongAdder versionConflicts = new LongAdder();
+
+    /**
+     * Rebuilds the ledger once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void load() {
+        Map<UUID, Long> activeLoans = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.countActiveBorrowRecordsByBook()) {
+            activeLoans.put((UUID) row[0], (Long) row[1]);
+        }
+
+        int repaired = 0;
+        for (Object[] row : bookRepository.findInventorySnapshot()) {
+            UUID bookId = (UUID) row[0];
+            int totalCopies = (Integer) row[1];
+            int storedAvailable = (Integer) row[2];
+            int available = (int) Math.max(0, totalCopies - activeLoans.getOrDefault(bookId, 0L));
+
+            entries.put(bookId, new Entry(available));
+            if (available != storedAvailable) {
+                bookRepository.writeAvailableCopies(bookId, available, available > 0);
+                notifyIfCrossedZero(bookId, storedAvailable, available);
+                repaired++;
+            }
+        }
+        log.info("Inventory ledger loaded for {} books, repaired {} rows", entries.size(), repaired);
+    }
+
+    /**
+     * Takes one copy of the book if any is left. Released again if the transaction rolls back.
+     */
+    public boolean tryReserve(UUID bookId) {
+        if (!tryChange(bookId, -1)) {
+            ledgerRejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts one copy of the book back. Taken again if the transaction rolls back.
+     */
+    public void release(UUID bookId) {
+        Entry entry = entryFor(bookId);
+        if (entry != null) {
+            int available = entry.available.incrementAndGet();
+            notifyIfCrossedZero(bookId, available - 1, available);
+            compensateOnRollback(bookId, entry, -1);
+        }
+    }
+
+    /**
+     * Applies a change in copies as long as the count does not go below zero.
+     * Reverted if the transaction rolls back.
+     */
+    public boolean tryChange(UUID bookId, int change) {
+        Entry entry = entryFor(bookId);
+        if (entry == null) {
+            return false;
+        }
+
+        int current;
+        do {
+            current = entry.available.get();
+            if (current + change < 0) {
+                return false;
+            }
+        } while (!entry.available.compareAndSet(current, current + change));
+
+        notifyIfCrossedZero(bookId, current, current + change);
+        compensateOnRollback(bookId, entry, -change);
+        return true;
+    }
+
+    /**
+     * Called when the conditional UPDATE found no copy the ledger thought was there
+     */
+    public void recordConditionalUpdateMiss(UUID bookId) {
+        conditionalUpdateMisses.increment();
+        refresh(bookId);
+    }
+
+    public void recordVersionConflict() {
+        versionConflicts.increment();
+    }
+
+    /**
+     * Replaces the counter with a value read from the books table. Pending rollback
+     * compensation for the book is dropped, since the new value already accounts for it.
+     */
+    public void resync(UUID bookId, int available) {
+        Entry entry = entries.computeIfAbsent(bookId, id -> new Entry(available));
+        entry.epoch.incrementAndGet();
+        notifyIfCrossedZero(bookId, entry.available.getAndSet(available), available);
+    }
+
+    /**
+     * Registers a callback run with the book's ID after its count goes from zero to positive or back.
+     * It may run on any thread and should read the current count rather than assume the direction.
+     */
+    public void addAvailabilityListener(Consumer<UUID> listener) {
+        availabilityListeners.add(listener);
+    }
+
+    public void untrack(UUID bookId) {
+        entries.remove(bookId);
+    }
+
+    public int getAvailableCopies(UUID bookId) {
+        Entry entry = entryFor(bookId);
+        return entry == null ? 0 : entry.available.get();
+    }
+
+    public InventoryContentionDTO getContention() {
+        return new InventoryContentionDTO(
+                entries.size(),
+                ledgerRejections.sum(),
+                conditionalUpdateMisses.sum(),
+                versionConflicts.sum()
+        );
+    }
+
+    /**
+     * Re-reads sold-out books from the table so a counter left too low never keeps rejecting borrows
+     */
+    @Scheduled(fixedDelayString = "${library.inventory.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        List<UUID> soldOut = entries.entrySet().stream()
+                .filter(e -> e.getValue().available.get() == 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!soldOut.isEmpty()) {
+            refresh(soldOut);
+        }
+    }
+
+    /**
+     * Re-reads one book from the table
+     */
+    public void refresh(UUID bookId) {
+        refresh(List.of(bookId));
+    }
+
+    private void refresh(List<UUID> bookIds) {
+        try {
+            for (Object[] row : bookRepository.findAvailableCopiesByIds(bookIds)) {
+                resync((UUID) row[0], (Integer) row[1]);
+            }
+        } catch (Exception e) {
+            log.error("Error refreshing inventory ledger: {}", e.getMessage(), e);
+        }
+    }
+
+    private void compensateOnRollback(UUID bookId, Entry entry, int change) {
+        long epoch = entry.epoch.get();
+        TransactionHooks.afterRollback(() -> {
+            if (entry.epoch.get() == epoch) {
+                int available = entry.available.addAndGet(change);
+                notifyIfCrossedZero(bookId, available - change, available);
+            }
+        });
+    }
+
+    private void notifyIfCrossedZero(UUID bookId, int before, int after) {
+        if ((before > 0) != (after > 0)) {
+            availabilityListeners.forEach(listener -> listener.accept(bookId));
+        }
+    }
+
+    private Entry entryFor(UUID bookId) {
+        Entry entry = entries.get(bookId);
+        if (entry != null) {
+            return entry;
+        }
+
+        // Books the ledger has not seen yet (e.g. created before it was loaded) are read once from the table
+        return bookRepository.findByIdAndIsDeletedFalse(bookId)
+                .map(book -> entries.computeIfAbsent(bookId, id -> new Entry(book.getAvailableCopies())))
+                .orElse(null);
+    }
+
+    private static final class Entry {
+        private final AtomicInteger available;
+        private final AtomicLong epoch = new AtomicLong();
+
+        private Entry(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flags overdue borrow records in keyset chunks.
+ *
+ * Only record IDs are read, one chunk at a time in ID order, and each chunk is flagged by a
+ * single UPDATE in its own short transaction on a bounded worker pool. The queue in front of
+ * the pool is as small as the pool, so the reader waits for the workers and at most a few
+ * chunks of IDs are in memory however many records are overdue.
+ */
+@Component
+@Slf4j
+public class OverdueScanner {
+
+    // Smallest UUID, used as the starting key
+    private static final UUID FIRST_KEY = new UUID(0L, 0L);
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int workers;
+
+    public OverdueScanner(BorrowRecordRepository borrowRecordRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${library.overdue.chunk-size:1000}") int chunkSize,
+                          @Value("${library.overdue.workers:4}") int workers) {
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+    }
+
+    public int flagOverdueRecords(LocalDate today) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers),
+                runnable -> new Thread(runnable, "overdue-scan-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        long startedAt = System.nanoTime();
+        List<Future<Integer>> pending = new ArrayList<>();
+        int flagged = 0;
+        int chunks = 0;
+        try {
+            UUID afterId = FIRST_KEY;
+            while (true) {
+                List<UUID> ids = borrowRecordRepository.findUnflaggedOverdueIdsAfter(
+                        today, afterId, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int chunk = ++chunks;
+                pending.add(executor.submit(() -> flagChunk(chunk, ids)));
+                afterId = ids.get(ids.size() - 1);
+
+                // Collect finished chunks as we go so the futures do not pile up either
+                while (!pending.isEmpty() && pending.get(0).isDone()) {
+                    flagged += pending.remove(0).get();
+                }
+            }
+            for (Future<Integer> future : pending) {
+                flagged += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Overdue scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to flag overdue records: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        log.info("Overdue scan flagged {} records in {} chunks in {} ms ({} records/s)",
+                flagged, chunks, elapsedMs, flagged * 1000L / elapsedMs);
+        return flagged;
+    }
+
+    private int flagChunk(int chunk, List<UUID> ids) {
+        long startedAt = System.nanoTime();
+        Integer flagged = transactionTemplate.execute(status -> borrowRecordRepository.flagOverdue(ids));
+        log.info("Overdue chunk {} flagged {} of {} records in {} ms",
+                chunk, flagged, ids.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return flagged == null ? 0 : flagged;
+    }
+}
@@ -0,0 +1,114 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks outstanding loans on a timing wheel and moves each one into the overdue set as soon
+ * as its due date has passed, so overdue loans are known without scanning borrow_records.
+ *
+ * Borrows and returns update the wheel once their transaction commits. The wheel is rebuilt
+ * from the outstanding loans at startup.
+ */
+@Component
+@Slf4j
+public class OverdueTracker {
+
+    private final BorrowRecordRepository borrowRecordRepository;
+    private final long tickMs;
+    private final HierarchicalTimingWheel<UUID> wheel;
+    private final Set<UUID> overdueRecordIds = ConcurrentHashMap.newKeySet();
+
+    public OverdueTracker(BorrowRecordRepository borrowRecordRepository,
+                          @Value("${library.overdue.wheel-tick-ms:1000}") long tickMs) {
+        this.borrowRecordRepository = borrowRecordRepository;
+        this.tickMs = tickMs;
+        this.wheel = new HierarchicalTimingWheel<>(currentTick());
+    }
+
+    /**
+     * Loads the outstanding loans once the sample data has been loaded
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int loaded = 0;
+        for (Object[] row : borrowRecordRepository.findOutstandingDueDates()) {
+            schedule((UUID) row[0], (LocalDate) row[1]);
+            loaded++;
+        }
+        log.info("Overdue tracker loaded {} outstanding loans, {} already overdue", loaded, overdueRecordIds.size());
+    }
+
+    /**
+     * Starts tracking a new loan once the current transaction commits
+     */
+    public void track(UUID borrowRecordId, LocalDate dueDate) {
+        TransactionHooks.afterCommit(() -> schedule(borrowRecordId, dueDate));
+    }
+
+    /**
+     * Stops tracking a returned loan once the current transaction commits
+     */
+    public void untrack(UUID borrowRecordId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.cancel(borrowRecordId);
+            }
+            overdueRecordIds.remove(borrowRecordId);
+        });
+    }
+
+    @Scheduled(fixedRateString = "${library.overdue.wheel-tick-ms:1000}")
+    public void advance() {
+        List<UUID> expired;
+        synchronized (wheel) {
+            expired = wheel.advanceTo(currentTick());
+        }
+        if (!expired.isEmpty()) {
+            overdueRecordIds.addAll(expired);
+            log.info("{} loans became overdue", expired.size());
+        }
+    }
+
+    public Set<UUID> getOverdueRecordIds() {
+        return Collections.unmodifiableSet(overdueRecordIds);
+    }
+
+    public int getPendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void schedule(UUID borrowRecordId, LocalDate dueDate) {
+        // A loan is overdue from the start of the day after its due date
+        long deadlineMs = dueDate.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long deadlineTick = (deadlineMs + tickMs - 1) / tickMs;
+        boolean scheduled;
+        synchronized (wheel) {
+            scheduled = wheel.schedule(borrowRecordId, deadlineTick);
+        }
+        if (scheduled) {
+            overdueRecordIds.remove(borrowRecordId);
+        } else {
+            overdueRecordIds.add(borrowRecordId);
+        }
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / tickMs;
+    }
+}
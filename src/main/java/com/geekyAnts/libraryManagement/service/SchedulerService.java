@@ -17,38 +17,43 @@ import java.util.List;
 public class SchedulerService {
 
     private final BorrowRecordRepository borrowRecordRepository;
+    private final FineAccrualEngine fineAccrualEngine;
+    private final OverdueScanner overdueScanner;
+    private final BorrowHistoryColumns borrowHistoryColumns;
 
     /**
      * Runs daily at midnight to flag overdue records
      */
     @Scheduled(cron = "0 0 0 * * ?")
-    @Transactional
     public void flagOverdueRecords() {
         log.info("Starting daily overdue records check...");
         
         try {
-            LocalDate today = LocalDate.now();
-            List<BorrowRecord> overdueRecords = borrowRecordRepository.findOverdueRecords(today);
-            
-            if (overdueRecords.isEmpty()) {
-                log.info("No overdue records found");
-                return;
-            }
-            
-            log.info("Found {} overdue records", overdueRecords.size());
-            
-            for (BorrowRecord record : overdueRecords) {
-                log.info("Flagging overdue record: Book ID {}, Borrower ID {}, Due Date: {}", 
-                    record.getBook().getId(), record.getBorrower().getId(), record.getDueDate());
-            }
-            
-            log.info("Successfully processed {} overdue records", overdueRecords.size());
-            
+            int flagged = overdueScanner.flagOverdueRecords(LocalDate.now());
+            log.info("Successfully processed {} overdue records", flagged);
         } catch (Exception e) {
             log.error("Error processing overdue records: {}", e.getMessage(), e);
         }
     }
     
+    /**
+     * Runs daily after midnight to bring fines on outstanding overdue loans up to date, then
+     * passes the new fines on to the borrow history columns
+     */
+    @Scheduled(cron = "${library.fines.accrual-cron:0 5 0 * * ?}")
+    public void accrueFines() {
+        log.info("Starting nightly fine accrual...");
+        
+        try {
+            LocalDate today = LocalDate.now();
+            int accrued = fineAccrualEngine.accrueFines(today);
+            log.info("Successfully accrued fines for {} overdue records", accrued);
+            borrowHistoryColumns.refreshFines(today);
+        } catch (Exception e) {
+            log.error("Error accruing fines: {}", e.getMessage(), e);
+        }
+    }
+    
     /**
      * Manual method to check overdue records (for testing)
      */
@@ -0,0 +1,65 @@
+package com.geekyAnts.libraryManagement.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Helpers for keeping in-memory state in step with the surrounding database transaction.
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or immediately when there is none.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the action if the current transaction rolls back. Does nothing outside a transaction.
+     * Actions run in reverse order of registration, so undoing a change that was itself undone
+     * earlier in the same transaction leaves the state untouched.
+     */
+    static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof UndoLog undoLog) {
+                undoLog.actions.push(action);
+                return;
+            }
+        }
+        UndoLog undoLog = new UndoLog();
+        undoLog.actions.push(action);
+        TransactionSynchronizationManager.registerSynchronization(undoLog);
+    }
+
+    private static final class UndoLog implements TransactionSynchronization {
+        private final Deque<Runnable> actions = new ArrayDeque<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) {
+                while (!actions.isEmpty()) {
+                    actions.pop().run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.geekyAnts.libraryManagement;
+
+import com.geekyAnts.libraryManagement.config.VirtualThreads;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares throughput and latency of JDBC-bound endpoints with platform and virtual threads.
+ *
+ * Requests are started on a fixed schedule whether or not earlier ones have finished, and each
+ * latency is measured from the time the request was due to start, as in LoadTest, so a mode that
+ * runs out of threads shows it in the percentiles instead of slowing the load down.
+ *
+ * The database is in-memory H2, where a query is CPU work rather than a wait on the network. Every
+ * SQL statement therefore first sleeps for benchmark.dbLatencyMs, blocking its thread the way a
+ * round trip to a networked database would. This models the wait, not the load on a real database
+ * server, so absolute numbers say little; the difference between the modes is the point.
+ *
+ * Run with {@code gradle benchmark}, which uses a Java 21 toolchain; tune with -Dbenchmark.rate
+ * (requests per second), -Dbenchmark.seconds and -Dbenchmark.dbLatencyMs. Skipped on runtimes
+ * without virtual threads.
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmarkTest {
+
+    private static final int RATE = Integer.getInteger("benchmark.rate", 1000);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 10);
+    private static final int WARMUP_SECONDS = 2;
+    private static final long DB_LATENCY_MS = Long.getLong("benchmark.dbLatencyMs", 20);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // Each sends at least one statement; borrower-activity is served from memory and would measure nothing here
+    private static final List<String> PATHS = List.of(
+            "/api/borrowers",
+            "/api/analytics/top-borrowed-books",
+            "/api/analytics/books/availability-summary"
+    );
+
+    @Test
+    void compareExecutionModes() throws Exception {
+        // On older runtimes the virtual mode falls back to platform threads, so there is nothing to compare
+        assumeTrue(VirtualThreads.isSupported(), "Virtual threads need Java 21; run with gradle benchmark");
+
+        Result platform = run("platform");
+        Result virtual = run("virtual");
+
+        System.out.printf("%nOffered %d req/s for %d s, %d ms per SQL statement%n", RATE, SECONDS, DB_LATENCY_MS);
+        System.out.printf("%-10s %12s %12s %12s %12s %9s %8s%n",
+                "mode", "requests/s", "p50 (ms)", "p99 (ms)", "max (ms)", "timeouts", "errors");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-10s %12.1f %12.2f %12.2f %12.2f %9d %8d%n", result.mode, result.throughput,
+                    result.p50Ms, result.p99Ms, result.maxMs, result.timeouts, result.errors);
+        }
+        // A mode that cannot keep up times out, which is a result; an error response is a bug
+        assertEquals(0, platform.errors + virtual.errors);
+    }
+
+    private Result run(String mode) {
+        // Passed as arguments so they take precedence over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryManagementApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--library.execution.mode=" + mode,
+                        // A small platform pool makes thread exhaustion visible at benchmark scale; the
+                        // connection pool is larger, so it is not what limits either mode
+                        "--server.tomcat.threads.max=20",
+                        "--spring.datasource.hikari.maximum-pool-size=200",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                + DatabaseLatency.class.getName(),
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode,
+                        "--spring.jpa.show-sql=false",
+                        "--library.sketches.snapshot-path=",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.geekyAnts.libraryManagement=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN")) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+            // Warm up, then measure
+            drive(client, baseUrl, WARMUP_SECONDS);
+            long startedAt = System.nanoTime();
+            Load load = drive(client, baseUrl, SECONDS);
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            Histogram latencies = load.latencies;
+            return new Result(mode, latencies.getTotalCount() / elapsedSeconds,
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getMaxValue()), load.timeouts.get(), load.errors.get());
+        }
+    }
+
+    /**
+     * Starts RATE requests per second for the given time and waits for them to finish
+     */
+    private Load drive(HttpClient client, String baseUrl, int seconds) {
+        Load load = new Load();
+        long intervalNanos = 1_000_000_000L / RATE;
+        long total = (long) RATE * seconds;
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + PATHS.get((int) (i % PATHS.size()))))
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, error) -> {
+                load.latencies.recordValue(Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                if (error instanceof HttpTimeoutException || error != null && error.getCause() instanceof HttpTimeoutException) {
+                    load.timeouts.incrementAndGet();
+                } else if (error != null || response.statusCode() != 200) {
+                    load.errors.incrementAndGet();
+                }
+                return null;
+            }));
+            if (i % 1000 == 0) {
+                inFlight.removeIf(CompletableFuture::isDone);
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        return load;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Sleeps before each statement, standing in for the network round trip to a database server
+     */
+    public static class DatabaseLatency implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            try {
+                Thread.sleep(DB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sql;
+        }
+    }
+
+    private static final class Load {
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    private record Result(String mode, double throughput, double p50Ms, double p99Ms, double maxMs,
+                          long timeouts, long errors) {
+    }
+}
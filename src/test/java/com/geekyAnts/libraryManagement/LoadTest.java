@@ -0,0 +1,314 @@
+package com.geekyAnts.libraryManagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test over a mix of the endpoints in the Postman collection: browse, search,
+ * borrow, return and analytics.
+ *
+ * Requests are started on a fixed schedule whether or not earlier ones have finished, and each
+ * latency is measured from the time the request was due to start, so a stalled server shows up
+ * in the percentiles instead of slowing the load down (coordinated omission). Each arrival is
+ * handled by the next virtual user, who keeps their own borrowed records to return.
+ *
+ * Run with {@code gradle loadTest}; tune with -Dloadtest.rate (requests per second),
+ * -Dloadtest.seconds, -Dloadtest.warmupSeconds and -Dloadtest.users. Per-endpoint percentile
+ * distributions (.hgrm) and summary.txt are written to build/reports/loadtest.
+ */
+@Tag("load")
+class LoadTest {
+
+    private static final int RATE = Integer.getInteger("loadtest.rate", 50);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmupSeconds", 5);
+    private static final int USERS = Integer.getInteger("loadtest.users", 50);
+    private static final Path OUTPUT_DIR = Path.of(System.getProperty("loadtest.outputDir", "build/reports/loadtest"));
+
+    private static final int CATALOG_BOOKS = 50;
+    // Each virtual user keeps fewer loans than the premium limit of 5
+    private static final int MAX_LOANS_PER_USER = 4;
+    // A loan whose return keeps failing is given up on after this many tries, freeing its book
+    private static final int MAX_RETURN_ATTEMPTS = 3;
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final String[] CATEGORIES = {"Fiction", "Science", "History", "Technology", "Biography"};
+    private static final String[] ANALYTICS_PATHS = {
+            "/api/analytics/top-borrowed-books",
+            "/api/analytics/borrower-activity",
+            "/api/analytics/books/availability-summary"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final List<String> bookIds = new ArrayList<>();
+    private final List<VirtualUser> users = new ArrayList<>();
+    private String baseUrl;
+
+    @Test
+    void runLoadTest() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryManagementApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.geekyAnts.libraryManagement=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN")) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            seed();
+
+            drive(WARMUP_SECONDS);
+            endpoints.clear();
+            long startedAt = System.nanoTime();
+            drive(SECONDS);
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            report(elapsedSeconds);
+        }
+    }
+
+    /**
+     * Adds a catalog with plenty of copies and registers one premium borrower per virtual user
+     */
+    private void seed() throws Exception {
+        for (int i = 0; i < CATALOG_BOOKS; i++) {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "title", "Load Test Title " + i,
+                    "author", "Load Test Author " + (i % 10),
+                    "category", CATEGORIES[i % CATEGORIES.length],
+                    "totalCopies", 100_000,
+                    "availableCopies", 100_000));
+            bookIds.add(send(post("/api/books", body)).path("data").path("id").asText());
+        }
+        for (int i = 0; i < USERS; i++) {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "name", "Load Test User " + i,
+                    "email", "load-test-user-" + i + "@example.com",
+                    "membershipType", "PREMIUM"));
+            users.add(new VirtualUser(send(post("/api/borrowers", body)).path("data").path("id").asText(), i));
+        }
+    }
+
+    /**
+     * Starts RATE requests per second for the given time and waits for them to finish
+     */
+    private void drive(int seconds) {
+        long intervalNanos = 1_000_000_000L / RATE;
+        long total = (long) RATE * seconds;
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.add(users.get((int) (i % users.size())).act(intendedStart));
+            inFlight.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void report(double elapsedSeconds) throws IOException {
+        Files.createDirectories(OUTPUT_DIR);
+        StringWriter summary = new StringWriter();
+        PrintWriter out = new PrintWriter(summary);
+        out.printf("Target rate %d req/s, %d virtual users, %.1f s%n", RATE, USERS, elapsedSeconds);
+        out.printf("%-20s %8s %8s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "count", "req/s", "errors", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "max (ms)");
+
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        long allErrors = 0;
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            all.add(endpoint.latencies);
+            allErrors += endpoint.errors.get();
+            printRow(out, entry.getKey(), endpoint.latencies, endpoint.errors.get(), elapsedSeconds);
+            writeDistribution(entry.getKey(), endpoint.latencies);
+        }
+        printRow(out, "all", all, allErrors, elapsedSeconds);
+        writeDistribution("all", all);
+        out.flush();
+
+        Files.writeString(OUTPUT_DIR.resolve("summary.txt"), summary.toString());
+        System.out.println();
+        System.out.print(summary);
+        System.out.println("Histograms written to " + OUTPUT_DIR.toAbsolutePath());
+    }
+
+    private static void printRow(PrintWriter out, String name, Histogram latencies, long errors, double elapsedSeconds) {
+        out.printf("%-20s %8d %8.1f %7.2f%% %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                latencies.getTotalCount(),
+                latencies.getTotalCount() / elapsedSeconds,
+                latencies.getTotalCount() == 0 ? 0.0 : 100.0 * errors / latencies.getTotalCount(),
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static void writeDistribution(String name, Histogram latencies) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(OUTPUT_DIR.resolve(name + ".hgrm")))) {
+            // Values are recorded in nanoseconds and reported in milliseconds
+            latencies.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Sends the request and records its latency from the intended start under the endpoint name
+     */
+    private CompletableFuture<JsonNode> timed(String name, HttpRequest request, long intendedStart) {
+        Endpoint endpoint = endpoints.computeIfAbsent(name, key -> new Endpoint());
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((response, error) -> {
+            endpoint.latencies.recordValue(Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS));
+            if (error != null || response.statusCode() >= 300) {
+                endpoint.errors.incrementAndGet();
+                return null;
+            }
+            try {
+                return objectMapper.readTree(response.body());
+            } catch (IOException e) {
+                endpoint.errors.incrementAndGet();
+                return null;
+            }
+        });
+    }
+
+    private static final class Endpoint {
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    private final class VirtualUser {
+        private final String borrowerId;
+        private final Random random;
+        // Books borrowed or being borrowed, and the loans that can be returned
+        private final Set<String> heldBookIds = ConcurrentHashMap.newKeySet();
+        private final Queue<Loan> loans = new ConcurrentLinkedQueue<>();
+
+        private VirtualUser(String borrowerId, int seed) {
+            this.borrowerId = borrowerId;
+            this.random = new Random(seed);
+        }
+
+        /**
+         * Picks the next action from the mix: 30% browse, 20% search, 15% borrow, 15% return, 20% analytics
+         */
+        private synchronized CompletableFuture<Void> act(long intendedStart) {
+            int roll = random.nextInt(100);
+            if (roll < 30) {
+                String path = roll % 2 == 0
+                        ? "/api/books?category=" + CATEGORIES[roll % CATEGORIES.length] + "&size=10"
+                        : "/api/books?page=" + (roll % 5) + "&size=10&sortBy=title";
+                return timed("browse", get(path), intendedStart).thenAccept(body -> { });
+            }
+            if (roll < 50) {
+                return timed("search", get("/api/books?title=Title%20" + roll % 20 + "&size=10"), intendedStart)
+                        .thenAccept(body -> { });
+            }
+            if (roll < 80) {
+                // Borrow or return, whichever is possible when the other is not
+                boolean canBorrow = heldBookIds.size() < MAX_LOANS_PER_USER;
+                Loan loan = roll < 65 && canBorrow ? null : loans.poll();
+                if (loan != null) {
+                    return returnLoan(loan, intendedStart);
+                }
+                if (canBorrow) {
+                    return borrow(intendedStart);
+                }
+            }
+            return timed("analytics", get(ANALYTICS_PATHS[roll % ANALYTICS_PATHS.length]), intendedStart)
+                    .thenAccept(body -> { });
+        }
+
+        private CompletableFuture<Void> borrow(long intendedStart) {
+            String bookId;
+            do {
+                bookId = bookIds.get(random.nextInt(bookIds.size()));
+            } while (!heldBookIds.add(bookId));
+
+            String heldBookId = bookId;
+            String body = "{\"bookId\":\"" + bookId + "\",\"borrowerId\":\"" + borrowerId + "\"}";
+            return timed("borrow", post("/api/borrow", body), intendedStart).thenAccept(response -> {
+                if (response != null) {
+                    loans.add(new Loan(response.path("data").path("id").asText(), heldBookId, 0));
+                } else {
+                    heldBookIds.remove(heldBookId);
+                }
+            });
+        }
+
+        private CompletableFuture<Void> returnLoan(Loan loan, long intendedStart) {
+            String body = "{\"borrowRecordId\":\"" + loan.borrowRecordId() + "\"}";
+            return timed("return", post("/api/return", body), intendedStart).thenAccept(response -> {
+                if (response != null || loan.failedReturns() + 1 >= MAX_RETURN_ATTEMPTS) {
+                    heldBookIds.remove(loan.bookId());
+                } else {
+                    // Still on loan as far as we know, so try the return again later
+                    loans.add(new Loan(loan.borrowRecordId(), loan.bookId(), loan.failedReturns() + 1));
+                }
+            });
+        }
+    }
+
+    private record Loan(String borrowRecordId, String bookId, int failedReturns) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.geekyAnts.libraryManagement.repository;
+
+import com.geekyAnts.libraryManagement.support.SqlCapture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs every @Query and derived query method of the repositories, captures the SQL Hibernate sends,
+ * and EXPLAINs it in H2. Fails when a plan scans a table or a whole index unless the method is listed in
+ * INTENDED_SCANS, so a new query without a supporting index breaks the build.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-plans",
+        SqlCapture.INSPECTOR_PROPERTY,
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class QueryPlanTest {
+
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            BookRepository.class,
+            BorrowRecordRepository.class,
+            BorrowerRepository.class,
+            FinePolicyRepository.class
+    );
+
+    /**
+     * A table scan, or an index read from end to end because no condition applies to it
+     */
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.[A-Z0-9_.]+(\\.tableScan)? \\*/");
+
+    /**
+     * Queries that read the whole table (or nearly all of it) by design, and why
+     */
+    private static final Map<String, String> INTENDED_SCANS = Map.ofEntries(
+            Map.entry("BookRepository.findByIsDeletedFalse", "lists the whole catalog"),
+            Map.entry("BookRepository.findBooksWithFilters", "both filters are optional; unfiltered it lists the catalog"),
+            Map.entry("BookRepository.searchBooks", "LIKE '%term%' cannot use an index; BookSearchIndex answers it first"),
+            Map.entry("BookRepository.findSearchableBooks", "loads every book into BookSearchIndex and BookSuggestIndex"),
+            Map.entry("BookRepository.findAvailableBooks", "most books have a copy available"),
+            Map.entry("BookRepository.getAvailabilitySummary", "aggregates the whole catalog"),
+            Map.entry("BookRepository.findInventorySnapshot", "loads every book into InventoryLedger"),
+            Map.entry("BookRepository.streamCatalog", "exports the whole catalog"),
+            Map.entry("BorrowRecordRepository.findBorrowPairs", "replays every borrow into CoBorrowIndex"),
+            Map.entry("BorrowRecordRepository.findBorrowEvents", "replays every borrow into BorrowSketches"),
+            Map.entry("BorrowRecordRepository.findBorrowEventsSince", "replays the borrows since the last sketch snapshot, once at startup"),
+            Map.entry("BorrowRecordRepository.findTopBorrowedBooks", "aggregates every borrow record"),
+            Map.entry("BorrowRecordRepository.findBorrowerActivity", "aggregates every borrow record"),
+            Map.entry("BorrowRecordRepository.streamBorrowHistory", "exports every borrow record"),
+            Map.entry("BorrowRecordRepository.streamHistoryColumns", "loads every borrow record into BorrowHistoryColumns"),
+            Map.entry("BorrowerRepository.findByIsActiveTrue", "lists every borrower"),
+            Map.entry("BorrowerRepository.searchBorrowers", "LIKE '%term%' cannot use an index; BorrowerSearchIndex answers it first"),
+            Map.entry("BorrowerRepository.findSearchableBorrowers", "loads every borrower into BorrowerSearchIndex"),
+            Map.entry("FinePolicyRepository.findByIsActiveTrue", "loads every policy into FineRateTable")
+    );
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void repositoryQueriesUseIndexes() throws Exception {
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        for (Class<?> repositoryType : REPOSITORIES) {
+            Object repository = context.getBean(repositoryType);
+            Method[] methods = repositoryType.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (!isQueryMethod(method)) {
+                    continue;
+                }
+                String name = repositoryType.getSimpleName() + "." + method.getName();
+                List<String> statements = capture(repository, method);
+                assertTrue(!statements.isEmpty(), name + " sent no SQL");
+                for (String sql : statements) {
+                    String plan = explain(sql);
+                    if (FULL_SCAN.matcher(plan).find() && !INTENDED_SCANS.containsKey(name)) {
+                        failures.add(name + " reads a whole table or index:\n  " + plan.replace("\n", "\n  "));
+                    }
+                }
+                checked++;
+            }
+        }
+        if (!failures.isEmpty()) {
+            fail(failures.size() + " of " + checked + " repository queries read a whole table or index:\n" + String.join("\n", failures));
+        }
+        for (String name : INTENDED_SCANS.keySet()) {
+            String[] parts = name.split("\\.");
+            Class<?> repositoryType = REPOSITORIES.stream()
+                    .filter(type -> type.getSimpleName().equals(parts[0]))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("Unknown repository in " + name));
+            assertTrue(Arrays.stream(repositoryType.getDeclaredMethods()).anyMatch(m -> m.getName().equals(parts[1])),
+                    "Stale entry in INTENDED_SCANS: " + name);
+        }
+    }
+
+    private static boolean isQueryMethod(Method method) {
+        if (method.isDefault() || method.isSynthetic()) {
+            return false;
+        }
+        String name = method.getName();
+        return method.isAnnotationPresent(Query.class)
+                || name.startsWith("find") || name.startsWith("count") || name.startsWith("exists");
+    }
+
+    /**
+     * Invokes the method with placeholder arguments in a transaction that is rolled back
+     */
+    private List<String> capture(Object repository, Method method) {
+        Object[] args = Arrays.stream(method.getGenericParameterTypes()).map(QueryPlanTest::placeholder).toArray();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            status.setRollbackOnly();
+            List<String> statements = SqlCapture.start();
+            try {
+                // A Stream result runs its query on the first read and holds the cursor until closed
+                if (method.invoke(repository, args) instanceof Stream<?> result) {
+                    try (result) {
+                        result.findFirst();
+                    }
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not run " + method, e);
+            } finally {
+                SqlCapture.stop();
+            }
+            return statements;
+        });
+    }
+
+    private static Object placeholder(Type genericType) {
+        if (genericType instanceof ParameterizedType collectionType
+                && Collection.class.isAssignableFrom((Class<?>) collectionType.getRawType())) {
+            return Set.of(placeholder(collectionType.getActualTypeArguments()[0]));
+        }
+        Class<?> type = (Class<?>) genericType;
+        if (type == UUID.class) {
+            return UUID.randomUUID();
+        }
+        if (type == String.class) {
+            return "Fiction";
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.TRUE;
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (type == int.class || type == Integer.class) {
+            return 1;
+        }
+        if (type == Pageable.class) {
+            return PageRequest.of(0, 10, Sort.by("id"));
+        }
+        throw new IllegalArgumentException("No placeholder for parameter type " + type.getName());
+    }
+
+    /**
+     * The plan H2 chooses; parameters are left null since they do not change which index is used
+     */
+    private String explain(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                statement.setObject(i, null);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.ApproximateBookStatsDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowerActivityDTO;
+import com.geekyAnts.libraryManagement.dto.CategoryFinesDTO;
+import com.geekyAnts.libraryManagement.dto.LoanDurationDTO;
+import com.geekyAnts.libraryManagement.dto.ReturnRequestDTO;
+import com.geekyAnts.libraryManagement.dto.SimilarBookDTO;
+import com.geekyAnts.libraryManagement.dto.TopBorrowedBookDTO;
+import com.geekyAnts.libraryManagement.dto.TrendingDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.entity.Borrower;
+import com.geekyAnts.libraryManagement.enums.TrendingWindow;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowerRepository;
+import com.geekyAnts.libraryManagement.support.SqlCapture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls every AnalyticsService endpoint and counts the SQL statements it sends, so an N+1 or a
+ * second round trip creeping back in breaks the build. Also checks that the joined projections
+ * carry the real borrower and book details.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:analytics-budget",
+        SqlCapture.INSPECTOR_PROPERTY,
+        "spring.jpa.show-sql=false",
+        "library.sketches.snapshot-path=",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class AnalyticsQueryBudgetTest {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Test
+    void everyEndpointSendsAtMostOneStatement() {
+        // Two borrowers take the same two books, so both books are co-borrowed and lead the leaderboard
+        List<Borrower> borrowers = borrowerRepository.findByIsActiveTrue().subList(0, 2);
+        List<Book> books = bookRepository.findAll().stream()
+                .filter(book -> !book.getIsDeleted() && book.getAvailableCopies() >= borrowers.size())
+                .limit(2)
+                .toList();
+        List<BorrowRecordDTO> loans = new ArrayList<>();
+        for (Borrower borrower : borrowers) {
+            for (Book book : books) {
+                loans.add(borrowService.borrowBook(new BorrowRequestDTO(book.getId(), borrower.getId())));
+            }
+        }
+
+        List<TopBorrowedBookDTO> topBorrowed = withBudget("getTopBorrowedBooks", 1, analyticsService::getTopBorrowedBooks);
+        assertEquals(2, topBorrowed.size());
+        for (TopBorrowedBookDTO entry : topBorrowed) {
+            Book book = books.stream().filter(b -> b.getId().equals(entry.getBookId())).findFirst().orElseThrow();
+            assertEquals(book.getTitle(), entry.getBookTitle());
+            assertEquals(2L, entry.getBorrowCount());
+        }
+
+        // Aggregated in memory, with names from the borrower search index
+        List<BorrowerActivityDTO> activity = withBudget("getBorrowerActivity", 0, analyticsService::getBorrowerActivity);
+        assertEquals(2, activity.size());
+        for (Borrower borrower : borrowers) {
+            BorrowerActivityDTO entry = activity.stream()
+                    .filter(a -> a.getBorrowerId().equals(borrower.getId()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(borrower.getName(), entry.getBorrowerName());
+            assertEquals(borrower.getEmail(), entry.getBorrowerEmail());
+            assertEquals(2L, entry.getTotalBorrowed());
+            assertEquals(0L, entry.getOverdueCount());
+        }
+
+        List<SimilarBookDTO> similar = withBudget("getSimilarBooks", 1,
+                () -> analyticsService.getSimilarBooks(books.get(0).getId()));
+        assertEquals(books.get(1).getId(), similar.get(0).getBookId());
+
+        TrendingDTO trending = withBudget("getTrending", 1, () -> analyticsService.getTrending(TrendingWindow.FIVE_MINUTES, 10));
+        assertEquals(2, trending.getBooks().size());
+        assertEquals(2L, trending.getBooks().get(0).getBorrows());
+
+        // Two borrows by two borrowers each; estimates this small are exact or within their bound
+        List<ApproximateBookStatsDTO> heavyHitters = withBudget("getApproximateHeavyHitters", 1,
+                () -> analyticsService.getApproximateHeavyHitters(10));
+        assertEquals(2, heavyHitters.size());
+        for (ApproximateBookStatsDTO entry : heavyHitters) {
+            assertEquals(2L, entry.getBorrows().getValue());
+            assertTrue(Math.abs(entry.getDistinctBorrowers().getValue() - 2) <= entry.getDistinctBorrowers().getErrorBound());
+        }
+        ApproximateBookStatsDTO bookStats = withBudget("getApproximateBookStats", 1,
+                () -> analyticsService.getApproximateBookStats(books.get(0).getId()));
+        assertEquals(books.get(0).getTitle(), bookStats.getTitle());
+        assertEquals(2L, bookStats.getBorrows().getValue());
+        withBudget("getApproximateCategoryStats", 0, analyticsService::getApproximateCategoryStats);
+
+        withBudget("getAvailabilitySummary", 1, analyticsService::getAvailabilitySummary);
+        withBudget("getInventoryContention", 0, analyticsService::getInventoryContention);
+
+        List<CategoryFinesDTO> fines = withBudget("getFinesByCategory", 0, analyticsService::getFinesByCategory);
+        assertEquals(4L, fines.stream().mapToLong(CategoryFinesDTO::getLoans).sum());
+
+        // A loan returned the day it was borrowed lasted zero days
+        borrowService.returnBook(new ReturnRequestDTO(loans.get(0).getId()));
+        LoanDurationDTO durations = withBudget("getLoanDurations", 0, analyticsService::getLoanDurations);
+        assertEquals(1L, durations.getReturnedLoans());
+        assertEquals(0, durations.getMedianDays());
+        assertEquals(1L, durations.getBuckets().get(0).getLoans());
+    }
+
+    private static <T> T withBudget(String endpoint, int budget, Supplier<T> call) {
+        List<String> statements = SqlCapture.start();
+        try {
+            T result = call.get();
+            assertEquals(budget, statements.size(), endpoint + " sent " + statements.size() + " statements: " + statements);
+            return result;
+        } finally {
+            SqlCapture.stop();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.BookDTO;
+import com.geekyAnts.libraryManagement.dto.CursorPageDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walks every page of random keyset listings and requires each to hold the same books as the offset
+ * page at the same position, ordered by the same sort and then by id.
+ *
+ * Titles, authors, categories and copy counts are drawn from a few values each, so every sort key
+ * has long runs of ties that only the id separates, and pages often end in the middle of one.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-cursor",
+        "spring.jpa.show-sql=false",
+        "library.sketches.snapshot-path=",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class BookCursorPagingTest {
+
+    private static final long SEED = 20240702L;
+    private static final int WALKS = 120;
+    // One title contains the separator the cursor encoding uses
+    private static final String[] TITLES = {"Atlas", "Dune", "River Song", "Line\nBreak"};
+    private static final String[] AUTHORS = {"Ada Lee", "Ng", "Okafor"};
+    private static final String[] CATEGORIES = {"Fiction", "Tech", "History"};
+    private static final String[] PROPERTIES = {"title", "author", "category", "totalCopies", "availableCopies"};
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final Random random = new Random(SEED);
+
+    @BeforeEach
+    void loadCatalog() {
+        if (bookRepository.count() > 0) {
+            return;
+        }
+        List<Book> catalog = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            Book book = new Book();
+            book.setTitle(TITLES[random.nextInt(TITLES.length)]);
+            book.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+            book.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            book.setTotalCopies(1 + random.nextInt(3));
+            book.setAvailableCopies(random.nextInt(book.getTotalCopies() + 1));
+            book.setIsDeleted(random.nextInt(10) == 0);
+            catalog.add(book);
+        }
+        bookRepository.saveAll(catalog);
+    }
+
+    @Test
+    void everyPageMatchesTheOffsetPageAtTheSamePosition() {
+        for (int walk = 0; walk < WALKS; walk++) {
+            Sort.Order order = new Sort.Order(random.nextBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC,
+                    PROPERTIES[random.nextInt(PROPERTIES.length)]);
+            int size = 1 + random.nextInt(40);
+            Sort sort = Sort.by(order).and(Sort.by(order.getDirection(), "id"));
+
+            if (random.nextBoolean()) {
+                String category = random.nextInt(3) == 0 ? null : CATEGORIES[random.nextInt(CATEGORIES.length)];
+                Boolean available = switch (random.nextInt(3)) {
+                    case 0 -> null;
+                    case 1 -> true;
+                    default -> false;
+                };
+                walk("filter category=" + category + " available=" + available + " " + order + " size=" + size,
+                        category, available, null, null, order, size,
+                        pageable -> bookRepository.findBooksWithFilters(category, available, pageable), sort);
+            } else {
+                String title = random.nextInt(3) == 0 ? null : "i";
+                String author = random.nextBoolean() ? null : "OKA";
+                walk("search title=" + title + " author=" + author + " " + order + " size=" + size,
+                        null, null, title, author, order, size,
+                        pageable -> bookRepository.searchBooks(title, author, pageable), sort);
+            }
+        }
+    }
+
+    private void walk(String description, String category, Boolean available, String title, String author,
+                      Sort.Order order, int size, OffsetQuery offsetQuery, Sort sort) {
+        boolean includeTotal = random.nextBoolean();
+        String cursor = null;
+        int pageNumber = 0;
+        while (true) {
+            Page<Book> expected = offsetQuery.page(PageRequest.of(pageNumber, size, sort));
+            CursorPageDTO<BookDTO> actual = bookService.scrollBooks(category, available, title, author,
+                    order, cursor, size, includeTotal);
+            String pageDescription = description + " page " + pageNumber;
+
+            assertEquals(expected.getContent().stream().map(Book::getId).toList(),
+                    actual.getContent().stream().map(BookDTO::getId).toList(), pageDescription);
+            assertEquals(actual.getContent().size(), actual.getSize(), pageDescription);
+            assertEquals(expected.hasNext(), actual.isHasNext(), pageDescription);
+            assertEquals(includeTotal ? Long.valueOf(expected.getTotalElements()) : null,
+                    actual.getTotalElements(), pageDescription);
+            if (!actual.isHasNext()) {
+                assertNull(actual.getNextCursor(), pageDescription);
+                return;
+            }
+            assertNotNull(actual.getNextCursor(), pageDescription);
+            cursor = actual.getNextCursor();
+            pageNumber++;
+        }
+    }
+
+    @Test
+    void cursorFromADifferentSortIsRejected() {
+        Sort.Order titleAscending = Sort.Order.asc("title");
+        CursorPageDTO<BookDTO> first = bookService.scrollBooks(null, null, null, null, titleAscending, null, 5, false);
+        assertTrue(first.isHasNext());
+        String cursor = first.getNextCursor();
+
+        for (Sort.Order other : List.of(Sort.Order.desc("title"), Sort.Order.asc("author"), Sort.Order.asc("totalCopies"))) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> bookService.scrollBooks(null, null, null, null, other, cursor, 5, false));
+            assertEquals("Cursor was issued for a different sort", e.getMessage(), other.toString());
+        }
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        Sort.Order copies = Sort.Order.asc("totalCopies");
+        List<String> tokens = List.of(
+                "not base64!",
+                token("totalCopies\nASC\n" + UUID.randomUUID()),
+                token("totalCopies\nASC\nnot-a-uuid\n2"),
+                token("totalCopies\nASC\n" + UUID.randomUUID() + "\ntwo"),
+                token("totalCopies"));
+        for (String token : tokens) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> bookService.scrollBooks(null, null, null, null, copies, token, 5, false));
+            assertEquals("Malformed cursor", e.getMessage(), token);
+        }
+    }
+
+    @Test
+    void unsupportedSortsAndSizesAreRejected() {
+        IllegalArgumentException property = assertThrows(IllegalArgumentException.class,
+                () -> bookService.scrollBooks(null, null, null, null, Sort.Order.asc("isDeleted"), null, 5, false));
+        assertEquals("Cannot page by cursor on property isDeleted", property.getMessage());
+
+        IllegalArgumentException size = assertThrows(IllegalArgumentException.class,
+                () -> bookService.scrollBooks(null, null, null, null, Sort.Order.asc("title"), null, 0, false));
+        assertEquals("Page size must be positive", size.getMessage());
+
+        // A blank cursor starts from the beginning
+        assertFalse(bookService.scrollBooks(null, null, null, null, Sort.Order.asc("title"), " ", 5, false)
+                .getContent().isEmpty());
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private interface OffsetQuery {
+        Page<Book> page(Pageable pageable);
+    }
+}
@@ -0,0 +1,85 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookFuzzyIndexTest {
+
+    private static final int MAX_WORDS = 4;
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final UUID dune = UUID.randomUUID();
+    private final UUID duke = UUID.randomUUID();
+
+    private BookFuzzyIndex loadedIndex() {
+        List<Object[]> books = new ArrayList<>();
+        books.add(new Object[]{dune, "Dune Messiah", "Frank Herbert"});
+        books.add(new Object[]{duke, "The Duke", "Ann Lee"});
+        when(bookRepository.findSearchableBooks()).thenReturn(books);
+        BookFuzzyIndex index = new BookFuzzyIndex(bookRepository, 20_000, 1_000, MAX_WORDS);
+        index.rebuild();
+        return index;
+    }
+
+    @Test
+    void typosWithinTheWordLimitMatch() {
+        BookFuzzyIndex index = loadedIndex();
+
+        BookFuzzyIndex.SearchPage page = index.search("dune mesiah", "frank herbet", Pageable.unpaged()).orElseThrow();
+        assertEquals(List.of(dune), page.ids());
+        assertTrue(page.totalExact());
+    }
+
+    @Test
+    void totalIsMarkedAsALowerBoundWhenTheCandidateLimitIsReached() {
+        List<Object[]> books = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            books.add(new Object[]{UUID.randomUUID(), "Common Title " + i, "Author " + i});
+        }
+        when(bookRepository.findSearchableBooks()).thenReturn(books);
+        BookFuzzyIndex index = new BookFuzzyIndex(bookRepository, 20_000, 4, MAX_WORDS);
+        index.rebuild();
+
+        BookFuzzyIndex.SearchPage broad = index.search("common", null, Pageable.unpaged()).orElseThrow();
+        assertFalse(broad.totalExact());
+        assertEquals(4, broad.total());
+
+        // The rarest word collects the candidates, so adding one that matches a single book stays under the limit
+        BookFuzzyIndex.SearchPage narrow = index.search("common", "author 7", Pageable.unpaged()).orElseThrow();
+        assertTrue(narrow.totalExact());
+        assertEquals(1, narrow.total());
+    }
+
+    @Test
+    void totalIsMarkedAsALowerBoundWhenTheTreeWalkIsCut() {
+        BookFuzzyIndex index = new BookFuzzyIndex(bookRepository, 1, 1_000, MAX_WORDS);
+        List<Object[]> books = new ArrayList<>();
+        books.add(new Object[]{dune, "Dune Messiah", "Frank Herbert"});
+        when(bookRepository.findSearchableBooks()).thenReturn(books);
+        index.rebuild();
+
+        assertFalse(index.search("messiah", null, Pageable.unpaged()).orElseThrow().totalExact());
+    }
+
+    @Test
+    void queriesWithTooManyWordsAreRejected() {
+        BookFuzzyIndex index = loadedIndex();
+
+        // Title and author words count together
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> index.search("the dune messiah", "frank herbert", Pageable.unpaged()));
+        assertEquals("Fuzzy search takes at most 4 words", e.getMessage());
+    }
+}
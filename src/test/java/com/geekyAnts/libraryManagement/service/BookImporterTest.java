@@ -0,0 +1,204 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geekyAnts.libraryManagement.dto.BookImportResultDTO;
+import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.DataFormat;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Imports small CSV and NDJSON bodies with a chunk size of three, so merging within and across
+ * chunks, rejected rows and the retry after a version conflict can all be checked row by row.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:book-import",
+        "spring.jpa.show-sql=false",
+        "library.import.chunk-size=3",
+        "library.sketches.snapshot-path=",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class BookImporterTest {
+
+    private static final int CHUNK_SIZE = 3;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+
+    @Autowired
+    private BookFuzzyIndex bookFuzzyIndex;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void csvRowsAreMergedWithinAndAcrossChunksAndIntoExistingBooks() {
+        bookService.addBook(new BookRequestDTO("Dune", "Frank Herbert", "Fiction", 2));
+
+        BookImportResultDTO result = bookService.importBooks(body("""
+                title,author,category,totalCopies
+                Dune,Frank Herbert,Fiction,1
+                Importer New,Ann Lee,Tech,2
+                ,Ann Lee,Tech,1
+                Importer New,Ann Lee,Tech,3
+                Broken,Row
+                "Quoted, Title",Bob Ray,History,1
+                Counted,Cy,Tech,abc
+                Importer New,Ann Lee,Tech,1
+                Zero,Zed,Tech,0
+                Dune,Frank Herbert,Fiction,2
+                """), DataFormat.CSV);
+
+        assertEquals(10, result.getRowsRead());
+        // Chunk one creates Importer New (2 + 3) and adds to Dune; chunk two adds to both and creates one more
+        assertEquals(2, result.getBooksCreated());
+        assertEquals(3, result.getBooksUpdated());
+        assertEquals(2, result.getChunks());
+        assertEquals(4, result.getRowsRejected());
+        assertEquals(List.of(
+                "Line 4: Title is required",
+                "Line 6: Expected 4 columns, found 2",
+                "Line 8: Total copies must be a whole number",
+                "Line 10: Total copies must be at least 1"
+        ), result.getErrors());
+
+        assertCopies("Dune", "Frank Herbert", 5);
+        assertCopies("Importer New", "Ann Lee", 6);
+        assertCopies("Quoted, Title", "Bob Ray", 1);
+        Book quoted = bookRepository.findByTitleAndAuthor("Quoted, Title", "Bob Ray").orElseThrow();
+        assertEquals(List.of(quoted.getId()),
+                bookSearchIndex.search("quoted,", null, PageRequest.of(0, 10, Sort.by("title"))).orElseThrow().ids());
+    }
+
+    @Test
+    void ndjsonLinesThatAreNotObjectsAreRejected() {
+        BookImportResultDTO result = bookService.importBooks(body("""
+                {"title":"Json Book","author":"Jo","category":"Tech","totalCopies":1}
+                null
+                [1, 2]
+                "text"
+
+                {"title":
+                {"title":"Json Book","author":"Jo","category":"Tech","totalCopies":2}
+                42
+                """), DataFormat.NDJSON);
+
+        assertEquals(7, result.getRowsRead());
+        assertEquals(1, result.getBooksCreated());
+        assertEquals(5, result.getRowsRejected());
+        List<String> errors = result.getErrors();
+        assertEquals("Line 2: Expected a JSON object, found null", errors.get(0));
+        assertEquals("Line 3: Expected a JSON object, found an array", errors.get(1));
+        assertEquals("Line 4: Expected a JSON object, found a string", errors.get(2));
+        assertTrue(errors.get(3).startsWith("Line 6: Malformed JSON"), errors.get(3));
+        assertEquals("Line 8: Expected a JSON object, found a number", errors.get(4));
+        assertCopies("Json Book", "Jo", 3);
+    }
+
+    @Test
+    void chunkIsWrittenAgainAfterAVersionConflict() {
+        bookService.addBook(new BookRequestDTO("Retried", "Rae", "Fiction", 2));
+        long conflictsBefore = inventoryLedger.getContention().getVersionConflicts();
+        BookRepository repository = mock(BookRepository.class, delegatesTo(bookRepository));
+        // The first flush loses the version check, after the ledger was already given the copies
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, UUID.randomUUID()))
+                .doAnswer(invocation -> bookRepository.saveAllAndFlush(invocation.getArgument(0)))
+                .when(repository).saveAllAndFlush(any());
+
+        BookImportResultDTO result = importer(repository).importBooks(body("""
+                title,author,category,totalCopies
+                Retried,Rae,Fiction,3
+                Retry New,Rae,Fiction,1
+                """), DataFormat.CSV);
+
+        assertEquals(1, result.getBooksCreated());
+        assertEquals(1, result.getBooksUpdated());
+        assertEquals(1, result.getChunks());
+        assertEquals(conflictsBefore + 1, inventoryLedger.getContention().getVersionConflicts());
+        // The rolled-back attempt's copies were taken off the ledger again
+        assertCopies("Retried", "Rae", 5);
+        assertCopies("Retry New", "Rae", 1);
+    }
+
+    @Test
+    void importStopsWhenEveryAttemptConflicts() {
+        BookRepository repository = mock(BookRepository.class, delegatesTo(bookRepository));
+        doAnswer(invocation -> bookRepository.saveAllAndFlush(invocation.getArgument(0)))
+                .doThrow(new ObjectOptimisticLockingFailureException(Book.class, UUID.randomUUID()))
+                .when(repository).saveAllAndFlush(any());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> importer(repository).importBooks(body("""
+                title,author,category,totalCopies
+                Stuck One,Sy,Tech,1
+                Stuck Two,Sy,Tech,1
+                Stuck Three,Sy,Tech,1
+                Stuck Four,Sy,Tech,1
+                """), DataFormat.CSV));
+
+        assertTrue(e.getMessage().contains("from line 5"), e.getMessage());
+        assertTrue(e.getMessage().contains("3 earlier rows were imported"), e.getMessage());
+        assertCopies("Stuck Three", "Sy", 1);
+        assertTrue(bookRepository.findByTitleAndAuthor("Stuck Four", "Sy").isEmpty());
+    }
+
+    private BookImporter importer(BookRepository repository) {
+        return new BookImporter(repository, inventoryLedger, bookSearchIndex, bookSuggestIndex, bookFuzzyIndex,
+                entityManager, objectMapper, validator, transactionManager, CHUNK_SIZE, 65536, MAX_ATTEMPTS);
+    }
+
+    private void assertCopies(String title, String author, int copies) {
+        Book book = bookRepository.findByTitleAndAuthor(title, author).orElseThrow();
+        assertEquals(copies, book.getTotalCopies(), title);
+        assertEquals(copies, book.getAvailableCopies(), title);
+        assertEquals(copies, inventoryLedger.getAvailableCopies(book.getId()), title + " in the ledger");
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,197 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs random searches and filtered listings against both BookSearchIndex and the queries it stands
+ * in for, and requires the same page and total. The catalog is checked right after a build, with books
+ * added, deleted and sold out since, and again after a compaction.
+ *
+ * Titles are unique and every sort ends with the title, so both sides have exactly one right order.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search-equivalence",
+        "spring.jpa.show-sql=false",
+        "library.search.compact-threshold=20",
+        "library.sketches.snapshot-path=",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class BookSearchIndexEquivalenceTest {
+
+    private static final long SEED = 20240611L;
+    private static final int QUERIES_PER_ROUND = 300;
+    private static final String[] WORDS = {
+            "River", "Dark", "dawn", "Garden", "Stone", "stars", "Atlas", "Ocean", "Winter", "Tale", "Codex", "ember"
+    };
+    private static final String[] NAMES = {
+            "Ada", "Lee", "Marlowe", "Ng", "O'Brien", "Rivera", "Stone", "Tanaka", "Okafor", "Dunn"
+    };
+    private static final String[] CATEGORIES = {"Fiction", "Tech", "History", "Poetry", "Science"};
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    private final Random random = new Random(SEED);
+    private int nextTitle;
+
+    @Test
+    void indexAnswersMatchTheDatabase() {
+        List<Book> catalog = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Book book = new Book();
+            BookRequestDTO request = randomRequest();
+            book.setTitle(request.getTitle());
+            book.setAuthor(request.getAuthor());
+            book.setCategory(request.getCategory());
+            book.setTotalCopies(request.getTotalCopies());
+            book.setAvailableCopies(random.nextInt(4) == 0 ? 0 : request.getTotalCopies());
+            book.setIsDeleted(false);
+            catalog.add(book);
+        }
+        bookRepository.saveAll(catalog);
+        inventoryLedger.load();
+        bookSearchIndex.rebuild();
+        checkRandomQueries("after build");
+
+        // Books added since the build are merged in per query
+        List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            added.add(bookService.addBook(randomRequest()).getId());
+        }
+        for (int i = 0; i < 10; i++) {
+            bookService.deleteBook(catalog.remove(random.nextInt(catalog.size())).getId());
+        }
+        flipAvailability(catalog.stream().map(Book::getId).toList(), 40);
+        flipAvailability(added, 15);
+        checkRandomQueries("with books added, deleted and sold out since the build");
+
+        bookSearchIndex.compact();
+        checkRandomQueries("after compaction");
+
+        for (int i = 0; i < 30; i++) {
+            added.add(bookService.addBook(randomRequest()).getId());
+        }
+        flipAvailability(added, 15);
+        checkRandomQueries("with books added after compaction");
+    }
+
+    /**
+     * Sells out or restocks random books through BookService, so the index only learns of it from the ledger
+     */
+    private void flipAvailability(List<UUID> bookIds, int count) {
+        for (int i = 0; i < count; i++) {
+            UUID bookId = bookIds.get(random.nextInt(bookIds.size()));
+            Optional<Book> book = bookRepository.findByIdAndIsDeletedFalse(bookId);
+            if (book.isEmpty()) {
+                continue;
+            }
+            int available = book.get().getAvailableCopies();
+            bookService.updateAvailableCopies(bookId, available > 0 ? -available : 1 + random.nextInt(2));
+        }
+    }
+
+    private void checkRandomQueries(String phase) {
+        List<Book> books = bookRepository.findAll().stream().filter(book -> !book.getIsDeleted()).toList();
+        for (int i = 0; i < QUERIES_PER_ROUND; i++) {
+            Pageable pageable = randomPageable();
+            if (random.nextBoolean()) {
+                String title = randomTerm(books, true);
+                String author = randomTerm(books, false);
+                String description = phase + ": search title=" + title + " author=" + author + " " + pageable;
+                BookSearchIndex.SearchPage actual = bookSearchIndex.search(title, author, pageable).orElseThrow();
+                assertSamePage(bookRepository.searchBooks(title, author, pageable), actual, description);
+            } else {
+                String category = random.nextInt(4) == 0 ? null : CATEGORIES[random.nextInt(CATEGORIES.length)];
+                Boolean available = switch (random.nextInt(3)) {
+                    case 0 -> null;
+                    case 1 -> true;
+                    default -> false;
+                };
+                String description = phase + ": filter category=" + category + " available=" + available + " " + pageable;
+                BookSearchIndex.SearchPage actual = bookSearchIndex.filter(category, available, pageable).orElseThrow();
+                assertSamePage(bookRepository.findBooksWithFilters(category, available, pageable), actual, description);
+            }
+        }
+    }
+
+    private static void assertSamePage(Page<Book> expected, BookSearchIndex.SearchPage actual, String description) {
+        assertEquals(expected.getTotalElements(), actual.total(), description);
+        assertEquals(expected.getContent().stream().map(Book::getId).toList(), actual.ids(), description);
+    }
+
+    private BookRequestDTO randomRequest() {
+        String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                + " " + (nextTitle++);
+        String author = NAMES[random.nextInt(NAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)];
+        return new BookRequestDTO(title, author, CATEGORIES[random.nextInt(CATEGORIES.length)], 1 + random.nextInt(3));
+    }
+
+    /**
+     * Null, empty, a piece of an existing title or author in random case, or random letters
+     */
+    private String randomTerm(List<Book> books, boolean title) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return null;
+            case 1:
+                return random.nextBoolean() ? null : "";
+            case 2:
+                StringBuilder letters = new StringBuilder();
+                for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                    letters.append((char) ('a' + random.nextInt(26)));
+                }
+                return letters.toString();
+            default:
+                Book book = books.get(random.nextInt(books.size()));
+                String text = title ? book.getTitle() : book.getAuthor();
+                int start = random.nextInt(text.length());
+                int end = Math.min(text.length(), start + 1 + random.nextInt(6));
+                String term = text.substring(start, end);
+                return random.nextBoolean() ? term.toUpperCase(Locale.ROOT) : term;
+        }
+    }
+
+    private Pageable randomPageable() {
+        Sort.Direction titleDirection = random.nextBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(titleDirection, "title");
+        switch (random.nextInt(4)) {
+            case 1 -> sort = Sort.by(randomDirection(), "author").and(sort);
+            case 2 -> sort = Sort.by(randomDirection(), "category").and(sort);
+            case 3 -> sort = Sort.by(randomDirection(), "category").and(Sort.by(randomDirection(), "author")).and(sort);
+            default -> {
+            }
+        }
+        return PageRequest.of(random.nextInt(5), 1 + random.nextInt(15), sort);
+    }
+
+    private Sort.Direction randomDirection() {
+        return random.nextBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+    }
+}
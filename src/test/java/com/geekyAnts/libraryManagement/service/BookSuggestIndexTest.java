@@ -0,0 +1,171 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.BookSuggestionDTO;
+import com.geekyAnts.libraryManagement.entity.Book;
+import com.geekyAnts.libraryManagement.enums.SuggestionType;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares BookSuggestIndex with a brute-force scan of every title and author through random
+ * adds, renames, deletes and borrows, before and after compactions.
+ */
+class BookSuggestIndexTest {
+
+    private static final long SEED = 7L;
+    private static final int COMPACT_THRESHOLD = 15;
+    private static final String[] WORDS = {"a", "an", "Ana", "anna", "Annals", "b", "Bo", "book", "Books", "bookish", "ca", "cab"};
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BorrowRecordRepository borrowRecordRepository = mock(BorrowRecordRepository.class);
+    private final Random random = new Random(SEED);
+
+    // The brute-force model: book ID to title, author and borrow count
+    private final Map<UUID, String[]> texts = new LinkedHashMap<>();
+    private final Map<UUID, Long> borrows = new HashMap<>();
+
+    @Test
+    void suggestionsMatchABruteForceScan() {
+        List<Object[]> searchable = new ArrayList<>();
+        List<Object[]> borrowCounts = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            UUID bookId = UUID.randomUUID();
+            String title = randomText();
+            String author = randomText();
+            texts.put(bookId, new String[]{title, author});
+            searchable.add(new Object[]{bookId, title, author, "Fiction", true});
+            long count = random.nextInt(3) == 0 ? 0 : random.nextInt(20);
+            borrows.put(bookId, count);
+            if (count > 0) {
+                borrowCounts.add(new Object[]{bookId, count});
+            }
+        }
+        when(bookRepository.findSearchableBooks()).thenReturn(searchable);
+        when(borrowRecordRepository.findTopBorrowedBooks()).thenReturn(borrowCounts);
+
+        BookSuggestIndex index = new BookSuggestIndex(bookRepository, borrowRecordRepository, COMPACT_THRESHOLD);
+        index.rebuild();
+        checkAllPrefixes(index, "after build");
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 25; i++) {
+                randomChange(index);
+            }
+            checkAllPrefixes(index, "round " + round);
+            if (round % 3 == 2) {
+                index.compact();
+                checkAllPrefixes(index, "round " + round + " after compaction");
+            }
+        }
+    }
+
+    @Test
+    void emptyIndexSuggestsNothing() {
+        when(bookRepository.findSearchableBooks()).thenReturn(List.of());
+        when(borrowRecordRepository.findTopBorrowedBooks()).thenReturn(List.of());
+        BookSuggestIndex index = new BookSuggestIndex(bookRepository, borrowRecordRepository, COMPACT_THRESHOLD);
+        assertEquals(List.of(), index.suggest("a", 5));
+
+        index.rebuild();
+        assertEquals(List.of(), index.suggest("a", 5));
+        assertEquals(List.of(), index.suggest(" ", 5));
+    }
+
+    /**
+     * Outside a transaction the index applies each change immediately
+     */
+    private void randomChange(BookSuggestIndex index) {
+        List<UUID> ids = new ArrayList<>(texts.keySet());
+        int choice = random.nextInt(10);
+        if (ids.isEmpty() || choice < 3) {
+            Book book = new Book();
+            book.setId(UUID.randomUUID());
+            book.setTitle(randomText());
+            book.setAuthor(randomText());
+            index.index(book);
+            texts.put(book.getId(), new String[]{book.getTitle(), book.getAuthor()});
+            borrows.put(book.getId(), 0L);
+        } else if (choice < 5) {
+            UUID bookId = ids.get(random.nextInt(ids.size()));
+            Book book = new Book();
+            book.setId(bookId);
+            book.setTitle(randomText());
+            book.setAuthor(texts.get(bookId)[1]);
+            index.index(book);
+            texts.put(bookId, new String[]{book.getTitle(), book.getAuthor()});
+        } else if (choice < 6) {
+            UUID bookId = ids.get(random.nextInt(ids.size()));
+            index.unindex(bookId);
+            texts.remove(bookId);
+            borrows.remove(bookId);
+        } else {
+            UUID bookId = ids.get(random.nextInt(ids.size()));
+            index.recordBorrow(bookId);
+            borrows.merge(bookId, 1L, Long::sum);
+        }
+    }
+
+    private void checkAllPrefixes(BookSuggestIndex index, String phase) {
+        List<String> prefixes = new ArrayList<>(List.of("a", "A", "an", "ann", "b", "bo", "BOOK", "books", "c", "cab ",
+                "z", "annals", " an"));
+        for (String[] text : texts.values()) {
+            String source = text[random.nextInt(2)];
+            prefixes.add(source.substring(0, 1 + random.nextInt(Math.min(4, source.length()))));
+        }
+        for (String prefix : prefixes) {
+            int limit = 1 + random.nextInt(12);
+            assertEquals(expected(prefix, limit), actual(index.suggest(prefix, limit)),
+                    phase + ": prefix '" + prefix + "' limit " + limit);
+        }
+    }
+
+    /**
+     * Every distinct lowercased title and author of a live book, summed over its books
+     */
+    private List<String> expected(String prefix, int limit) {
+        String normalized = prefix.stripLeading().toLowerCase(Locale.ROOT);
+        Map<String, Long> counts = new HashMap<>();
+        texts.forEach((bookId, text) -> {
+            counts.merge(key(SuggestionType.TITLE, text[0]), borrows.get(bookId), Long::sum);
+            counts.merge(key(SuggestionType.AUTHOR, text[1]), borrows.get(bookId), Long::sum);
+        });
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(normalized))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> entry.getKey() + " " + entry.getValue())
+                .toList();
+    }
+
+    private static List<String> actual(List<BookSuggestionDTO> suggestions) {
+        return suggestions.stream()
+                .map(suggestion -> key(suggestion.getType(), suggestion.getText()) + " " + suggestion.getBorrowCount())
+                .toList();
+    }
+
+    /**
+     * Sorts like the index: by lowercased text, then title before author
+     */
+    private static String key(SuggestionType type, String text) {
+        return text.toLowerCase(Locale.ROOT) + '\u0000' + type.ordinal();
+    }
+
+    private String randomText() {
+        String text = WORDS[random.nextInt(WORDS.length)];
+        return random.nextBoolean() ? text : text + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,168 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Commits borrows and returns while a refresh streams the table, some of which the stream then
+ * reads and some of which it does not, and checks each loan is counted once with its latest state.
+ * Changes are recorded outside a transaction, so they apply at once, as after a commit.
+ */
+class BorrowHistoryColumnsTest {
+
+    private final LocalDate today = LocalDate.now();
+    private final BorrowRecordRepository borrowRecordRepository = mock(BorrowRecordRepository.class);
+    private final BorrowHistoryColumns columns = new BorrowHistoryColumns(borrowRecordRepository, transactionManager());
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    // Returned after three days before either read
+    private final Loan returnedEarly = new Loan(alice, "Fiction", today.minusDays(10), today.minusDays(3));
+    // Overdue and fined; returned while the second read streams, after it was read as outstanding
+    private final Loan returnedDuringRead = new Loan(alice, "Tech", today.minusDays(20), today.minusDays(6));
+    // Returned while the second read streams, before it was read
+    private final Loan returnedBeforeRead = new Loan(bob, "Fiction", today.minusDays(5), today.plusDays(9));
+    // Borrowed while the second read streams; the read sees the first but not the second
+    private final Loan borrowedAndRead = new Loan(alice, "Tech", today, today.plusDays(14));
+    private final Loan borrowedUnread = new Loan(bob, "Poetry", today, today.plusDays(14));
+
+    @Test
+    void changesCommittedDuringARefreshAreCountedOnce() {
+        Object[] outstandingRow = returnedDuringRead.row(null, "1.20");
+        when(borrowRecordRepository.streamHistoryColumns()).thenReturn(
+                Stream.of(returnedEarly.row(today.minusDays(7), "0"), outstandingRow, returnedBeforeRead.row(null, "0")),
+                Stream.of(returnedEarly.row(today.minusDays(7), "0"), outstandingRow,
+                                returnedBeforeRead.row(today, "0"), borrowedAndRead.row(null, "0"))
+                        .peek(row -> {
+                            if (row == outstandingRow) {
+                                commitChangesDuringRead();
+                            }
+                        }));
+
+        columns.refresh();
+        columns.refresh();
+
+        List<BorrowHistoryColumns.CategoryFines> fines = sortedFines();
+        assertEquals(List.of(
+                new BorrowHistoryColumns.CategoryFines("Fiction", 2, 0, 0, 0),
+                new BorrowHistoryColumns.CategoryFines("Poetry", 1, 0, 0, 0),
+                new BorrowHistoryColumns.CategoryFines("Tech", 2, 1, 150, 0)
+        ), fines);
+
+        BorrowHistoryColumns.LoanDurations durations = columns.loanDurations().orElseThrow();
+        assertEquals(3, durations.returnedLoans());
+        assertEquals(3 + 20 + 5, durations.totalDays());
+        assertEquals(20, durations.maxDays());
+        assertEquals(5, durations.percentile(0.5));
+
+        List<BorrowHistoryColumns.BorrowerTotals> totals = columns.borrowerTotals(today).orElseThrow();
+        assertEquals(2, totals.size());
+        assertTrue(totals.contains(new BorrowHistoryColumns.BorrowerTotals(alice, 3, 0, 150)), totals.toString());
+        assertTrue(totals.contains(new BorrowHistoryColumns.BorrowerTotals(bob, 2, 0, 0)), totals.toString());
+    }
+
+    @Test
+    void accruedFinesOnlyChangeOutstandingLoans() {
+        when(borrowRecordRepository.streamHistoryColumns()).thenReturn(Stream.of(
+                returnedEarly.row(today.minusDays(7), "2.00"), returnedDuringRead.row(null, "1.20")));
+        columns.refresh();
+        when(borrowRecordRepository.streamFinesAccruedOn(today)).thenReturn(Stream.of(
+                returnedDuringRead.fineRow("1.30"), returnedEarly.fineRow("9.99")));
+
+        columns.refreshFines(today);
+
+        assertEquals(List.of(
+                new BorrowHistoryColumns.CategoryFines("Fiction", 1, 1, 200, 0),
+                new BorrowHistoryColumns.CategoryFines("Tech", 1, 1, 130, 130)
+        ), sortedFines());
+        assertEquals(List.of(new BorrowHistoryColumns.BorrowerTotals(alice, 2, 1, 330)),
+                columns.borrowerTotals(today).orElseThrow());
+    }
+
+    @Test
+    void failedLoadIsRetriedAndLoadedColumnsAreNotReadAgain() {
+        when(borrowRecordRepository.streamHistoryColumns())
+                .thenThrow(new IllegalStateException("Connection refused"))
+                .thenReturn(Stream.<Object[]>of(returnedEarly.row(today.minusDays(7), "0")));
+
+        columns.refresh();
+        assertTrue(columns.finesByCategory().isEmpty());
+        assertTrue(columns.loanDurations().isEmpty());
+
+        columns.loadIfMissing();
+        columns.loadIfMissing();
+        assertEquals(1, columns.loanDurations().orElseThrow().returnedLoans());
+        verify(borrowRecordRepository, times(2)).streamHistoryColumns();
+    }
+
+    private void commitChangesDuringRead() {
+        borrowedAndRead.borrow();
+        borrowedUnread.borrow();
+        columns.recordReturn(returnedDuringRead.bookId, returnedDuringRead.borrowerId, today, new BigDecimal("1.50"));
+        columns.recordReturn(returnedBeforeRead.bookId, returnedBeforeRead.borrowerId, today, BigDecimal.ZERO);
+    }
+
+    private List<BorrowHistoryColumns.CategoryFines> sortedFines() {
+        return columns.finesByCategory().orElseThrow().stream()
+                .sorted(Comparator.comparing(BorrowHistoryColumns.CategoryFines::category))
+                .toList();
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return transactionManager;
+    }
+
+    private final class Loan {
+        private final UUID recordId = UUID.randomUUID();
+        private final UUID bookId = UUID.randomUUID();
+        private final UUID borrowerId;
+        private final String category;
+        private final LocalDate borrowDate;
+        private final LocalDate dueDate;
+
+        private Loan(UUID borrowerId, String category, LocalDate borrowDate, LocalDate dueDate) {
+            this.borrowerId = borrowerId;
+            this.category = category;
+            this.borrowDate = borrowDate;
+            this.dueDate = dueDate;
+        }
+
+        /**
+         * The loan as streamHistoryColumns reads it
+         */
+        Object[] row(LocalDate returnDate, String fine) {
+            return new Object[]{recordId, bookId, borrowerId, category, borrowDate, dueDate, returnDate, new BigDecimal(fine)};
+        }
+
+        /**
+         * The loan as streamFinesAccruedOn reads it
+         */
+        Object[] fineRow(String fine) {
+            return new Object[]{bookId, borrowerId, new BigDecimal(fine)};
+        }
+
+        void borrow() {
+            columns.recordBorrow(recordId, bookId, borrowerId, category, borrowDate, dueDate);
+        }
+    }
+}
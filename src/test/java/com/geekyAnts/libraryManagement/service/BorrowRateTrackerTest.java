@@ -0,0 +1,160 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.enums.TrendingWindow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Drives BorrowRateTracker with a clock the test moves by hand. Outside a transaction every
+ * borrow and return is counted immediately.
+ */
+class BorrowRateTrackerTest {
+
+    // Midnight, so every window starts a bucket here
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final SteppedClock clock = new SteppedClock(START);
+    private final UUID book = UUID.randomUUID();
+
+    @Test
+    void eventsLeaveEachWindowOnceItsRingHasMovedPast() {
+        BorrowRateTracker tracker = new BorrowRateTracker(10, 10, clock);
+        tracker.recordBorrow(book, "Fiction");
+        tracker.recordReturn(book, "Fiction");
+
+        // The window covers the current bucket and the ones before it, so 5m is 4m30s-5m in practice
+        clock.set(START.plus(Duration.ofSeconds(299)));
+        assertCounts(tracker, TrendingWindow.FIVE_MINUTES, 1, 1);
+        clock.set(START.plus(Duration.ofMinutes(5)));
+        assertCounts(tracker, TrendingWindow.FIVE_MINUTES, 0, 0);
+        assertCounts(tracker, TrendingWindow.HOUR, 1, 1);
+
+        clock.set(START.plus(Duration.ofMinutes(59)));
+        assertCounts(tracker, TrendingWindow.HOUR, 1, 1);
+        clock.set(START.plus(Duration.ofHours(1)));
+        assertCounts(tracker, TrendingWindow.HOUR, 0, 0);
+        assertCounts(tracker, TrendingWindow.DAY, 1, 1);
+
+        clock.set(START.plus(Duration.ofHours(23)));
+        assertCounts(tracker, TrendingWindow.DAY, 1, 1);
+        clock.set(START.plus(Duration.ofHours(24)));
+        assertCounts(tracker, TrendingWindow.DAY, 0, 0);
+        assertEquals(List.of(), tracker.trending(TrendingWindow.DAY, 10).categories());
+    }
+
+    @Test
+    void windowsSumTheirBuckets() {
+        BorrowRateTracker tracker = new BorrowRateTracker(10, 10, clock);
+        for (int minute = 0; minute < 10; minute++) {
+            clock.set(START.plus(Duration.ofMinutes(minute)));
+            tracker.recordBorrow(book, "Fiction");
+        }
+
+        // At 10:00 the five-minute window holds the buckets from 5:30 on, so minutes 6-9; the hour holds all ten
+        clock.set(START.plus(Duration.ofMinutes(10)));
+        assertCounts(tracker, TrendingWindow.FIVE_MINUTES, 4, 0);
+        assertCounts(tracker, TrendingWindow.HOUR, 10, 0);
+        assertCounts(tracker, TrendingWindow.DAY, 10, 0);
+    }
+
+    @Test
+    void quietRowsAreFreedForOtherBooks() {
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        UUID waiting = UUID.randomUUID();
+        BorrowRateTracker tracker = new BorrowRateTracker(2, 10, clock);
+        tracker.recordBorrow(early, "Fiction");
+        clock.set(START.plus(Duration.ofHours(23)));
+        tracker.recordBorrow(late, "Fiction");
+
+        // Every row is taken, so the third book only counts towards its category
+        tracker.recordBorrow(waiting, "Fiction");
+        BorrowRateTracker.Trending trending = tracker.trending(TrendingWindow.DAY, 10);
+        assertEquals(2, trending.books().size());
+        assertEquals(List.of(new BorrowRateTracker.Rate<>("Fiction", 3L, 0L)), trending.categories());
+
+        // A day after its borrow the first book's row is empty and freed; the second is still in use
+        clock.set(START.plus(Duration.ofHours(24)));
+        tracker.recordBorrow(waiting, "Fiction");
+        trending = tracker.trending(TrendingWindow.DAY, 10);
+        assertEquals(Set.of(new BorrowRateTracker.Rate<>(late, 1L, 0L), new BorrowRateTracker.Rate<>(waiting, 1L, 0L)),
+                Set.copyOf(trending.books()));
+    }
+
+    @Test
+    void longGapsClearEveryBucketBeforeItIsReused() {
+        BorrowRateTracker tracker = new BorrowRateTracker(10, 10, clock);
+        tracker.recordBorrow(book, "Fiction");
+        tracker.recordBorrow(book, "Fiction");
+
+        // Ten days on, every ring is back at the bucket the old borrows went into
+        clock.set(START.plus(Duration.ofDays(10)));
+        tracker.recordBorrow(book, "Fiction");
+        for (TrendingWindow window : TrendingWindow.values()) {
+            assertCounts(tracker, window, 1, 0);
+        }
+
+        // An idle stretch that is not a whole number of rings leaves nothing behind either
+        clock.set(START.plus(Duration.ofDays(400)).plus(Duration.ofMinutes(17)));
+        for (TrendingWindow window : TrendingWindow.values()) {
+            assertCounts(tracker, window, 0, 0);
+        }
+        tracker.recordReturn(book, "Fiction");
+        assertCounts(tracker, TrendingWindow.FIVE_MINUTES, 0, 1);
+    }
+
+    @Test
+    void nonPositiveLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BorrowRateTracker(0, 10, clock));
+    }
+
+    private void assertCounts(BorrowRateTracker tracker, TrendingWindow window, long borrows, long returns) {
+        BorrowRateTracker.Trending trending = tracker.trending(window, 10);
+        List<BorrowRateTracker.Rate<UUID>> expectedBooks = borrows == 0 && returns == 0
+                ? List.of()
+                : List.of(new BorrowRateTracker.Rate<>(book, borrows, returns));
+        assertEquals(expectedBooks, trending.books(), window.getLabel() + " at " + clock.instant());
+        List<BorrowRateTracker.Rate<String>> expectedCategories = borrows == 0 && returns == 0
+                ? List.of()
+                : List.of(new BorrowRateTracker.Rate<>("Fiction", borrows, returns));
+        assertEquals(expectedCategories, trending.categories(), window.getLabel() + " at " + clock.instant());
+    }
+
+    private static final class SteppedClock extends Clock {
+        private Instant now;
+
+        private SteppedClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
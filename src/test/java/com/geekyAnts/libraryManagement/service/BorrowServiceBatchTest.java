@@ -0,0 +1,210 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.dto.BatchBorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BatchItemResultDTO;
+import com.geekyAnts.libraryManagement.dto.BatchResultDTO;
+import com.geekyAnts.libraryManagement.dto.BatchReturnRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BookRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRecordDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowRequestDTO;
+import com.geekyAnts.libraryManagement.dto.BorrowerRequestDTO;
+import com.geekyAnts.libraryManagement.entity.BorrowRecord;
+import com.geekyAnts.libraryManagement.enums.MembershipType;
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Borrows and returns carts through BorrowService and checks each item's outcome, then that the
+ * active loan index, the inventory ledger and the books table agree on what happened.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:borrow-batch",
+        "spring.jpa.show-sql=false",
+        "library.sketches.snapshot-path=",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class BorrowServiceBatchTest {
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BorrowerService borrowerService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Autowired
+    private ActiveLoanIndex activeLoanIndex;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void cartReportsEachFailureAndBorrowsTheRest() {
+        UUID borrower = borrower(MembershipType.PREMIUM);
+        UUID first = book(1);
+        UUID alreadyBorrowed = book(1);
+        UUID soldOut = book(1);
+        UUID deleted = book(1);
+        UUID unknown = UUID.randomUUID();
+        UUID last = book(2);
+        borrowService.borrowBook(new BorrowRequestDTO(alreadyBorrowed, borrower));
+        borrowService.borrowBook(new BorrowRequestDTO(soldOut, borrower(MembershipType.BASIC)));
+        bookService.deleteBook(deleted);
+
+        BatchResultDTO result = borrowService.borrowBooks(new BatchBorrowRequestDTO(borrower,
+                List.of(first, alreadyBorrowed, soldOut, unknown, deleted, first, last)));
+
+        assertEquals(7, result.getRequested());
+        assertEquals(2, result.getSucceeded());
+        assertEquals(5, result.getFailed());
+        List<BatchItemResultDTO> items = result.getItems();
+        assertSuccess(items.get(0), first);
+        assertFailure(items.get(1), alreadyBorrowed, "Borrower already has this book borrowed");
+        assertFailure(items.get(2), soldOut, "Book is not available for borrowing");
+        assertFailure(items.get(3), unknown, "Book not found or deleted");
+        assertFailure(items.get(4), deleted, "Book not found or deleted");
+        assertFailure(items.get(5), first, "Book appears more than once in this batch");
+        assertSuccess(items.get(6), last);
+
+        // The sold-out book's loan was taken back out of the index
+        assertEquals(3, activeLoanIndex.countActiveLoans(borrower));
+        assertCopies(first, 0);
+        assertCopies(soldOut, 0);
+        assertCopies(last, 1);
+    }
+
+    @Test
+    void limitReachedPartWayThroughTheCartFailsTheRemainingBooks() {
+        UUID borrower = borrower(MembershipType.BASIC);
+        borrowService.borrowBook(new BorrowRequestDTO(book(1), borrower));
+        UUID fits = book(1);
+        UUID overLimit = book(1);
+        UUID alsoOverLimit = book(1);
+
+        BatchResultDTO result = borrowService.borrowBooks(new BatchBorrowRequestDTO(borrower,
+                List.of(fits, overLimit, alsoOverLimit)));
+
+        assertEquals(1, result.getSucceeded());
+        assertSuccess(result.getItems().get(0), fits);
+        String limit = "Borrower has reached maximum borrow limit of " + MembershipType.BASIC.getMaxBorrowLimit();
+        assertFailure(result.getItems().get(1), overLimit, limit);
+        assertFailure(result.getItems().get(2), alsoOverLimit, limit);
+        assertEquals(2, activeLoanIndex.countActiveLoans(borrower));
+        assertCopies(fits, 0);
+        assertCopies(overLimit, 1);
+        assertCopies(alsoOverLimit, 1);
+    }
+
+    @Test
+    void returnsAreReportedPerRecord() {
+        UUID borrower = borrower(MembershipType.PREMIUM);
+        UUID kept = book(1);
+        UUID returned = book(1);
+        UUID returnedBefore = book(1);
+        UUID keptRecord = borrowService.borrowBook(new BorrowRequestDTO(kept, borrower)).getId();
+        UUID record = borrowService.borrowBook(new BorrowRequestDTO(returned, borrower)).getId();
+        UUID earlierRecord = borrowService.borrowBook(new BorrowRequestDTO(returnedBefore, borrower)).getId();
+        borrowService.returnBooks(new BatchReturnRequestDTO(List.of(earlierRecord)));
+        UUID unknown = UUID.randomUUID();
+
+        BatchResultDTO result = borrowService.returnBooks(new BatchReturnRequestDTO(
+                List.of(record, record, unknown, earlierRecord)));
+
+        assertEquals(1, result.getSucceeded());
+        assertTrue(result.getItems().get(0).isSuccess());
+        assertEquals(record, result.getItems().get(0).getRecord().getId());
+        assertFailure(result.getItems().get(1), record, "Borrow record appears more than once in this batch");
+        assertFailure(result.getItems().get(2), unknown, "Borrow record not found");
+        assertFailure(result.getItems().get(3), earlierRecord, "Book is already returned or record is inactive");
+
+        assertEquals(1, activeLoanIndex.countActiveLoans(borrower));
+        assertCopies(returned, 1);
+        assertCopies(returnedBefore, 1);
+        assertCopies(kept, 0);
+        assertNull(borrowRecordRepository.findById(keptRecord).orElseThrow().getReturnDate());
+    }
+
+    @Test
+    void rolledBackBatchLeavesTheIndexAndLedgerAsTheyWere() {
+        UUID borrower = borrower(MembershipType.BASIC);
+        UUID onLoan = book(1);
+        UUID record = borrowService.borrowBook(new BorrowRequestDTO(onLoan, borrower)).getId();
+        UUID wanted = book(1);
+
+        // Both batches join one outer transaction, which then rolls back
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(1, borrowService.returnBooks(new BatchReturnRequestDTO(List.of(record))).getSucceeded());
+            assertEquals(1, borrowService.borrowBooks(new BatchBorrowRequestDTO(borrower, List.of(wanted))).getSucceeded());
+            assertEquals(1, activeLoanIndex.countActiveLoans(borrower));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, activeLoanIndex.countActiveLoans(borrower));
+        assertCopies(onLoan, 0);
+        assertCopies(wanted, 1);
+        BorrowRecord loan = borrowRecordRepository.findById(record).orElseThrow();
+        assertNull(loan.getReturnDate());
+        assertTrue(borrowRecordRepository.findAll().stream().noneMatch(r -> r.getBook().getId().equals(wanted)));
+
+        // The index still holds the loan that was not returned, so only one more fits
+        BatchResultDTO retry = borrowService.borrowBooks(new BatchBorrowRequestDTO(borrower,
+                List.of(onLoan, wanted, book(1))));
+        assertFailure(retry.getItems().get(0), onLoan, "Borrower already has this book borrowed");
+        assertSuccess(retry.getItems().get(1), wanted);
+        assertEquals("Borrower has reached maximum borrow limit of 2", retry.getItems().get(2).getMessage());
+    }
+
+    private void assertSuccess(BatchItemResultDTO item, UUID bookId) {
+        assertTrue(item.isSuccess(), item.getMessage());
+        assertEquals(bookId, item.getId());
+        BorrowRecordDTO record = item.getRecord();
+        assertEquals(bookId, record.getBookId());
+        assertTrue(borrowRecordRepository.findById(record.getId()).isPresent());
+    }
+
+    private static void assertFailure(BatchItemResultDTO item, UUID id, String message) {
+        assertEquals(id, item.getId());
+        assertFalse(item.isSuccess());
+        assertEquals(message, item.getMessage());
+        assertNull(item.getRecord());
+    }
+
+    private void assertCopies(UUID bookId, int copies) {
+        assertEquals(copies, bookRepository.findById(bookId).orElseThrow().getAvailableCopies(), "in the table");
+        assertEquals(copies, inventoryLedger.getAvailableCopies(bookId), "in the ledger");
+    }
+
+    private UUID borrower(MembershipType membershipType) {
+        String name = "Reader " + UUID.randomUUID();
+        return borrowerService.registerBorrower(new BorrowerRequestDTO(name,
+                name.replace(' ', '.') + "@example.com", membershipType)).getId();
+    }
+
+    private UUID book(int copies) {
+        return bookService.addBook(new BookRequestDTO("Batch " + UUID.randomUUID(), "Bo Batch", "Fiction", copies)).getId();
+    }
+}
@@ -0,0 +1,93 @@
+package com.geekyAnts.libraryManagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readsQuotedFieldsAcrossLinesAndLineEndings() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "title,author\r\n\r\n\"Say \"\"Hi\"\"\", Ann \r\n\"Two\r\nlines\",Bo\n\"Last\nrecord\",Cy"), 100);
+
+        assertEquals(List.of("title", "author"), reader.next());
+        assertEquals(1, reader.recordLine());
+        assertEquals(List.of("Say \"Hi\"", "Ann"), reader.next());
+        assertEquals(3, reader.recordLine());
+        assertEquals(List.of("Two\nlines", "Bo"), reader.next());
+        assertEquals(4, reader.recordLine());
+        assertEquals(List.of("Last\nrecord", "Cy"), reader.next());
+        assertEquals(6, reader.recordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void unterminatedQuoteAtTheEndIsReportedWithItsLine() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b\n\"open,c\nmore\n"), 100);
+        reader.next();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    @Test
+    void unterminatedQuoteFailsOnceTheRecordPassesTheLimit() throws IOException {
+        // An endless input of short lines after an opening quote; only the limit stops the record
+        CountingReader input = new CountingReader("a,b\n\"open\n", "x,y\n");
+        CsvRecordReader reader = new CsvRecordReader(input, 1_000);
+        assertEquals(List.of("a", "b"), reader.next());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+        // At most one buffer read past the limit
+        assertTrue(input.charsRead < 1_000 + 2 * 8192, "read " + input.charsRead + " chars");
+    }
+
+    @Test
+    void singleLineLongerThanTheLimitFails() throws IOException {
+        CountingReader input = new CountingReader("a,b\n", "z");
+        CsvRecordReader reader = new CsvRecordReader(input, 50);
+        reader.next();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::next);
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    /**
+     * A fixed start followed by a pattern repeated forever
+     */
+    private static final class CountingReader extends Reader {
+        private final String start;
+        private final String pattern;
+        private long charsRead;
+
+        private CountingReader(String start, String pattern) {
+            this.start = start;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            for (int i = 0; i < length; i++) {
+                long at = charsRead++;
+                buffer[offset + i] = at < start.length()
+                        ? start.charAt((int) at)
+                        : pattern.charAt((int) ((at - start.length()) % pattern.length()));
+            }
+            return length;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
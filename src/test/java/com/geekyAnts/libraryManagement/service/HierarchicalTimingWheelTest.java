@@ -0,0 +1,182 @@
+package com.geekyAnts.libraryManagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives HierarchicalTimingWheel with ticks chosen by the test and checks that every timer fires
+ * on exactly its deadline tick, whichever level it started in and however often it cascaded.
+ */
+class HierarchicalTimingWheelTest {
+
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * LEVEL_1;
+    private static final long LEVEL_3 = 64 * LEVEL_2;
+
+    @Test
+    void deadlineInEachLevelFiresOnItsTick() {
+        long start = 12_345;
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(start);
+        // The smallest delay of each level plus an offset that keeps it off slot boundaries
+        List<Long> deadlines = new ArrayList<>();
+        deadlines.add(start + 5);
+        for (int level = 1; level < 6; level++) {
+            deadlines.add(start + (1L << (6 * level)) + 37);
+        }
+        for (int level = 0; level < deadlines.size(); level++) {
+            assertTrue(wheel.schedule("level-" + level, deadlines.get(level)));
+        }
+
+        for (int level = 0; level < deadlines.size(); level++) {
+            long deadline = deadlines.get(level);
+            assertEquals(List.of(), wheel.advanceTo(deadline - 1), "before level " + level);
+            assertEquals(List.of("level-" + level), wheel.advanceTo(deadline), "at level " + level);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBeyondTheTopLevelIsPlacedAgainUntilItFires() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(3);
+        long deadline = 3 * (1L << 36) + 11;
+        assertTrue(wheel.schedule("far", deadline));
+
+        assertEquals(List.of(), wheel.advanceTo(deadline - 1));
+        assertEquals(List.of("far"), wheel.advanceTo(deadline));
+    }
+
+    @Test
+    void timersAroundLevelBoundariesFireOnTheirTick() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(0);
+        List<Long> deadlines = new ArrayList<>();
+        for (long boundary : new long[]{LEVEL_1, LEVEL_2, LEVEL_3, 2 * LEVEL_2, 3 * LEVEL_1 + LEVEL_2}) {
+            deadlines.add(boundary - 1);
+            deadlines.add(boundary);
+            deadlines.add(boundary + 1);
+        }
+        deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+
+        // One tick at a time, so a timer firing a tick early or late is caught
+        for (long tick = 1; tick <= LEVEL_3 + 1; tick++) {
+            List<Long> expired = wheel.advanceTo(tick);
+            List<Long> expected = deadlines.contains(tick) ? List.of(tick) : List.of();
+            assertEquals(expected, expired, "tick " + tick);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelBeforeAnyCascade() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(0);
+        wheel.schedule("cancelled", 5_000);
+        wheel.schedule("kept", 5_001);
+
+        assertTrue(wheel.cancel("cancelled"));
+        assertFalse(wheel.cancel("cancelled"));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advanceTo(10_000));
+    }
+
+    @Test
+    void cancelAfterTheTimerCascaded() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(0);
+        // Starts in level 2, moves to level 1 at tick 4096 and to level 0 at tick 4992
+        wheel.schedule("first", 5_000);
+        wheel.schedule("second", 5_000);
+        wheel.schedule("third", 5_000);
+
+        assertEquals(List.of(), wheel.advanceTo(LEVEL_2));
+        assertTrue(wheel.cancel("second"));
+        assertEquals(List.of(), wheel.advanceTo(4_995));
+        assertTrue(wheel.cancel("third"));
+
+        assertEquals(List.of("first"), wheel.advanceTo(5_000));
+        assertEquals(List.of(), wheel.advanceTo(20_000));
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.cancel("first"));
+    }
+
+    @Test
+    void deadlinesAlreadyPassedAreNotScheduled() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100);
+        assertFalse(wheel.schedule("now", 100));
+        assertFalse(wheel.schedule("earlier", 40));
+        assertEquals(0, wheel.size());
+
+        // Rescheduling into the past drops the pending timer
+        assertTrue(wheel.schedule("moved", 500));
+        assertFalse(wheel.schedule("moved", 99));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(1_000));
+
+        // Moving the wheel backwards changes nothing
+        assertTrue(wheel.schedule("later", 1_001));
+        assertEquals(List.of(), wheel.advanceTo(10));
+        assertEquals(List.of("later"), wheel.advanceTo(1_001));
+    }
+
+    @Test
+    void rescheduleReplacesTheEarlierTimer() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(0);
+        wheel.schedule("loan", 70_000);
+        wheel.schedule("loan", 30);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("loan"), wheel.advanceTo(30));
+        assertEquals(List.of(), wheel.advanceTo(100_000));
+    }
+
+    @Test
+    void randomScheduleAndCancelMatchABruteForceModel() {
+        Random random = new Random(42);
+        long tick = 1_000;
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(tick);
+        Map<Integer, Long> pending = new HashMap<>();
+
+        for (int round = 0; round < 2_000; round++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                assertEquals(pending.remove(key) != null, wheel.cancel(key));
+            } else {
+                // Mostly short delays, some long enough to start in levels 1 to 3
+                long delay = switch (random.nextInt(4)) {
+                    case 0 -> random.nextInt(64);
+                    case 1 -> random.nextInt((int) LEVEL_2);
+                    case 2 -> random.nextInt((int) LEVEL_3);
+                    default -> random.nextInt((int) (4 * LEVEL_3));
+                };
+                boolean scheduled = wheel.schedule(key, tick + delay);
+                assertEquals(delay > 0, scheduled);
+                pending.remove(key);
+                if (scheduled) {
+                    pending.put(key, tick + delay);
+                }
+            }
+
+            long target = tick + random.nextInt(random.nextBoolean() ? 64 : (int) LEVEL_2);
+            Set<Integer> expected = new HashSet<>();
+            for (Map.Entry<Integer, Long> entry : pending.entrySet()) {
+                if (entry.getValue() <= target) {
+                    expected.add(entry.getKey());
+                }
+            }
+            expected.forEach(pending::remove);
+            List<Integer> expired = wheel.advanceTo(target);
+            assertEquals(expected, new HashSet<>(expired), "advancing to " + target);
+            assertEquals(expired.size(), expected.size(), "a key expired twice");
+            assertEquals(pending.size(), wheel.size());
+            tick = target;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.geekyAnts.libraryManagement.service;
+
+import com.geekyAnts.libraryManagement.repository.BookRepository;
+import com.geekyAnts.libraryManagement.repository.BorrowRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exercises the CAS counters and the epoch-guarded rollback compensation without a database.
+ * Transactions are simulated by opening a synchronization scope and completing it by hand.
+ */
+class InventoryLedgerTest {
+
+    private static final int COPIES = 5;
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final BorrowRecordRepository borrowRecordRepository = mock(BorrowRecordRepository.class);
+    private final UUID bookId = UUID.randomUUID();
+
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new InventoryLedger(bookRepository, borrowRecordRepository);
+        ledger.resync(bookId, COPIES);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentReserveAndReleaseStayWithinBounds() throws Exception {
+        int threads = 8;
+        int iterations = 20_000;
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        if (ledger.tryReserve(bookId)) {
+                            if (held.incrementAndGet() > COPIES) {
+                                violations.incrementAndGet();
+                            }
+                            held.decrementAndGet();
+                            ledger.release(bookId);
+                        }
+                        int available = ledger.getAvailableCopies(bookId);
+                        if (available < 0 || available > COPIES) {
+                            violations.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, violations.get());
+        assertEquals(COPIES, ledger.getAvailableCopies(bookId));
+    }
+
+    @Test
+    void reserveIsRejectedOnceSoldOut() {
+        for (int i = 0; i < COPIES; i++) {
+            assertTrue(ledger.tryReserve(bookId));
+        }
+        assertFalse(ledger.tryReserve(bookId));
+        assertFalse(ledger.tryChange(bookId, -1));
+        assertEquals(0, ledger.getAvailableCopies(bookId));
+        assertEquals(1, ledger.getContention().getLedgerRejections());
+    }
+
+    @Test
+    void rollbackRestoresTheCount() {
+        inTransaction(() -> {
+            assertTrue(ledger.tryReserve(bookId));
+            assertTrue(ledger.tryReserve(bookId));
+            ledger.release(bookId);
+            assertTrue(ledger.tryChange(bookId, 3));
+            assertEquals(COPIES + 2, ledger.getAvailableCopies(bookId));
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(COPIES, ledger.getAvailableCopies(bookId));
+    }
+
+    @Test
+    void commitKeepsTheChange() {
+        inTransaction(() -> assertTrue(ledger.tryReserve(bookId)), TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(COPIES - 1, ledger.getAvailableCopies(bookId));
+    }
+
+    @Test
+    void rollbackAfterResyncDropsCompensationFromBeforeTheResync() {
+        inTransaction(() -> {
+            assertTrue(ledger.tryReserve(bookId));
+            // The table already reflects this transaction's reservation, so undoing it again would double count
+            ledger.resync(bookId, COPIES - 1);
+            assertTrue(ledger.tryReserve(bookId));
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Only the reservation made after the resync is undone
+        assertEquals(COPIES - 1, ledger.getAvailableCopies(bookId));
+    }
+
+    @Test
+    void listenersSeeEveryCrossingOfZero() {
+        AtomicInteger notifications = new AtomicInteger();
+        ledger.addAvailabilityListener(id -> notifications.incrementAndGet());
+        ledger.resync(bookId, 1);
+
+        inTransaction(() -> {
+            assertTrue(ledger.tryReserve(bookId));
+            assertEquals(1, notifications.get());
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // The rollback put the copy back, which is a second crossing
+        assertEquals(2, notifications.get());
+        assertEquals(1, ledger.getAvailableCopies(bookId));
+    }
+
+    @Test
+    void reconcileRepairsSoldOutCountersThatDrifted() {
+        UUID inStock = UUID.randomUUID();
+        ledger.resync(inStock, 2);
+        ledger.resync(bookId, 0);
+        when(bookRepository.findAvailableCopiesByIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{bookId, 3}));
+
+        ledger.reconcile();
+
+        assertEquals(3, ledger.getAvailableCopies(bookId));
+        assertEquals(2, ledger.getAvailableCopies(inStock));
+        // Only sold-out books are re-read
+        verify(bookRepository).findAvailableCopiesByIds(List.of(bookId));
+    }
+
+    @Test
+    void reconcileSkipsTheTableWhenNothingIsSoldOut() {
+        ledger.reconcile();
+
+        verify(bookRepository, never()).findAvailableCopiesByIds(anyCollection());
+    }
+
+    @Test
+    void reconcileKeepsTheCounterWhenTheTableCannotBeRead() {
+        ledger.resync(bookId, 0);
+        when(bookRepository.findAvailableCopiesByIds(anyCollection())).thenThrow(new RuntimeException("down"));
+
+        ledger.reconcile();
+
+        assertEquals(0, ledger.getAvailableCopies(bookId));
+    }
+
+    private static void inTransaction(Runnable work, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
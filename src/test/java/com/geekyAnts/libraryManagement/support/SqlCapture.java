@@ -0,0 +1,41 @@
+package com.geekyAnts.libraryManagement.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL sent by the test thread only, not by scheduled jobs running alongside. Installed
+ * with INSPECTOR_PROPERTY; statements are collected between start and stop.
+ */
+public class SqlCapture implements StatementInspector {
+
+    public static final String INSPECTOR_PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                    + "com.geekyAnts.libraryManagement.support.SqlCapture";
+
+    private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+    /**
+     * Starts collecting on this thread; the returned list fills as statements are sent
+     */
+    public static List<String> start() {
+        List<String> statements = new ArrayList<>();
+        STATEMENTS.set(statements);
+        return statements;
+    }
+
+    public static void stop() {
+        STATEMENTS.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = STATEMENTS.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}